@@ -0,0 +1,78 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the greedy and the optimizing strategy on the same inputs.
+ * The total discount each one reached is printed when a trial ends,
+ * to compare the quality of the allocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AllocationStrategyBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int orderCount;
+
+    @Param({"5", "50"})
+    public int methodCount;
+
+    @Param({"50", "500"})
+    public long budgetMillis;
+
+    List<Order> orders;
+    List<PaymentMethod> methods;
+    long totalValue;
+    long greedyDiscount;
+    long optimizedDiscount;
+    long optimizedGap;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        methods = SyntheticData.methods(methodCount, orderCount, SyntheticData.DEFAULT_SEED);
+        orders = SyntheticData.orders(orderCount, methods, SyntheticData.DEFAULT_SEED);
+        totalValue = orders.stream().mapToLong(Order::getValue).sum();
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        System.out.printf("%norders=%d methods=%d budget=%dms: greedy discount=%s, optimized discount=%s (gap at most %s)%n",
+                orderCount, methodCount, budgetMillis,
+                Money.format(greedyDiscount), Money.format(optimizedDiscount), Money.format(optimizedGap));
+    }
+
+    @Benchmark
+    public PaymentSummary greedy() {
+        PaymentSummary summary = new PaymentSummary(methods);
+        new GreedyAllocationStrategy().allocate(new ArrayList<>(orders), new ArrayList<>(methods), summary);
+        greedyDiscount = discount(summary);
+        return summary;
+    }
+
+    @Benchmark
+    public PaymentSummary optimized() {
+        PaymentSummary summary = new PaymentSummary(methods);
+        OptimizingAllocationStrategy strategy = new OptimizingAllocationStrategy(Duration.ofMillis(budgetMillis));
+        strategy.allocate(orders, methods, summary);
+        optimizedDiscount = discount(summary);
+        optimizedGap = strategy.getLastGap();
+        return summary;
+    }
+
+    private long discount(PaymentSummary summary) {
+        long paid = 0;
+        for (long amount : summary.getPaidByMethod().values()) {
+            paid += amount;
+        }
+        return totalValue - paid;
+    }
+}
@@ -0,0 +1,58 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The list-based greedy with and without a decision log, to show what recording
+ * every decision costs the allocating thread. The log is written to a null stream,
+ * so the writer thread only encodes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DecisionLogBenchmark {
+    @Param({"10000", "100000"})
+    public int orderCount;
+
+    @Param({"5", "50"})
+    public int methodCount;
+
+    List<Order> orders;
+    List<PaymentMethod> methods;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        methods = SyntheticData.methods(methodCount, orderCount, SyntheticData.DEFAULT_SEED);
+        orders = SyntheticData.orders(orderCount, methods, SyntheticData.DEFAULT_SEED);
+        new MethodRegistry(methods).bind(orders);
+    }
+
+    @Benchmark
+    public PaymentSummary withoutLog() {
+        List<PaymentMethod> ms = new ArrayList<>(methods);
+        PaymentSummary summary = new PaymentSummary(ms);
+        PaymentProcessor.payByMethod(new ArrayList<>(orders), ms, summary);
+        return summary;
+    }
+
+    @Benchmark
+    public PaymentSummary withLog() throws IOException {
+        List<PaymentMethod> ms = new ArrayList<>(methods);
+        try (DecisionLog log = DecisionLog.open(OutputStream.nullOutputStream(), DecisionLog.DEFAULT_CAPACITY)) {
+            PaymentSummary summary = new PaymentSummary(ms, log);
+            PaymentProcessor.payByMethod(new ArrayList<>(orders), ms, summary);
+            return summary;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The >10% reorder phase walking every unpaid order per method, as it did before
+ * the eligibility index, against walking only each method's candidates.
+ * Orders carry one to three bank promotions, so with 50 methods each method is
+ * eligible for a few percent of the orders.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EligibilityIndexBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int orderCount;
+
+    @Param({"5", "50"})
+    public int methodCount;
+
+    List<Order> orders;
+    List<PaymentMethod> methods;
+    EligibilityIndex index;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        methods = SyntheticData.methods(methodCount, orderCount, SyntheticData.DEFAULT_SEED);
+        orders = SyntheticData.orders(orderCount, methods, SyntheticData.DEFAULT_SEED);
+        new MethodRegistry(methods).bind(orders);
+        methods.sort(Comparator.comparingInt(PaymentMethod::getDiscount).reversed());
+        orders.sort(Comparator.comparingLong(Order::getValue));
+        index = EligibilityIndex.of(orders, methods.size());
+    }
+
+    @Benchmark
+    public EligibilityIndex buildIndex() {
+        return EligibilityIndex.of(orders, methods.size());
+    }
+
+    @Benchmark
+    public PaymentSummary reorderScan() {
+        PaymentSummary summary = new PaymentSummary(methods);
+        List<Order> unpaid = new ArrayList<>(orders);
+        for (PaymentMethod pm : methods) {
+            if (pm.getDiscount() <= 10) break;
+            Iterator<Order> it = unpaid.iterator();
+            while (it.hasNext()) {
+                Order o = it.next();
+                if (!o.getEligibleMethods().get(pm.getIndex())) continue;
+                long cost = Money.discounted(o.getValue(), pm.getDiscount());
+                if (summary.getRemainingLimit(pm.getId()) >= cost) {
+                    summary.putPaymentEntries(o.getId(), List.of(new PaymentSummary.PaymentEntry(pm.getId(), cost)));
+                    it.remove();
+                }
+            }
+        }
+        return summary;
+    }
+
+    @Benchmark
+    public PaymentSummary reorderIndexed() {
+        PaymentSummary summary = new PaymentSummary(methods);
+        PaymentProcessor.paymentReorder(orders, methods, summary, index);
+        return summary;
+    }
+}
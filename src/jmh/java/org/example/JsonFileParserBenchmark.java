@@ -0,0 +1,64 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for parsing generated order files.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonFileParserBenchmark {
+    private static final Type ORDERS_TYPE = new TypeToken<List<Order>>(){}.getType();
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int orderCount;
+
+    @Param({"5", "50"})
+    public int methodCount;
+
+    Path ordersFile;
+
+    @Setup(Level.Trial)
+    public void writeFile() throws IOException {
+        List<PaymentMethod> methods = SyntheticData.methods(methodCount, orderCount, SyntheticData.DEFAULT_SEED);
+        List<Order> orders = SyntheticData.orders(orderCount, methods, SyntheticData.DEFAULT_SEED);
+        ordersFile = Files.createTempFile("orders-" + orderCount + "-", ".json");
+        try (Writer writer = Files.newBufferedWriter(ordersFile, StandardCharsets.UTF_8)) {
+            new Gson().toJson(orders, ORDERS_TYPE, writer);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(ordersFile);
+    }
+
+    @Benchmark
+    public List<Order> parse() throws IOException {
+        return new JsonFileParser<Order>(ordersFile.toString(), ORDERS_TYPE).parse();
+    }
+
+    @Benchmark
+    public int parseStreaming() throws IOException {
+        int[] count = new int[1];
+        new JsonFileParser<Order>(ordersFile.toString(), ORDERS_TYPE).forEach(o -> count[0]++);
+        return count[0];
+    }
+}
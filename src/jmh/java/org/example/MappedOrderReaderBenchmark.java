@@ -0,0 +1,66 @@
+package org.example;
+
+import com.google.gson.reflect.TypeToken;
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse throughput of the memory-mapped order reader against the Gson parser.
+ * 15 million generated orders make a file of about 1 GB.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+@State(Scope.Benchmark)
+public class MappedOrderReaderBenchmark {
+    private static final Type ORDERS_TYPE = new TypeToken<List<Order>>(){}.getType();
+
+    @Param({"1000000", "15000000"})
+    public int orderCount;
+
+    @Param({"5", "50"})
+    public int methodCount;
+
+    Path ordersFile;
+    MethodRegistry registry;
+
+    @Setup(Level.Trial)
+    public void writeFile() throws IOException {
+        List<PaymentMethod> methods = SyntheticData.methods(methodCount, orderCount, SyntheticData.DEFAULT_SEED);
+        registry = new MethodRegistry(methods);
+        ordersFile = Files.createTempFile("orders-" + orderCount + "-", ".json");
+        SyntheticData.writeOrders(ordersFile, orderCount, methods, SyntheticData.DEFAULT_SEED);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(ordersFile);
+    }
+
+    @Benchmark
+    public List<Order> gsonParse() throws IOException {
+        return new JsonFileParser<Order>(ordersFile.toString(), ORDERS_TYPE).parse();
+    }
+
+    @Benchmark
+    public OrderTable gsonIntoTable() throws IOException {
+        OrderTable.Builder builder = new OrderTable.Builder(registry, orderCount);
+        new JsonFileParser<Order>(ordersFile.toString(), ORDERS_TYPE).forEach(builder::add);
+        return builder.build();
+    }
+
+    @Benchmark
+    public OrderTable mappedRead() throws IOException {
+        return MappedOrderReader.read(ordersFile, registry).build();
+    }
+}
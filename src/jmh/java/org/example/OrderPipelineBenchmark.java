@@ -0,0 +1,73 @@
+package org.example;
+
+import com.google.gson.reflect.TypeToken;
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading orders ready for allocation (parsed, bound and sorted by value):
+ * parsing the whole file and then binding and sorting, against the pipeline
+ * at several batch sizes and queue depths.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class OrderPipelineBenchmark {
+    private static final Type ORDERS_TYPE = new TypeToken<List<Order>>(){}.getType();
+
+    @Param({"1000000"})
+    public int orderCount;
+
+    @Param({"50"})
+    public int methodCount;
+
+    @Param({"256", "4096", "65536"})
+    public int batchSize;
+
+    @Param({"2", "8"})
+    public int queueDepth;
+
+    Path ordersFile;
+    MethodRegistry registry;
+
+    @Setup(Level.Trial)
+    public void writeFile() throws IOException {
+        List<PaymentMethod> methods = SyntheticData.methods(methodCount, orderCount, SyntheticData.DEFAULT_SEED);
+        registry = new MethodRegistry(methods);
+        ordersFile = Files.createTempFile("orders-" + orderCount + "-", ".json");
+        SyntheticData.writeOrders(ordersFile, orderCount, methods, SyntheticData.DEFAULT_SEED);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(ordersFile);
+    }
+
+    @Benchmark
+    public List<Order> serial() throws IOException {
+        List<Order> orders = new ArrayList<>();
+        new JsonFileParser<Order>(ordersFile.toString(), ORDERS_TYPE).forEach(orders::add);
+        registry.bind(orders);
+        orders.sort(Comparator.comparingLong(Order::getValue));
+        return orders;
+    }
+
+    @Benchmark
+    public List<Order> pipelined() throws IOException {
+        return new OrderPipeline(registry, batchSize, queueDepth)
+                .load(new JsonFileParser<>(ordersFile.toString(), ORDERS_TYPE));
+    }
+}
@@ -0,0 +1,137 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the payment allocation pipeline, end to end and phase by phase.
+ * Every phase benchmark starts from a summary holding the result of the phases before it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PaymentProcessorBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Data {
+        @Param({"1000", "10000", "100000", "1000000"})
+        public int orderCount;
+
+        @Param({"5", "50"})
+        public int methodCount;
+
+        List<Order> orders;
+        List<PaymentMethod> methods;
+        PaymentMethod punkty;
+        PaymentMethod lowest;
+        OrderTable table;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            methods = SyntheticData.methods(methodCount, orderCount, SyntheticData.DEFAULT_SEED);
+            orders = SyntheticData.orders(orderCount, methods, SyntheticData.DEFAULT_SEED);
+            MethodRegistry registry = new MethodRegistry(methods);
+            registry.bind(orders);
+            table = OrderTable.of(orders, registry);
+            // same ordering payByMethod applies, so the inputs stay sorted between invocations
+            methods.sort(Comparator.comparingInt(PaymentMethod::getDiscount).reversed());
+            orders.sort(Comparator.comparingLong(Order::getValue));
+            punkty = methods.stream().filter(pm -> "PUNKTY".equals(pm.getId())).findFirst().orElseThrow();
+            lowest = methods.getLast();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class FreshSummary {
+        PaymentSummary summary;
+
+        @Setup(Level.Invocation)
+        public void reset(Data data) {
+            summary = new PaymentSummary(data.methods);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class AfterReorder {
+        PaymentSummary summary;
+
+        @Setup(Level.Invocation)
+        public void reset(Data data) {
+            summary = new PaymentSummary(data.methods);
+            PaymentProcessor.paymentReorder(data.orders, data.methods, summary);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class AfterDistribute {
+        PaymentSummary summary;
+
+        @Setup(Level.Invocation)
+        public void reset(Data data) {
+            summary = new PaymentSummary(data.methods);
+            PaymentProcessor.paymentReorder(data.orders, data.methods, summary);
+            PaymentProcessor.distributePunktyWithFallback(
+                    data.orders, data.methods, data.punkty, data.lowest, summary);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Allocated {
+        PaymentSummary summary;
+
+        @Setup(Level.Trial)
+        public void allocate(Data data) {
+            summary = new PaymentSummary(data.methods);
+            PaymentProcessor.payByMethod(data.orders, data.methods, summary);
+        }
+    }
+
+    @Benchmark
+    public PaymentSummary payByMethod(Data data, FreshSummary state) {
+        PaymentProcessor.payByMethod(data.orders, data.methods, state.summary);
+        return state.summary;
+    }
+
+    @Benchmark
+    public PaymentSummary payByMethodColumnar(Data data, FreshSummary state) {
+        PaymentProcessor.payByMethod(data.table, data.methods, state.summary);
+        return state.summary;
+    }
+
+    @Benchmark
+    public PaymentSummary paymentReorder(Data data, FreshSummary state) {
+        PaymentProcessor.paymentReorder(data.orders, data.methods, state.summary);
+        return state.summary;
+    }
+
+    /**
+     * The 10% PUNKTY split, including eviction of the largest requirements
+     * when points are scarce.
+     */
+    @Benchmark
+    public PaymentSummary splitPunkty10percent(Data data, AfterReorder state) {
+        PaymentProcessor.splitPunkty10percent(data.orders, data.punkty, data.lowest, state.summary);
+        return state.summary;
+    }
+
+    @Benchmark
+    public PaymentSummary payFallbackOrders(Data data, AfterDistribute state) {
+        PaymentProcessor.payFallbackOrders(data.orders, data.methods, state.summary);
+        return state.summary;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void getRemainingLimit(Data data, Allocated state, Blackhole bh) {
+        for (PaymentMethod pm : data.methods) {
+            bh.consume(state.summary.getRemainingLimit(pm.getId()));
+        }
+    }
+}
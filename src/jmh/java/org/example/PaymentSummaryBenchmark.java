@@ -0,0 +1,54 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing one batch of columnar assignments into a new summary per batch, against
+ * resetting and reusing one summary. Run with {@code -prof gc} to see the reused
+ * summary allocate nothing per batch once its arrays have grown.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentSummaryBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int orderCount;
+
+    @Param({"5", "50"})
+    public int methodCount;
+
+    List<PaymentMethod> methods;
+    OrderTable table;
+    PaymentSummary reused;
+
+    @Setup(Level.Trial)
+    public void allocate() {
+        methods = SyntheticData.methods(methodCount, orderCount, SyntheticData.DEFAULT_SEED);
+        List<Order> orders = SyntheticData.orders(orderCount, methods, SyntheticData.DEFAULT_SEED);
+        table = OrderTable.of(orders, new MethodRegistry(methods));
+        reused = new PaymentSummary(methods);
+        PaymentProcessor.payByMethod(table, methods, reused);
+    }
+
+    @Benchmark
+    public PaymentSummary newSummary() {
+        PaymentSummary summary = new PaymentSummary(methods);
+        table.writeTo(summary);
+        return summary;
+    }
+
+    @Benchmark
+    public PaymentSummary resetSummary() {
+        reused.reset(methods);
+        table.writeTo(reused);
+        return reused;
+    }
+}
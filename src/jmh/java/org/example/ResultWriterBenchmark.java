@@ -0,0 +1,78 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing the detailed per-order results of one allocation to a file:
+ * {@link PaymentSummary#printOrderPayments} against {@link ResultWriter}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResultWriterBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int orderCount;
+
+    @Param({"JSONL", "CSV"})
+    public ResultWriter.Format format;
+
+    PaymentSummary summary;
+    Path outputFile;
+
+    @Setup(Level.Trial)
+    public void allocate() throws IOException {
+        List<PaymentMethod> methods = SyntheticData.methods(5, orderCount, SyntheticData.DEFAULT_SEED);
+        List<Order> orders = SyntheticData.orders(orderCount, methods, SyntheticData.DEFAULT_SEED);
+        summary = new PaymentSummary(methods);
+        new GreedyAllocationStrategy().allocate(orders, methods, summary);
+        outputFile = Files.createTempFile("results-" + orderCount + "-", ".out");
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public void printOrderPayments() throws IOException {
+        PrintStream out = System.out;
+        try (PrintStream file = new PrintStream(Files.newOutputStream(outputFile))) {
+            System.setOut(file);
+            summary.printOrderPayments();
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    @Benchmark
+    public void writerSorted() throws IOException {
+        write(true);
+    }
+
+    @Benchmark
+    public void writerInsertionOrder() throws IOException {
+        write(false);
+    }
+
+    private void write(boolean sorted) throws IOException {
+        try (ResultWriter writer = new ResultWriter(FileChannel.open(outputFile, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING), format)) {
+            writer.writeTotals(summary);
+            writer.writeOrders(summary, sorted);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.example.jsonClasses.Scenario;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocating the same orders under several limit scenarios: a cold columnar
+ * run per scenario (table built, sorted and indexed each time) against one
+ * {@link ScenarioBatch} sharing the table across all scenarios.
+ * Each scenario scales the limit of one method.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ScenarioBatchBenchmark {
+    @Param({"100000", "1000000"})
+    public int orderCount;
+
+    @Param({"50"})
+    public int methodCount;
+
+    @Param({"8", "32"})
+    public int scenarioCount;
+
+    List<PaymentMethod> methods;
+    List<Order> orders;
+    List<Scenario> scenarios;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        methods = SyntheticData.methods(methodCount, orderCount, SyntheticData.DEFAULT_SEED);
+        orders = SyntheticData.orders(orderCount, methods, SyntheticData.DEFAULT_SEED);
+        scenarios = new ArrayList<>();
+        for (int i = 0; i < scenarioCount; i++) {
+            PaymentMethod pm = methods.get(i % methods.size());
+            long limit = pm.getLimit() * (5 + i % 10) / 10;
+            scenarios.add(new Scenario(pm.getId() + " " + i, Map.of(pm.getId(), Money.format(limit))));
+        }
+    }
+
+    @Benchmark
+    public long coldRuns() {
+        long paidOrders = 0;
+        for (Scenario scenario : scenarios) {
+            List<PaymentMethod> copies = new ArrayList<>();
+            for (PaymentMethod pm : methods) {
+                String limit = scenario.getLimits().get(pm.getId());
+                copies.add(new PaymentMethod(pm.getId(), pm.getDiscount(),
+                        limit != null ? Money.parse(limit) : pm.getLimit()));
+            }
+            PaymentSummary summary = new PaymentSummary(copies);
+            PaymentProcessor.payByMethod(OrderTable.of(orders, new MethodRegistry(copies)), copies, summary);
+            paidOrders += summary.getOrderCount();
+        }
+        return paidOrders;
+    }
+
+    @Benchmark
+    public ScenarioBatch.Comparison batch() {
+        return new ScenarioBatch(OrderTable.of(orders, new MethodRegistry(methods)), methods)
+                .run(scenarios, ForkJoinPool.commonPool());
+    }
+}
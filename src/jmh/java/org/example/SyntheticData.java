@@ -0,0 +1,111 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Seeded generator of orders and payment methods following the input schema:
+ * a PUNKTY method plus bank methods, and orders with either no promotions
+ * or one to three bank promotions.
+ */
+public final class SyntheticData {
+    public static final long DEFAULT_SEED = 42L;
+
+    private SyntheticData() {}
+
+    /**
+     * Generates payment methods. The first one is always PUNKTY.
+     *
+     * @param methodCount the number of methods, including PUNKTY
+     * @param orderCount  the number of orders the limits are scaled for
+     * @param seed        the random seed
+     * @return the list of payment methods
+     */
+    public static List<PaymentMethod> methods(int methodCount, int orderCount, long seed) {
+        Random random = new Random(seed);
+        // average order value is about 250.00, spread the total over the methods with some slack
+        long perMethod = orderCount * 25_000L / methodCount;
+        List<PaymentMethod> methods = new ArrayList<>(methodCount);
+        methods.add(new PaymentMethod("PUNKTY", 15, perMethod / 2));
+        for (int i = 1; i < methodCount; i++) {
+            int discount = random.nextInt(21);
+            long limit = (long) (perMethod * (0.2 + random.nextDouble()));
+            methods.add(new PaymentMethod("Bank" + i, discount, limit));
+        }
+        return methods;
+    }
+
+    /**
+     * Generates orders whose promotions refer to the bank methods.
+     *
+     * @param orderCount the number of orders
+     * @param methods    the payment methods the promotions refer to
+     * @param seed       the random seed
+     * @return the list of orders
+     */
+    public static List<Order> orders(int orderCount, List<PaymentMethod> methods, long seed) {
+        Random random = new Random(seed ^ 0x5DEECE66DL);
+        List<String> banks = banks(methods);
+        List<Order> orders = new ArrayList<>(orderCount);
+        for (int i = 0; i < orderCount; i++) {
+            orders.add(order(i, banks, random));
+        }
+        return orders;
+    }
+
+    /**
+     * Writes the same orders as {@link #orders} straight to a JSON file,
+     * without holding them in memory.
+     *
+     * @param file       the file to write
+     * @param orderCount the number of orders
+     * @param methods    the payment methods the promotions refer to
+     * @param seed       the random seed
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeOrders(Path file, int orderCount, List<PaymentMethod> methods, long seed) throws IOException {
+        Random random = new Random(seed ^ 0x5DEECE66DL);
+        List<String> banks = banks(methods);
+        Gson gson = new Gson();
+        try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            writer.beginArray();
+            for (int i = 0; i < orderCount; i++) {
+                gson.toJson(order(i, banks, random), Order.class, writer);
+            }
+            writer.endArray();
+        }
+    }
+
+    private static List<String> banks(List<PaymentMethod> methods) {
+        List<String> banks = new ArrayList<>();
+        for (PaymentMethod pm : methods) {
+            if (!"PUNKTY".equals(pm.getId())) {
+                banks.add(pm.getId());
+            }
+        }
+        return banks;
+    }
+
+    private static Order order(int i, List<String> banks, Random random) {
+        // between 1.00 and 500.00, in grosze
+        long value = 100 + random.nextInt(49_901);
+        String[] promotions = null;
+        if (!banks.isEmpty() && random.nextInt(10) >= 3) {
+            int count = Math.min(banks.size(), 1 + random.nextInt(3));
+            Set<String> picked = new LinkedHashSet<>();
+            while (picked.size() < count) {
+                picked.add(banks.get(random.nextInt(banks.size())));
+            }
+            promotions = picked.toArray(new String[0]);
+        }
+        return new Order("ORDER" + (i + 1), value, promotions);
+    }
+}
@@ -0,0 +1,264 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-running allocation service on the JDK's built-in HTTP server.
+ * Each request runs on its own virtual thread with its own registry and
+ * payment summary; a semaphore caps how many allocations run at once.
+ *
+ * <pre>
+ * POST /allocate
+ * {"orders": [...], "paymentMethods": [...]}
+ * </pre>
+ * answers with the paid amount per method and the entries per order.
+ */
+public class AllocationServer {
+    private static final int MAX_BODY_BYTES = 64 * 1024 * 1024;
+
+    private static final Gson GSON = new Gson();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final long queueTimeoutMillis;
+    private final ResultCache cache;
+
+    /**
+     * Request body: the same lists as orders.json and paymentmethods.json.
+     */
+    static class AllocationRequest {
+        List<Order> orders;
+        List<PaymentMethod> paymentMethods;
+    }
+
+    /**
+     * Constructor for the AllocationServer class.
+     *
+     * @param port               the port to listen on, 0 for any free port
+     * @param maxConcurrent      the number of allocations allowed to run at once
+     * @param queueTimeoutMillis how long a request waits for a slot before getting 503
+     * @throws IOException if the port cannot be bound
+     */
+    public AllocationServer(int port, int maxConcurrent, long queueTimeoutMillis) throws IOException {
+        this(port, maxConcurrent, queueTimeoutMillis, null);
+    }
+
+    /**
+     * Constructor for a server that answers repeated requests from a result cache.
+     *
+     * @param port               the port to listen on, 0 for any free port
+     * @param maxConcurrent      the number of allocations allowed to run at once
+     * @param queueTimeoutMillis how long a request waits for a slot before getting 503
+     * @param cache              the result cache, or null for none
+     * @throws IOException if the port cannot be bound
+     */
+    public AllocationServer(int port, int maxConcurrent, long queueTimeoutMillis, ResultCache cache)
+            throws IOException {
+        this.cache = cache;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.permits = new Semaphore(maxConcurrent);
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        server.setExecutor(executor);
+        server.createContext("/allocate", this::handleAllocate);
+        server.createContext("/health", exchange -> respond(exchange, 200, "{\"status\":\"ok\"}"));
+        server.createContext("/metrics", exchange -> respond(exchange, 200, PaymentMetrics.toJson()));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and waits up to the given delay for running ones.
+     *
+     * @param delaySeconds the longest time to wait for running requests
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    private void handleAllocate(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, error("use POST"));
+                return;
+            }
+            // read the whole body first, so a slow client does not hold a permit
+            Reader body;
+            try {
+                body = readBody(exchange);
+            } catch (BodyTooLargeException e) {
+                respond(exchange, 413, error(e.getMessage()));
+                return;
+            }
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                respond(exchange, 503, error("interrupted"));
+                return;
+            }
+            if (!acquired) {
+                respond(exchange, 503, error("too many concurrent requests"));
+                return;
+            }
+            try {
+                respond(exchange, 200, allocate(body, cache));
+            } catch (JsonParseException | InvalidInputException e) {
+                respond(exchange, 400, error(e.getMessage()));
+            } catch (RuntimeException e) {
+                respond(exchange, 500, error("allocation failed: " + e));
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Runs one allocation on fresh, request-local state.
+     * Also used by the worker processes of {@link ShardCoordinator}.
+     *
+     * @param body the request body
+     * @return the response body
+     */
+    static String allocate(Reader body) throws IOException {
+        return allocate(body, null);
+    }
+
+    /**
+     * Runs one allocation on fresh, request-local state, or answers it from a result cache.
+     *
+     * @param body  the request body
+     * @param cache the result cache, or null for none
+     * @return the response body
+     * @throws InvalidInputException if the request cannot be allocated as given
+     */
+    static String allocate(Reader body, ResultCache cache) throws IOException {
+        AllocationRequest request = GSON.fromJson(body, AllocationRequest.class);
+        if (request == null || request.orders == null || request.paymentMethods == null) {
+            throw new InvalidInputException("body must contain orders and paymentMethods");
+        }
+        List<Order> orders = new ArrayList<>(request.orders);
+        List<PaymentMethod> methods = new ArrayList<>(request.paymentMethods);
+        validate(orders, methods);
+        MethodRegistry registry = new MethodRegistry(methods);
+        Set<String> unknownPromotions = registry.bind(orders);
+        PaymentSummary summary = new PaymentSummary(methods);
+        AllocationStrategy strategy = new GreedyAllocationStrategy();
+        if (cache != null) {
+            strategy = new CachingAllocationStrategy(strategy, cache);
+        }
+        strategy.allocate(orders, methods, summary);
+        return toJson(summary, unknownPromotions);
+    }
+
+    /**
+     * Rejects requests the allocation cannot run on, before it starts.
+     *
+     * Duplicate method IDs are rejected by the {@link MethodRegistry}.
+     *
+     * @throws InvalidInputException naming the first problem found
+     */
+    private static void validate(List<Order> orders, List<PaymentMethod> methods) {
+        if (methods.isEmpty()) {
+            throw new InvalidInputException("paymentMethods must not be empty");
+        }
+        boolean punkty = false;
+        for (PaymentMethod pm : methods) {
+            if (pm == null || pm.getId() == null) {
+                throw new InvalidInputException("every payment method needs an id");
+            }
+            punkty |= MethodRegistry.PUNKTY.equals(pm.getId());
+        }
+        if (!punkty) {
+            throw new InvalidInputException("paymentMethods must contain " + MethodRegistry.PUNKTY);
+        }
+        for (Order o : orders) {
+            if (o == null || o.getId() == null) {
+                throw new InvalidInputException("every order needs an id");
+            }
+        }
+    }
+
+    private static String toJson(PaymentSummary summary, Set<String> unknownPromotions) throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonWriter json = new JsonWriter(out)) {
+            json.beginObject();
+            json.name("paid").beginObject();
+            for (Map.Entry<String, Long> e : summary.getPaidByMethod().entrySet()) {
+                json.name(e.getKey()).value(Money.format(e.getValue()));
+            }
+            json.endObject();
+            json.name("orders").beginObject();
+            for (Map.Entry<String, List<PaymentSummary.PaymentEntry>> e : summary.getPaymentsByOrder().entrySet()) {
+                json.name(e.getKey()).beginArray();
+                for (PaymentSummary.PaymentEntry entry : e.getValue()) {
+                    json.beginObject()
+                            .name("method").value(entry.getMethodId())
+                            .name("amount").value(Money.format(entry.getAmount()))
+                            .endObject();
+                }
+                json.endArray();
+            }
+            json.endObject();
+            json.name("unknownPromotions").beginArray();
+            for (String promo : unknownPromotions) {
+                json.value(promo);
+            }
+            json.endArray();
+            json.endObject();
+        }
+        return out.toString();
+    }
+
+    private static Reader readBody(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            throw new BodyTooLargeException("body larger than " + MAX_BODY_BYTES + " bytes");
+        }
+        return new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8);
+    }
+
+    private String error(String message) {
+        return GSON.toJson(Map.of("error", String.valueOf(message)));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private static class BodyTooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        BodyTooLargeException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+
+import java.util.*;
+
+/**
+ * Keeps an allocation up to date while orders and limits change during the day.
+ * Orders are held in an {@link OrderTable} sorted by value, with an
+ * {@link EligibilityIndex} over it; the eligible methods of an order are resolved
+ * once, when it arrives. Changes are collected until the next {@link #getSummary},
+ * which merges the arrived orders into the table and drops the removed ones in one
+ * pass, renumbering the index lists instead of rebuilding them.
+ * <p>
+ * The allocation is then repaired from the first changed row: the first phase keeps
+ * its decisions on the rows before it and on the methods walked before any method
+ * whose limit changed (see {@link OrderTableEngine#run(OrderTableEngine.FirstPhase, int, BitSet)}).
+ * The later phases share the points across all orders, so they run again over the
+ * whole table. Only the orders whose payments changed are written to the summary.
+ * <p>
+ * The result is the same as {@link PaymentProcessor#payByMethod} over all current
+ * orders in arrival order. The session works on its own copies of the methods,
+ * so the caller's lists and methods are not modified.
+ */
+public class AllocationSession {
+    private final List<PaymentMethod> methods;
+    private final MethodRegistry registry;
+    private final OrderTable table;
+    private final EligibilityIndex index;
+    private final OrderTableEngine.FirstPhase firstPhase;
+    private final PaymentSummary summary;
+    // value of every current order, to find its row again
+    private final Map<String, Long> valueById = new HashMap<>();
+    private final Set<String> unknownPromotions = new LinkedHashSet<>();
+    private final int words;
+
+    // changes since the last getSummary
+    private final Map<String, Arrival> arrivals = new LinkedHashMap<>();
+    private final BitSet removedRows = new BitSet();
+    private final BitSet changedLimits = new BitSet();
+    private boolean dirty;
+
+    // the payment last written to the summary, per row
+    private int[] writtenMethod = new int[0];
+    private long[] writtenAmount = new long[0];
+    private long[] writtenPoints = new long[0];
+    private boolean[] writtenSplit = new boolean[0];
+
+    /**
+     * Constructor that starts a session without orders.
+     *
+     * @param methods the list of payment methods
+     */
+    public AllocationSession(List<PaymentMethod> methods) {
+        this.methods = MethodRegistry.copyOf(methods);
+        this.registry = new MethodRegistry(this.methods);
+        this.table = new OrderTable.Builder(registry, 16).build();
+        this.index = EligibilityIndex.of(table);
+        this.firstPhase = new OrderTableEngine.FirstPhase(registry.size());
+        this.summary = new PaymentSummary(this.methods);
+        this.words = OrderTable.wordsFor(registry.size());
+    }
+
+    /**
+     * Adds orders to the session, after the orders already there.
+     *
+     * @param orders the orders to add
+     */
+    public void addOrders(Collection<Order> orders) {
+        for (Order order : orders) {
+            if (valueById.containsKey(order.getId())) {
+                throw new IllegalStateException("Duplicate order: " + order.getId());
+            }
+            long[] mask = Arrays.copyOf(registry.eligibleMethods(order, unknownPromotions).toLongArray(), words);
+            arrivals.put(order.getId(), new Arrival(order.getId(), order.getValue(), mask));
+            valueById.put(order.getId(), order.getValue());
+            dirty = true;
+        }
+    }
+
+    /**
+     * Removes an order from the session and releases its payments.
+     *
+     * @param orderId the ID of the order
+     * @return true if the order was in the session
+     */
+    public boolean removeOrder(String orderId) {
+        Long value = valueById.remove(orderId);
+        if (value == null) {
+            return false;
+        }
+        if (arrivals.remove(orderId) == null) {
+            removedRows.set(table.findRow(orderId, value));
+            summary.removePaymentEntries(orderId);
+        }
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * Changes the limit of a payment method.
+     *
+     * @param methodId the ID of the payment method
+     * @param limit    the new limit in grosze
+     */
+    public void updateLimit(String methodId, long limit) {
+        int index = registry.indexOf(methodId);
+        if (index < 0) {
+            throw new IllegalStateException("Payment method not found: " + methodId);
+        }
+        PaymentMethod pm = registry.get(index);
+        if (pm.getLimit() == limit) {
+            return;
+        }
+        pm.setLimit(limit);
+        summary.setInitialLimit(methodId, limit);
+        changedLimits.set(index);
+        dirty = true;
+    }
+
+    /**
+     * Returns the summary of the current allocation, repairing it first if anything
+     * changed since the last call.
+     *
+     * @return the payment summary
+     */
+    public PaymentSummary getSummary() {
+        if (dirty) {
+            int firstRow = mergeChanges();
+            new OrderTableEngine(table, methods, index).run(firstPhase, firstRow, changedLimits);
+            changedLimits.clear();
+            writeChanges();
+            dirty = false;
+        }
+        return summary;
+    }
+
+    /**
+     * Merges the arrived orders into the table and drops the removed ones.
+     *
+     * @return the first row that was added, removed or moved, or the table size if none was
+     */
+    private int mergeChanges() {
+        int oldSize = table.size();
+        if (arrivals.isEmpty() && removedRows.isEmpty()) {
+            return oldSize;
+        }
+        // stable, so equal values keep their arrival order
+        List<Arrival> sorted = new ArrayList<>(arrivals.values());
+        sorted.sort(Comparator.comparingLong((Arrival a) -> a.value));
+        int count = sorted.size();
+        String[] ids = new String[count];
+        long[] values = new long[count];
+        long[] masks = new long[count * words];
+        for (int i = 0; i < count; i++) {
+            Arrival arrival = sorted.get(i);
+            ids[i] = arrival.id;
+            values[i] = arrival.value;
+            System.arraycopy(arrival.mask, 0, masks, i * words, words);
+        }
+        int[] rowOf = new int[oldSize];
+        int[] newRows = new int[count];
+        table.merge(removedRows, ids, values, masks, count, rowOf, newRows);
+        index.update(table, rowOf, newRows, count);
+
+        int[] method = new int[table.size()];
+        long[] amount = new long[table.size()];
+        long[] points = new long[table.size()];
+        boolean[] split = new boolean[table.size()];
+        Arrays.fill(method, -1);
+        for (int old = 0; old < oldSize; old++) {
+            int row = rowOf[old];
+            if (row < 0) continue;
+            method[row] = writtenMethod[old];
+            amount[row] = writtenAmount[old];
+            points[row] = writtenPoints[old];
+            split[row] = writtenSplit[old];
+        }
+        writtenMethod = method;
+        writtenAmount = amount;
+        writtenPoints = points;
+        writtenSplit = split;
+
+        int firstRow = removedRows.isEmpty() ? oldSize : removedRows.nextSetBit(0);
+        if (count > 0) {
+            firstRow = Math.min(firstRow, newRows[0]);
+        }
+        arrivals.clear();
+        removedRows.clear();
+        return firstRow;
+    }
+
+    /**
+     * Writes the rows whose payment differs from the one last written.
+     */
+    private void writeChanges() {
+        for (int row = 0; row < table.size(); row++) {
+            int method = table.getAssignedMethod(row);
+            long amount = table.getAssignedAmount(row);
+            long points = table.getPointsAmount(row);
+            boolean split = table.isSplit(row);
+            if (writtenMethod[row] == method && writtenAmount[row] == amount
+                    && writtenPoints[row] == points && writtenSplit[row] == split) {
+                continue;
+            }
+            table.writeRowTo(row, summary);
+            writtenMethod[row] = method;
+            writtenAmount[row] = amount;
+            writtenPoints[row] = points;
+            writtenSplit[row] = split;
+        }
+    }
+
+    public int size() {
+        return valueById.size();
+    }
+
+    /**
+     * Returns the promotion IDs of added orders that match no payment method.
+     *
+     * @return the unknown promotion IDs
+     */
+    public Set<String> getUnknownPromotions() {
+        return Collections.unmodifiableSet(unknownPromotions);
+    }
+
+    /**
+     * An order added since the last getSummary, with its eligibility words.
+     */
+    private static class Arrival {
+        final String id;
+        final long value;
+        final long[] mask;
+
+        Arrival(String id, long value, long[] mask) {
+            this.id = id;
+            this.value = value;
+            this.mask = mask;
+        }
+    }
+}
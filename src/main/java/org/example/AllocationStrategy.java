@@ -0,0 +1,32 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+
+import java.util.List;
+
+/**
+ * Decides how the orders are paid with the available payment methods.
+ */
+public interface AllocationStrategy {
+
+    /**
+     * Pays the given orders and writes the payments into the summary.
+     *
+     * @param orders  the list of orders to be paid
+     * @param methods the list of available payment methods
+     * @param summary the payment summary
+     */
+    void allocate(List<Order> orders, List<PaymentMethod> methods, PaymentSummary summary);
+
+    /**
+     * Describes the strategy and every parameter that can change its result, so
+     * that a {@link ResultCache} keeps the results of differently set up
+     * strategies apart.
+     *
+     * @return the class name, followed by the parameters if there are any
+     */
+    default String cacheKey() {
+        return getClass().getName();
+    }
+}
@@ -0,0 +1,442 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Binary columnar snapshot of a parsed orders or payment methods file, stored
+ * next to the JSON file as {@code <name>.snap}.
+ * <p>
+ * Layout: a header (magic, format version, kind, size and modification time of
+ * the JSON file it was written from, record count), a string dictionary
+ * (offsets followed by UTF-8 bytes) holding ids and promotion names, then one
+ * column per field. Amounts are stored as long grosze; strings are dictionary
+ * references, -1 for null. For orders the columns are id, value and promotion count
+ * (-1 for no promotions array), followed by the promotion references;
+ * for payment methods they are id, discount and limit.
+ * <p>
+ * A snapshot is fresh while the JSON file keeps the size and modification time
+ * recorded in its header. Snapshots are written through a small buffer and read
+ * through mappings of at most 1 GB each, so they may be larger than 2 GB; only
+ * the string dictionary must stay below that.
+ */
+public final class BinarySnapshot {
+    private static final int MAGIC = 0x50534E50; // "PSNP"
+    private static final short VERSION = 1;
+    private static final byte KIND_ORDERS = 1;
+    private static final byte KIND_METHODS = 2;
+    private static final int HEADER_BYTES = 4 + 2 + 1 + 1 + 8 + 8 + 4 + 4;
+    private static final int SEGMENT_BYTES = 1 << 30;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private BinarySnapshot() {}
+
+    /**
+     * Returns where the snapshot of a JSON file lives.
+     *
+     * @param json the JSON file
+     * @return the snapshot path
+     */
+    public static Path pathFor(Path json) {
+        return json.resolveSibling(json.getFileName() + ".snap");
+    }
+
+    /**
+     * Checks if a snapshot of the orders file exists and matches it.
+     *
+     * @param json the orders JSON file
+     * @return true if the snapshot can be loaded instead of the JSON
+     */
+    public static boolean hasFreshOrders(Path json) {
+        return isFresh(json, KIND_ORDERS);
+    }
+
+    /**
+     * Checks if a snapshot of the payment methods file exists and matches it.
+     *
+     * @param json the payment methods JSON file
+     * @return true if the snapshot can be loaded instead of the JSON
+     */
+    public static boolean hasFreshMethods(Path json) {
+        return isFresh(json, KIND_METHODS);
+    }
+
+    private static boolean isFresh(Path json, byte kind) {
+        Path snapshot = pathFor(json);
+        if (!Files.isRegularFile(snapshot) || !Files.isRegularFile(json)) {
+            return false;
+        }
+        try (FileChannel ch = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_BYTES) {
+                return false;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && ch.read(header) >= 0) {
+                // keep reading until the header is complete
+            }
+            header.flip();
+            return header.getInt() == MAGIC
+                    && header.getShort() == VERSION
+                    && header.get() == kind
+                    && header.get() == 0
+                    && header.getLong() == Files.size(json)
+                    && header.getLong() == Files.getLastModifiedTime(json).toMillis();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the snapshot of a parsed orders file.
+     *
+     * @param json   the orders JSON file the orders were parsed from
+     * @param orders the parsed orders
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void writeOrders(Path json, List<Order> orders) throws IOException {
+        Dictionary dict = new Dictionary();
+        for (Order o : orders) {
+            dict.add(o.getId());
+            if (o.getPromotions() != null) {
+                for (String promo : o.getPromotions()) {
+                    dict.add(promo);
+                }
+            }
+        }
+        try (ColumnWriter out = new ColumnWriter(json)) {
+            writeHeader(out, json, KIND_ORDERS, orders.size(), dict.size());
+            dict.writeTo(out);
+            for (Order o : orders) {
+                out.putInt(dict.ref(o.getId()));
+            }
+            for (Order o : orders) {
+                out.putLong(o.getValue());
+            }
+            for (Order o : orders) {
+                out.putInt(o.getPromotions() == null ? -1 : o.getPromotions().length);
+            }
+            for (Order o : orders) {
+                if (o.getPromotions() == null) continue;
+                for (String promo : o.getPromotions()) {
+                    out.putInt(dict.ref(promo));
+                }
+            }
+            out.commit();
+        }
+    }
+
+    /**
+     * Writes the snapshot of a parsed payment methods file.
+     *
+     * @param json    the payment methods JSON file the methods were parsed from
+     * @param methods the parsed payment methods
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void writeMethods(Path json, List<PaymentMethod> methods) throws IOException {
+        Dictionary dict = new Dictionary();
+        for (PaymentMethod pm : methods) {
+            dict.add(pm.getId());
+        }
+        try (ColumnWriter out = new ColumnWriter(json)) {
+            writeHeader(out, json, KIND_METHODS, methods.size(), dict.size());
+            dict.writeTo(out);
+            for (PaymentMethod pm : methods) {
+                out.putInt(dict.ref(pm.getId()));
+            }
+            for (PaymentMethod pm : methods) {
+                out.putInt(pm.getDiscount());
+            }
+            for (PaymentMethod pm : methods) {
+                out.putLong(pm.getLimit());
+            }
+            out.commit();
+        }
+    }
+
+    /**
+     * Loads the orders from the snapshot of an orders file.
+     *
+     * @param json the orders JSON file
+     * @return the orders, in file order
+     * @throws IOException if the snapshot cannot be read
+     */
+    public static List<Order> readOrders(Path json) throws IOException {
+        return readOrders(json, SEGMENT_BYTES);
+    }
+
+    /**
+     * Loads the orders through mappings of the given size.
+     */
+    static List<Order> readOrders(Path json, int segmentBytes) throws IOException {
+        PaymentMetrics.PhaseTimer timer = PaymentMetrics.start(PaymentMetrics.Phase.PARSE);
+        MappedFile file = map(json, KIND_ORDERS, segmentBytes);
+        int n = file.getInt(HEADER_BYTES - 8);
+        String[] dict = readDictionary(file);
+
+        long idsAt = file.position;
+        long valuesAt = idsAt + 4L * n;
+        long countsAt = valuesAt + 8L * n;
+        long refsAt = countsAt + 4L * n;
+        List<Order> orders = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int count = file.getInt(countsAt + 4L * i);
+            String[] promotions = null;
+            if (count >= 0) {
+                promotions = new String[count];
+                for (int k = 0; k < count; k++) {
+                    promotions[k] = lookup(dict, file.getInt(refsAt));
+                    refsAt += 4;
+                }
+            }
+            orders.add(new Order(lookup(dict, file.getInt(idsAt + 4L * i)), file.getLong(valuesAt + 8L * i), promotions));
+        }
+        timer.count(PaymentMetrics.Counter.ORDERS_TOUCHED, n);
+        timer.stop();
+        return orders;
+    }
+
+    /**
+     * Loads the payment methods from the snapshot of a payment methods file.
+     *
+     * @param json the payment methods JSON file
+     * @return the payment methods, in file order
+     * @throws IOException if the snapshot cannot be read
+     */
+    public static List<PaymentMethod> readMethods(Path json) throws IOException {
+        PaymentMetrics.PhaseTimer timer = PaymentMetrics.start(PaymentMetrics.Phase.PARSE);
+        MappedFile file = map(json, KIND_METHODS, SEGMENT_BYTES);
+        int n = file.getInt(HEADER_BYTES - 8);
+        String[] dict = readDictionary(file);
+
+        long idsAt = file.position;
+        long discountsAt = idsAt + 4L * n;
+        long limitsAt = discountsAt + 4L * n;
+        List<PaymentMethod> methods = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            methods.add(new PaymentMethod(
+                    lookup(dict, file.getInt(idsAt + 4L * i)),
+                    file.getInt(discountsAt + 4L * i),
+                    file.getLong(limitsAt + 8L * i)));
+        }
+        timer.count(PaymentMetrics.Counter.ORDERS_TOUCHED, n);
+        timer.stop();
+        return methods;
+    }
+
+    private static String lookup(String[] dict, int ref) {
+        return ref < 0 ? null : dict[ref];
+    }
+
+    private static void writeHeader(ColumnWriter out, Path json, byte kind, int count, int dictSize) throws IOException {
+        out.putInt(MAGIC);
+        out.putShort(VERSION);
+        out.put(kind);
+        out.put((byte) 0);
+        out.putLong(Files.size(json));
+        out.putLong(Files.getLastModifiedTime(json).toMillis());
+        out.putInt(count);
+        out.putInt(dictSize);
+    }
+
+    private static MappedFile map(Path json, byte kind, int segmentBytes) throws IOException {
+        if (!isFresh(json, kind)) {
+            throw new IllegalStateException("No fresh snapshot for " + json);
+        }
+        try (FileChannel ch = FileChannel.open(pathFor(json), StandardOpenOption.READ)) {
+            MappedFile file = new MappedFile(ch, segmentBytes);
+            file.position = HEADER_BYTES;
+            return file;
+        }
+    }
+
+    /**
+     * Reads the dictionary at the file position and leaves the position after it.
+     */
+    private static String[] readDictionary(MappedFile file) {
+        int size = file.getInt(HEADER_BYTES - 4);
+        long offsetsAt = file.position;
+        long bytesAt = offsetsAt + 4L * (size + 1);
+        byte[] bytes = new byte[file.getInt(offsetsAt + 4L * size)];
+        file.get(bytesAt, bytes);
+        String[] dict = new String[size];
+        for (int i = 0; i < size; i++) {
+            int from = file.getInt(offsetsAt + 4L * i);
+            int to = file.getInt(offsetsAt + 4L * (i + 1));
+            dict[i] = new String(bytes, from, to - from, StandardCharsets.UTF_8);
+        }
+        file.position = bytesAt + bytes.length;
+        return dict;
+    }
+
+    /**
+     * Writes a snapshot through a fixed buffer to a temporary file, and on
+     * {@link #commit} moves it into place, so a reader never sees a partly
+     * written snapshot. Closing without a commit deletes the temporary file.
+     */
+    private static final class ColumnWriter implements AutoCloseable {
+        private final Path snapshot;
+        private final Path tmp;
+        private final FileChannel ch;
+        private final ByteBuffer buf = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+        private boolean committed;
+
+        ColumnWriter(Path json) throws IOException {
+            this.snapshot = pathFor(json);
+            this.tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+            this.ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        }
+
+        void put(byte b) throws IOException {
+            ensure(1);
+            buf.put(b);
+        }
+
+        void putShort(short v) throws IOException {
+            ensure(2);
+            buf.putShort(v);
+        }
+
+        void putInt(int v) throws IOException {
+            ensure(4);
+            buf.putInt(v);
+        }
+
+        void putLong(long v) throws IOException {
+            ensure(8);
+            buf.putLong(v);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            int done = 0;
+            while (done < bytes.length) {
+                ensure(1);
+                int length = Math.min(bytes.length - done, buf.remaining());
+                buf.put(bytes, done, length);
+                done += length;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buf.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+            buf.clear();
+        }
+
+        void commit() throws IOException {
+            flush();
+            ch.close();
+            Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                ch.close();
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    /**
+     * A snapshot file mapped read-only in segments, addressed by long positions.
+     * Each mapping reaches 8 bytes into the next segment, so no number is split
+     * between two mappings.
+     */
+    private static final class MappedFile {
+        private final MappedByteBuffer[] segments;
+        private final int segmentBytes;
+        long position;
+
+        MappedFile(FileChannel ch, int segmentBytes) throws IOException {
+            long size = ch.size();
+            this.segmentBytes = segmentBytes;
+            this.segments = new MappedByteBuffer[(int) ((size + segmentBytes - 1) / segmentBytes)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i * segmentBytes;
+                segments[i] = ch.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentBytes + 8L, size - start));
+            }
+        }
+
+        int getInt(long at) {
+            return segments[(int) (at / segmentBytes)].getInt((int) (at % segmentBytes));
+        }
+
+        long getLong(long at) {
+            return segments[(int) (at / segmentBytes)].getLong((int) (at % segmentBytes));
+        }
+
+        void get(long at, byte[] dst) {
+            int done = 0;
+            while (done < dst.length) {
+                long from = at + done;
+                int offset = (int) (from % segmentBytes);
+                int length = Math.min(dst.length - done, segmentBytes - offset);
+                segments[(int) (from / segmentBytes)].get(offset, dst, done, length);
+                done += length;
+            }
+        }
+    }
+
+    /**
+     * Strings in first-seen order, each stored once.
+     */
+    private static class Dictionary {
+        private final Map<String, Integer> refs = new HashMap<>();
+        private final List<byte[]> encoded = new ArrayList<>();
+        private int totalBytes;
+
+        void add(String s) {
+            if (s != null && !refs.containsKey(s)) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                // the offsets are ints
+                if (totalBytes + bytes.length < 0) {
+                    throw new IllegalStateException("Snapshot dictionary larger than 2 GB");
+                }
+                refs.put(s, encoded.size());
+                encoded.add(bytes);
+                totalBytes += bytes.length;
+            }
+        }
+
+        int ref(String s) {
+            return s == null ? -1 : refs.get(s);
+        }
+
+        int size() {
+            return encoded.size();
+        }
+
+        void writeTo(ColumnWriter out) throws IOException {
+            int offset = 0;
+            for (byte[] bytes : encoded) {
+                out.putInt(offset);
+                offset += bytes.length;
+            }
+            out.putInt(offset);
+            for (byte[] bytes : encoded) {
+                out.put(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+
+import java.util.List;
+
+/**
+ * Serves repeated allocations of the same inputs from a {@link ResultCache}
+ * and runs the wrapped strategy only on a miss.
+ * On a hit the given lists are left as they are, while the wrapped strategy
+ * may reorder them. A summary that already has payments bypasses the cache.
+ */
+public class CachingAllocationStrategy implements AllocationStrategy {
+    private final AllocationStrategy delegate;
+    private final ResultCache cache;
+
+    /**
+     * Constructor for the CachingAllocationStrategy class.
+     *
+     * @param delegate the strategy that allocates on a miss
+     * @param cache    the result cache
+     */
+    public CachingAllocationStrategy(AllocationStrategy delegate, ResultCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public void allocate(List<Order> orders, List<PaymentMethod> methods, PaymentSummary summary) {
+        if (summary.getOrderCount() > 0) {
+            delegate.allocate(orders, methods, summary);
+            return;
+        }
+        // hashed before the delegate sorts the lists
+        String key = ResultCache.key(delegate.cacheKey(), orders, methods);
+        if (cache.load(key, summary)) {
+            return;
+        }
+        delegate.allocate(orders, methods, summary);
+        cache.store(key, methods, summary);
+    }
+
+    @Override
+    public String cacheKey() {
+        return delegate.cacheKey();
+    }
+}
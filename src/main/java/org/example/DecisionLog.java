@@ -0,0 +1,480 @@
+package org.example;
+
+import org.example.jsonClasses.PaymentMethod;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Append-only binary log of the decisions written into a {@link PaymentSummary}:
+ * every payment that is assigned, replaced or removed, with the phase that made it,
+ * the methods and limits a summary starts from, and snapshots of the remaining
+ * limits between phases. {@link DecisionLogReader} rebuilds the summary from it.
+ * <p>
+ * The summary hands each record to a ring buffer of preallocated slots and goes on;
+ * a background thread encodes the records and writes them out. The buffer is
+ * single-producer, single-consumer and lock-free: the summary publishes slots by
+ * moving a volatile head, the writer frees them by moving a volatile tail, and the
+ * summary only waits when the writer is a whole buffer behind. As the summary
+ * itself, a log must be fed from one thread at a time.
+ * <p>
+ * Records are compact: counts, method indexes and amounts are variable-length,
+ * and an order ID is written in full once, as UTF-8, then referred to by number.
+ */
+public class DecisionLog implements Closeable {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    static final int MAGIC = 0x50444C47; // "PDLG"
+    static final int VERSION = 1;
+
+    static final byte END = 0;
+    static final byte BEGIN = 1;
+    static final byte ASSIGN = 2;
+    static final byte REPLACE = 3;
+    static final byte REMOVE = 4;
+    static final byte LIMIT = 5;
+    static final byte SNAPSHOT = 6;
+
+    /**
+     * The decision point a payment was written from.
+     */
+    public enum Reason {
+        OTHER,
+        REORDER,
+        SPLIT,
+        FULL_PAY,
+        REBALANCE,
+        DISTRIBUTE,
+        FALLBACK
+    }
+
+    private static final Reason[] REASONS = Reason.values();
+
+    private final int mask;
+    // one record per slot
+    private final byte[] type;
+    private final byte[] reason;
+    private final String[] orderId;
+    private final byte[] count;
+    private final int[] method0;
+    private final long[] amount0;
+    private final int[] method1;
+    private final long[] amount1;
+    private final byte[] previousCount;
+    private final int[] previousMethod0;
+    private final long[] previousAmount0;
+    private final int[] previousMethod1;
+    private final long[] previousAmount1;
+    // method IDs, discounts and limits of BEGIN, remaining limits of SNAPSHOT
+    private final Object[] payload;
+
+    // next slot the summary publishes, written by the summary only
+    private volatile long head;
+    // next slot the writer reads, written by the writer only
+    private volatile long tail;
+    // the summary's last read of tail
+    private long cachedTail;
+    private volatile boolean closed;
+    // set by the writer while it is parked on an empty buffer, so publish wakes it
+    private volatile boolean writerParked;
+
+    // records are encoded into buf by the writer thread and written out when it fills
+    private final OutputStream out;
+    private final byte[] buf = new byte[64 * 1024];
+    private int pos;
+    private Thread writer;
+    private final Map<String, Integer> orderNumbers = new HashMap<>();
+    private volatile IOException failure;
+    // written by the writer thread only
+    private volatile long records;
+
+    /**
+     * Constructor for the DecisionLog class. The writer thread is started by {@link #open}.
+     */
+    private DecisionLog(OutputStream out, int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.type = new byte[size];
+        this.reason = new byte[size];
+        this.orderId = new String[size];
+        this.count = new byte[size];
+        this.method0 = new int[size];
+        this.amount0 = new long[size];
+        this.method1 = new int[size];
+        this.amount1 = new long[size];
+        this.previousCount = new byte[size];
+        this.previousMethod0 = new int[size];
+        this.previousAmount0 = new long[size];
+        this.previousMethod1 = new int[size];
+        this.previousAmount1 = new long[size];
+        this.payload = new Object[size];
+
+        this.out = out;
+        ByteBuffer.wrap(buf).putInt(MAGIC).put((byte) VERSION);
+        this.pos = 5;
+    }
+
+    /**
+     * Creates a log writing to a stream and starts its writer thread.
+     *
+     * @param out      the stream to write the log to, closed with the log
+     * @param capacity the number of records the buffer holds, rounded up to a power of two
+     * @return the decision log
+     */
+    public static DecisionLog open(OutputStream out, int capacity) {
+        DecisionLog log = new DecisionLog(out, capacity);
+        log.writer = new Thread(log::drain, "decision-log-writer");
+        log.writer.setDaemon(true);
+        log.writer.start();
+        return log;
+    }
+
+    /**
+     * Opens a log file, replacing an existing one.
+     *
+     * @param file the log file
+     * @return the decision log
+     * @throws IOException if the file cannot be created
+     */
+    public static DecisionLog open(Path file) throws IOException {
+        return open(Files.newOutputStream(file), DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Returns the number of records written so far.
+     *
+     * @return the record count
+     */
+    public long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Records the methods a summary starts from.
+     */
+    void begin(List<PaymentMethod> methods) {
+        int m = methods.size();
+        String[] ids = new String[m];
+        long[] values = new long[2 * m];
+        for (int i = 0; i < m; i++) {
+            PaymentMethod pm = methods.get(i);
+            ids[i] = pm.getId();
+            values[i] = pm.getDiscount();
+            values[m + i] = pm.getLimit();
+        }
+        int slot = claim();
+        type[slot] = BEGIN;
+        payload[slot] = new Object[]{ids, values};
+        publish();
+    }
+
+    /**
+     * Records the entries of an order, with the entries they replace.
+     * A previous count of -1 means the order had no slot before.
+     */
+    void put(Reason why, String order, int entries, int m0, long a0, int m1, long a1,
+             int previous, int pm0, long pa0, int pm1, long pa1) {
+        int slot = claim();
+        type[slot] = previous < 0 ? ASSIGN : REPLACE;
+        reason[slot] = (byte) why.ordinal();
+        orderId[slot] = order;
+        count[slot] = (byte) entries;
+        method0[slot] = m0;
+        amount0[slot] = a0;
+        method1[slot] = m1;
+        amount1[slot] = a1;
+        previousCount[slot] = (byte) Math.max(previous, 0);
+        previousMethod0[slot] = pm0;
+        previousAmount0[slot] = pa0;
+        previousMethod1[slot] = pm1;
+        previousAmount1[slot] = pa1;
+        publish();
+    }
+
+    /**
+     * Records that the entries of an order were removed.
+     */
+    void remove(Reason why, String order, int previous, int pm0, long pa0, int pm1, long pa1) {
+        int slot = claim();
+        type[slot] = REMOVE;
+        reason[slot] = (byte) why.ordinal();
+        orderId[slot] = order;
+        previousCount[slot] = (byte) previous;
+        previousMethod0[slot] = pm0;
+        previousAmount0[slot] = pa0;
+        previousMethod1[slot] = pm1;
+        previousAmount1[slot] = pa1;
+        publish();
+    }
+
+    /**
+     * Records a changed initial limit.
+     */
+    void limit(int method, long value) {
+        int slot = claim();
+        type[slot] = LIMIT;
+        method0[slot] = method;
+        amount0[slot] = value;
+        publish();
+    }
+
+    /**
+     * Records the remaining limit of every method.
+     */
+    void snapshot(Reason why, long[] remaining) {
+        int slot = claim();
+        type[slot] = SNAPSHOT;
+        reason[slot] = (byte) why.ordinal();
+        payload[slot] = remaining;
+        publish();
+    }
+
+    /**
+     * Waits for a free slot and returns it; the slot is published by {@link #publish}.
+     */
+    private int claim() {
+        if (closed) {
+            throw new IllegalStateException("decision log is closed");
+        }
+        long next = head;
+        if (next - cachedTail > mask) {
+            cachedTail = tail;
+            while (next - cachedTail > mask) {
+                LockSupport.unpark(writer);
+                Thread.yield();
+                cachedTail = tail;
+            }
+        }
+        return (int) next & mask;
+    }
+
+    private void publish() {
+        head = head + 1;
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Writes all published records, then the end marker, and closes the stream.
+     *
+     * @throws IOException if a record could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        LockSupport.unpark(writer);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * The writer thread: encodes published records until the log is closed.
+     * After a write error the records are still taken off the buffer, so the
+     * summary never waits for a writer that stopped. When the buffer stays empty
+     * the writer flushes and parks until the next record or close wakes it.
+     */
+    private void drain() {
+        int idle = 0;
+        while (true) {
+            long t = tail;
+            long h = head;
+            if (t < h) {
+                for (; t < h; t++) {
+                    int slot = (int) t & mask;
+                    if (failure == null) {
+                        try {
+                            write(slot);
+                        } catch (IOException e) {
+                            failure = e;
+                        }
+                    }
+                    orderId[slot] = null;
+                    payload[slot] = null;
+                }
+                tail = h;
+                idle = 0;
+            } else if (closed && head == t) {
+                break;
+            } else if (++idle < 100) {
+                Thread.onSpinWait();
+            } else {
+                flush();
+                writerParked = true;
+                // publish reads the flag after moving head, so a record published now is seen here
+                if (head == t && !closed) {
+                    LockSupport.park(this);
+                }
+                writerParked = false;
+                idle = 0;
+            }
+        }
+        try {
+            if (failure == null) {
+                ensure(1);
+                buf[pos++] = END;
+                out.write(buf, 0, pos);
+            }
+            out.close();
+        } catch (IOException e) {
+            if (failure == null) failure = e;
+        }
+    }
+
+    private void flush() {
+        if (failure != null || pos == 0) return;
+        try {
+            out.write(buf, 0, pos);
+            out.flush();
+            pos = 0;
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Writes out the buffer unless it has room for the given number of bytes.
+     */
+    private void ensure(int bytes) throws IOException {
+        if (pos + bytes > buf.length) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+    }
+
+    private void write(int slot) throws IOException {
+        byte recordType = type[slot];
+        writeByte(recordType);
+        switch (recordType) {
+            case BEGIN -> {
+                Object[] parts = (Object[]) payload[slot];
+                String[] ids = (String[]) parts[0];
+                long[] values = (long[]) parts[1];
+                writeVarLong(ids.length);
+                for (int i = 0; i < ids.length; i++) {
+                    writeString(ids[i]);
+                    writeVarLong(values[i]);
+                    writeVarLong(values[ids.length + i]);
+                }
+            }
+            case ASSIGN, REPLACE -> {
+                writeByte(reason[slot]);
+                writeOrder(orderId[slot]);
+                if (recordType == REPLACE) {
+                    writeEntries(previousCount[slot], previousMethod0[slot], previousAmount0[slot],
+                            previousMethod1[slot], previousAmount1[slot]);
+                }
+                writeEntries(count[slot], method0[slot], amount0[slot], method1[slot], amount1[slot]);
+            }
+            case REMOVE -> {
+                writeByte(reason[slot]);
+                writeOrder(orderId[slot]);
+                writeEntries(previousCount[slot], previousMethod0[slot], previousAmount0[slot],
+                        previousMethod1[slot], previousAmount1[slot]);
+            }
+            case LIMIT -> {
+                writeVarLong(method0[slot]);
+                writeVarLong(amount0[slot]);
+            }
+            case SNAPSHOT -> {
+                writeByte(reason[slot]);
+                long[] remaining = (long[]) payload[slot];
+                writeVarLong(remaining.length);
+                for (long value : remaining) {
+                    writeVarLong(value);
+                }
+            }
+            default -> throw new IllegalStateException("Unknown record type: " + recordType);
+        }
+        records++;
+    }
+
+    /**
+     * Writes the number of an order seen before, or 0 and the ID of a new one.
+     */
+    private void writeOrder(String id) throws IOException {
+        Integer number = orderNumbers.get(id);
+        if (number != null) {
+            writeVarLong(number);
+        } else {
+            writeVarLong(0);
+            writeString(id);
+            orderNumbers.put(id, orderNumbers.size() + 1);
+        }
+    }
+
+    private void writeEntries(int entries, int m0, long a0, int m1, long a1) throws IOException {
+        writeByte(entries);
+        if (entries > 0) {
+            writeVarLong(m0);
+            writeVarLong(a0);
+        }
+        if (entries > 1) {
+            writeVarLong(m1);
+            writeVarLong(a1);
+        }
+    }
+
+    /**
+     * Writes a long zigzag-encoded in groups of seven bits, low first.
+     */
+    private void writeVarLong(long value) throws IOException {
+        ensure(10);
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[pos++] = (byte) v;
+    }
+
+    private void writeByte(int value) throws IOException {
+        ensure(1);
+        buf[pos++] = (byte) value;
+    }
+
+    /**
+     * Writes a string as its UTF-8 length and bytes.
+     */
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        if (bytes.length > buf.length - pos) {
+            out.write(buf, 0, pos);
+            pos = 0;
+            if (bytes.length > buf.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buf, pos, bytes.length);
+        pos += bytes.length;
+    }
+
+    static Reason reason(int ordinal) {
+        if (ordinal < 0 || ordinal >= REASONS.length) {
+            throw new IllegalStateException("Unknown decision reason: " + ordinal);
+        }
+        return REASONS[ordinal];
+    }
+}
@@ -0,0 +1,307 @@
+package org.example;
+
+import org.example.jsonClasses.PaymentMethod;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a {@link DecisionLog}: replays it into the {@link PaymentSummary} it was
+ * written from, or traces the decisions made for one order.
+ * A log cut short, for example by a crash, is read up to its last complete record
+ * and reported as incomplete. Replaying checks every replaced entry and every
+ * limit snapshot against the rebuilt summary.
+ */
+public class DecisionLogReader {
+    private final Path file;
+    private boolean complete;
+
+    /**
+     * Receives the records of a log in the order they were written.
+     * Entries are null for an order that had no payment before.
+     */
+    public interface Listener {
+        default void begin(List<PaymentMethod> methods) {}
+
+        default void put(long record, DecisionLog.Reason reason, String orderId,
+                         List<PaymentSummary.PaymentEntry> previous,
+                         List<PaymentSummary.PaymentEntry> entries) {}
+
+        default void remove(long record, DecisionLog.Reason reason, String orderId,
+                            List<PaymentSummary.PaymentEntry> previous) {}
+
+        default void limit(long record, String methodId, long limit) {}
+
+        default void snapshot(long record, DecisionLog.Reason reason, long[] remaining) {}
+    }
+
+    /**
+     * Constructor for the DecisionLogReader class.
+     *
+     * @param file the log file
+     */
+    public DecisionLogReader(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Checks if the last read reached the end marker of the log.
+     *
+     * @return false if the log was cut short
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Rebuilds the summary the log was written from, as of its last record.
+     * When a summary was reset, the batch after the last reset is rebuilt.
+     *
+     * @return the payment summary
+     * @throws IOException           if the file cannot be read or is not a decision log
+     * @throws IllegalStateException if the log does not agree with itself
+     */
+    public PaymentSummary replay() throws IOException {
+        Replay replay = new Replay();
+        read(replay);
+        if (replay.summary == null) {
+            throw new IOException("No payment methods recorded in " + file);
+        }
+        return replay.summary;
+    }
+
+    /**
+     * Writes one line per decision made for an order: the record number, the decision
+     * point, the entries before and after, and the remaining limits it was made with.
+     *
+     * @param orderId the ID of the order
+     * @param out     where to write the lines
+     * @throws IOException if the file cannot be read or is not a decision log
+     */
+    public void trace(String orderId, Appendable out) throws IOException {
+        read(new Replay() {
+            @Override
+            public void put(long record, DecisionLog.Reason reason, String id,
+                            List<PaymentSummary.PaymentEntry> previous,
+                            List<PaymentSummary.PaymentEntry> entries) {
+                if (id.equals(orderId)) {
+                    line(record, reason, previous == null ? "assign" : "replace", previous, entries);
+                }
+                super.put(record, reason, id, previous, entries);
+            }
+
+            @Override
+            public void remove(long record, DecisionLog.Reason reason, String id,
+                               List<PaymentSummary.PaymentEntry> previous) {
+                if (id.equals(orderId)) {
+                    line(record, reason, "remove", previous, List.of());
+                }
+                super.remove(record, reason, id, previous);
+            }
+
+            private void line(long record, DecisionLog.Reason reason, String action,
+                              List<PaymentSummary.PaymentEntry> previous,
+                              List<PaymentSummary.PaymentEntry> entries) {
+                StringBuilder sb = new StringBuilder();
+                sb.append('#').append(record).append(' ').append(reason).append(' ').append(action).append(':');
+                if (previous != null) {
+                    appendEntries(sb, previous).append(" ->");
+                }
+                appendEntries(sb, entries).append("; limits left:");
+                for (String methodId : summary.getPaidByMethod().keySet()) {
+                    Money.appendTo(sb.append(' ').append(methodId).append('='), summary.getRemainingLimit(methodId));
+                }
+                try {
+                    out.append(sb).append(System.lineSeparator());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    private static StringBuilder appendEntries(StringBuilder sb, List<PaymentSummary.PaymentEntry> entries) {
+        if (entries.isEmpty()) {
+            return sb.append(" none");
+        }
+        for (PaymentSummary.PaymentEntry entry : entries) {
+            Money.appendTo(sb.append(' ').append(entry.getMethodId()).append('='), entry.getAmount());
+        }
+        return sb;
+    }
+
+    /**
+     * Reads the log and hands every record to a listener.
+     *
+     * @param listener the listener
+     * @throws IOException if the file cannot be read or is not a decision log
+     */
+    public void read(Listener listener) throws IOException {
+        complete = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            if (in.readInt() != DecisionLog.MAGIC) {
+                throw new IOException("Not a decision log: " + file);
+            }
+            int version = in.readUnsignedByte();
+            if (version != DecisionLog.VERSION) {
+                throw new IOException("Unsupported decision log version " + version + ": " + file);
+            }
+            List<String> orderIds = new ArrayList<>();
+            String[] methodIds = new String[0];
+            for (long record = 0; ; record++) {
+                byte type;
+                try {
+                    type = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                try {
+                    switch (type) {
+                        case DecisionLog.END -> {
+                            complete = true;
+                            return;
+                        }
+                        case DecisionLog.BEGIN -> {
+                            int m = (int) readVarLong(in);
+                            List<PaymentMethod> methods = new ArrayList<>(m);
+                            methodIds = new String[m];
+                            for (int i = 0; i < m; i++) {
+                                methodIds[i] = readString(in);
+                                int discount = (int) readVarLong(in);
+                                methods.add(new PaymentMethod(methodIds[i], discount, readVarLong(in)));
+                            }
+                            listener.begin(methods);
+                        }
+                        case DecisionLog.ASSIGN, DecisionLog.REPLACE -> {
+                            DecisionLog.Reason reason = DecisionLog.reason(in.readUnsignedByte());
+                            String orderId = readOrder(in, orderIds);
+                            List<PaymentSummary.PaymentEntry> previous = type == DecisionLog.REPLACE
+                                    ? readEntries(in, methodIds)
+                                    : null;
+                            listener.put(record, reason, orderId, previous, readEntries(in, methodIds));
+                        }
+                        case DecisionLog.REMOVE -> {
+                            DecisionLog.Reason reason = DecisionLog.reason(in.readUnsignedByte());
+                            String orderId = readOrder(in, orderIds);
+                            listener.remove(record, reason, orderId, readEntries(in, methodIds));
+                        }
+                        case DecisionLog.LIMIT -> {
+                            String methodId = methodIds[(int) readVarLong(in)];
+                            listener.limit(record, methodId, readVarLong(in));
+                        }
+                        case DecisionLog.SNAPSHOT -> {
+                            DecisionLog.Reason reason = DecisionLog.reason(in.readUnsignedByte());
+                            long[] remaining = new long[(int) readVarLong(in)];
+                            for (int i = 0; i < remaining.length; i++) {
+                                remaining[i] = readVarLong(in);
+                            }
+                            listener.snapshot(record, reason, remaining);
+                        }
+                        default -> throw new IOException("Unknown record type " + type + " in " + file);
+                    }
+                } catch (EOFException e) {
+                    // the last record was cut short
+                    return;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static String readOrder(DataInputStream in, List<String> orderIds) throws IOException {
+        int number = (int) readVarLong(in);
+        if (number == 0) {
+            String id = readString(in);
+            orderIds.add(id);
+            return id;
+        }
+        return orderIds.get(number - 1);
+    }
+
+    private static List<PaymentSummary.PaymentEntry> readEntries(DataInputStream in, String[] methodIds)
+            throws IOException {
+        int count = in.readUnsignedByte();
+        List<PaymentSummary.PaymentEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String methodId = methodIds[(int) readVarLong(in)];
+            entries.add(new PaymentSummary.PaymentEntry(methodId, readVarLong(in)));
+        }
+        return entries;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new IOException("Malformed number in decision log");
+    }
+
+    /**
+     * Applies the records to a summary, checking them against it.
+     */
+    private static class Replay implements Listener {
+        PaymentSummary summary;
+        private List<PaymentMethod> methods;
+
+        @Override
+        public void begin(List<PaymentMethod> methods) {
+            this.methods = methods;
+            if (summary == null) {
+                summary = new PaymentSummary(methods);
+            } else {
+                summary.reset(methods);
+            }
+        }
+
+        @Override
+        public void put(long record, DecisionLog.Reason reason, String orderId,
+                        List<PaymentSummary.PaymentEntry> previous,
+                        List<PaymentSummary.PaymentEntry> entries) {
+            if (previous != null && !previous.equals(summary.getPaymentsForOrder(orderId))) {
+                throw new IllegalStateException("Record " + record + " replaces payments that order " + orderId + " does not have");
+            }
+            summary.putPaymentEntries(orderId, entries);
+        }
+
+        @Override
+        public void remove(long record, DecisionLog.Reason reason, String orderId,
+                           List<PaymentSummary.PaymentEntry> previous) {
+            if (!previous.equals(summary.getPaymentsForOrder(orderId)) || !summary.removePaymentEntries(orderId)) {
+                throw new IllegalStateException("Record " + record + " removes payments that order " + orderId + " does not have");
+            }
+        }
+
+        @Override
+        public void limit(long record, String methodId, long limit) {
+            summary.setInitialLimit(methodId, limit);
+        }
+
+        @Override
+        public void snapshot(long record, DecisionLog.Reason reason, long[] remaining) {
+            for (int i = 0; i < remaining.length; i++) {
+                String methodId = methods.get(i).getId();
+                if (summary.getRemainingLimit(methodId) != remaining[i]) {
+                    throw new IllegalStateException("Record " + record + ": remaining limit of " + methodId
+                            + " is " + Money.format(remaining[i]) + " in the log but "
+                            + Money.format(summary.getRemainingLimit(methodId)) + " after replay");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+
+import java.util.*;
+
+/**
+ * Inverted eligibility index: for every method index, the positions of the orders
+ * that may use the method, ascending. Built once from the per-order eligibility
+ * masks over the orders sorted by value, so every list is in value order and a
+ * phase walking one method only looks at that method's candidates.
+ * Building walks the set bits only, so it costs the number of eligible pairs
+ * rather than orders times methods. The index of a table that gains and loses
+ * rows is kept up to date with {@link #update}.
+ */
+final class EligibilityIndex {
+    private final int[][] candidates;
+
+    private EligibilityIndex(int[][] candidates) {
+        this.candidates = candidates;
+    }
+
+    /**
+     * Builds the index of a list of orders with bound eligibility masks.
+     *
+     * @param orders      the orders, sorted by value
+     * @param methodCount the number of method indexes
+     * @return the index over the list positions
+     */
+    static EligibilityIndex of(List<Order> orders, int methodCount) {
+        int[] counts = new int[methodCount];
+        for (Order o : orders) {
+            BitSet mask = o.getEligibleMethods();
+            for (int m = mask.nextSetBit(0); m >= 0; m = mask.nextSetBit(m + 1)) {
+                counts[m]++;
+            }
+        }
+        int[][] result = allocate(counts);
+        for (int pos = 0; pos < orders.size(); pos++) {
+            BitSet mask = orders.get(pos).getEligibleMethods();
+            for (int m = mask.nextSetBit(0); m >= 0; m = mask.nextSetBit(m + 1)) {
+                result[m][counts[m]++] = pos;
+            }
+        }
+        return new EligibilityIndex(result);
+    }
+
+    /**
+     * Builds the index of an order table.
+     *
+     * @param table the order table, sorted by value
+     * @return the index over the table rows
+     */
+    static EligibilityIndex of(OrderTable table) {
+        int n = table.size();
+        int words = OrderTable.wordsFor(table.methodCount());
+        int[] counts = new int[table.methodCount()];
+        for (int row = 0; row < n; row++) {
+            for (int w = 0; w < words; w++) {
+                for (long bits = table.getEligibilityWord(row, w); bits != 0; bits &= bits - 1) {
+                    counts[(w << 6) + Long.numberOfTrailingZeros(bits)]++;
+                }
+            }
+        }
+        int[][] result = allocate(counts);
+        for (int row = 0; row < n; row++) {
+            for (int w = 0; w < words; w++) {
+                for (long bits = table.getEligibilityWord(row, w); bits != 0; bits &= bits - 1) {
+                    int m = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    result[m][counts[m]++] = row;
+                }
+            }
+        }
+        return new EligibilityIndex(result);
+    }
+
+    /**
+     * Brings the index of a table up to date after {@link OrderTable#merge}: the kept
+     * rows of every list are renumbered and the new rows merged in, reading the
+     * masks of the new rows only. Lists no row was removed from or added to are kept.
+     *
+     * @param table   the merged table
+     * @param rowOf   the new row of every old row, or -1 if it was removed
+     * @param newRows the rows of the new orders, ascending
+     * @param count   the number of new orders
+     */
+    void update(OrderTable table, int[] rowOf, int[] newRows, int count) {
+        int words = OrderTable.wordsFor(table.methodCount());
+        int[] counts = new int[candidates.length];
+        for (int i = 0; i < count; i++) {
+            for (int w = 0; w < words; w++) {
+                for (long bits = table.getEligibilityWord(newRows[i], w); bits != 0; bits &= bits - 1) {
+                    counts[(w << 6) + Long.numberOfTrailingZeros(bits)]++;
+                }
+            }
+        }
+        int[][] added = allocate(counts);
+        for (int i = 0; i < count; i++) {
+            for (int w = 0; w < words; w++) {
+                for (long bits = table.getEligibilityWord(newRows[i], w); bits != 0; bits &= bits - 1) {
+                    int m = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    added[m][counts[m]++] = newRows[i];
+                }
+            }
+        }
+        for (int m = 0; m < candidates.length; m++) {
+            int[] old = candidates[m];
+            int kept = 0;
+            boolean moved = false;
+            for (int row : old) {
+                if (rowOf[row] >= 0) kept++;
+                moved |= rowOf[row] != row;
+            }
+            if (!moved && added[m].length == 0) continue;
+            int[] merged = new int[kept + added[m].length];
+            int i = 0;
+            int j = 0;
+            for (int k = 0; k < merged.length; k++) {
+                while (i < old.length && rowOf[old[i]] < 0) i++;
+                if (j >= added[m].length || (i < old.length && rowOf[old[i]] < added[m][j])) {
+                    merged[k] = rowOf[old[i++]];
+                } else {
+                    merged[k] = added[m][j++];
+                }
+            }
+            candidates[m] = merged;
+        }
+    }
+
+    /**
+     * Allocates one array per method and resets the counts to use as fill cursors.
+     */
+    private static int[][] allocate(int[] counts) {
+        int[][] result = new int[counts.length][];
+        for (int m = 0; m < counts.length; m++) {
+            result[m] = new int[counts[m]];
+            counts[m] = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the positions of the orders that may use a method, ascending.
+     * The array is shared and must not be modified.
+     *
+     * @param method the method index
+     * @return the candidate positions
+     */
+    int[] candidates(int method) {
+        return candidates[method];
+    }
+}
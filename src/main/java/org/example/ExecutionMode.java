@@ -0,0 +1,16 @@
+package org.example;
+
+/**
+ * Selects how {@link PaymentProcessor} runs the parallelizable parts of the allocation.
+ */
+public enum ExecutionMode {
+    /** Everything on the calling thread; results are deterministic. */
+    SEQUENTIAL,
+    /**
+     * Eligibility masks and the fallback phase run on a ForkJoinPool.
+     * Fallback orders then race for the remaining limits, so which order gets
+     * which method may differ between runs, but no limit is ever overdrawn
+     * by a regular payment.
+     */
+    PARALLEL
+}
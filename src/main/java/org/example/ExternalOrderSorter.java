@@ -0,0 +1,298 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Sorts orders by value into an {@link OrderTable} with a bounded buffer of
+ * parsed orders, spilling to temporary files like an external merge sort.
+ * <p>
+ * Orders are collected into a run until its estimated size reaches the memory
+ * budget; the run is then sorted by value and written to a temporary file as
+ * compact binary rows (id, value in grosze, eligibility words). When all orders
+ * are in, the runs are merged into the table, equal values in input order, so
+ * the table is the same as after {@link OrderTable#sortByValue} and sorting it
+ * again is a single pass. If everything fits in one run nothing is written.
+ * More than 64 runs are first merged in groups of consecutive runs.
+ * <p>
+ * The budget bounds the orders held before they are sorted. The allocation
+ * phases revisit orders that are already paid, so the merged table, with its
+ * primitive columns, stays in memory as the working set.
+ */
+public class ExternalOrderSorter implements Closeable {
+    // object headers, array slots and the value of one row, besides its id and eligibility words
+    private static final int ROW_OVERHEAD_BYTES = 64;
+    // run files open at once while merging
+    private static final int MAX_FAN_IN = 64;
+    private static final int IO_BUFFER_BYTES = 64 * 1024;
+
+    private final MethodRegistry registry;
+    private final long memoryBudget;
+    private final Path tempDir;
+    private final int words;
+    private final List<Path> runs = new ArrayList<>();
+    // runs written by the merge pass in progress, deleted on close like the others
+    private final List<Path> merged = new ArrayList<>();
+    private final Set<String> unknownPromotions = new LinkedHashSet<>();
+
+    private OrderTable.Builder current;
+    private long currentBytes;
+    private int size;
+
+    /**
+     * Constructor for the ExternalOrderSorter class.
+     *
+     * @param registry     the method registry
+     * @param memoryBudget the estimated bytes of orders held before a run is spilled
+     * @param tempDir      the directory for run files, or null for the default temporary directory
+     */
+    public ExternalOrderSorter(MethodRegistry registry, long memoryBudget, Path tempDir) {
+        this.registry = registry;
+        this.memoryBudget = memoryBudget;
+        this.tempDir = tempDir;
+        this.words = OrderTable.wordsFor(registry.size());
+        this.current = new OrderTable.Builder(registry, 1024);
+    }
+
+    /**
+     * Adds an order, spilling the current run first if it is full.
+     *
+     * @param order the order
+     * @throws UncheckedIOException if a run cannot be written
+     */
+    public void add(Order order) {
+        long bytes = ROW_OVERHEAD_BYTES + 8L * words + 2L * order.getId().length();
+        if (currentBytes + bytes > memoryBudget && currentBytes > 0) {
+            try {
+                spill();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        current.add(order);
+        currentBytes += bytes;
+        size++;
+    }
+
+    /**
+     * Returns the number of run files written so far.
+     *
+     * @return the number of spilled runs
+     */
+    public int getSpilledRuns() {
+        return runs.size();
+    }
+
+    /**
+     * Returns the promotions that did not match any payment method.
+     *
+     * @return the unknown promotion IDs, in first-seen order
+     */
+    public Set<String> getUnknownPromotions() {
+        Set<String> result = new LinkedHashSet<>(unknownPromotions);
+        result.addAll(current.getUnknownPromotions());
+        return result;
+    }
+
+    /**
+     * Merges all orders into a table sorted by value and deletes the run files.
+     *
+     * @return the order table
+     * @throws IOException if a run cannot be written or read
+     */
+    public OrderTable build() throws IOException {
+        if (runs.isEmpty()) {
+            OrderTable table = current.build();
+            table.sortByValue();
+            return table;
+        }
+        spill();
+        try {
+            while (runs.size() > MAX_FAN_IN) {
+                // merging consecutive runs keeps equal values in input order
+                for (int from = 0; from < runs.size(); from += MAX_FAN_IN) {
+                    List<Path> group = runs.subList(from, Math.min(runs.size(), from + MAX_FAN_IN));
+                    Path file = newRunFile();
+                    merged.add(file);
+                    try (RunWriter writer = new RunWriter(file, words)) {
+                        merge(group, writer);
+                    }
+                    deleteAll(group);
+                }
+                runs.clear();
+                runs.addAll(merged);
+                merged.clear();
+            }
+            OrderTable.Builder table = new OrderTable.Builder(registry, size);
+            merge(runs, table::add);
+            return table.build();
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Merges sorted runs into a sink; on equal values the earlier run goes first.
+     */
+    private void merge(List<Path> inputs, RowSink sink) throws IOException {
+        PriorityQueue<RunReader> heads = new PriorityQueue<>(
+                Comparator.comparingLong((RunReader r) -> r.value).thenComparingInt(r -> r.run));
+        List<RunReader> readers = new ArrayList<>(inputs.size());
+        try {
+            for (int run = 0; run < inputs.size(); run++) {
+                RunReader reader = new RunReader(inputs.get(run), run, words);
+                readers.add(reader);
+                if (reader.advance()) {
+                    heads.add(reader);
+                }
+            }
+            while (!heads.isEmpty()) {
+                RunReader head = heads.poll();
+                sink.add(head.id, head.value, head.mask);
+                if (head.advance()) {
+                    heads.add(head);
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Sorts the current run and writes it to a new run file.
+     */
+    private void spill() throws IOException {
+        unknownPromotions.addAll(current.getUnknownPromotions());
+        OrderTable table = current.build();
+        current = new OrderTable.Builder(registry, 1024);
+        currentBytes = 0;
+        table.sortByValue();
+
+        Path file = newRunFile();
+        runs.add(file);
+        try (RunWriter writer = new RunWriter(file, words)) {
+            long[] mask = new long[words];
+            for (int row = 0; row < table.size(); row++) {
+                for (int w = 0; w < words; w++) {
+                    mask[w] = table.getEligibilityWord(row, w);
+                }
+                writer.add(table.getId(row), table.getValue(row), mask);
+            }
+        }
+    }
+
+    private Path newRunFile() throws IOException {
+        return Files.createTempFile(tempDir != null ? tempDir : Path.of(System.getProperty("java.io.tmpdir")),
+                "orders-run-", ".bin");
+    }
+
+    /**
+     * Deletes the run files.
+     */
+    @Override
+    public void close() {
+        deleteAll(runs);
+        runs.clear();
+        deleteAll(merged);
+        merged.clear();
+    }
+
+    private static void deleteAll(List<Path> files) {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // left in the temporary directory
+            }
+        }
+    }
+
+    /**
+     * Receives rows in value order.
+     */
+    private interface RowSink {
+        void add(String id, long value, long[] mask) throws IOException;
+    }
+
+    /**
+     * Writes rows to a run file, each after a true flag and the last followed by a
+     * false one, so rows can be written as they are merged without knowing their count.
+     * IDs are written as their UTF-8 length and bytes, so they are not limited to 64 KB.
+     */
+    private static class RunWriter implements RowSink, Closeable {
+        private final DataOutputStream out;
+        private final int words;
+
+        RunWriter(Path file, int words) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), IO_BUFFER_BYTES));
+            this.words = words;
+        }
+
+        @Override
+        public void add(String id, long value, long[] mask) throws IOException {
+            out.writeBoolean(true);
+            byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.writeLong(value);
+            for (int w = 0; w < words; w++) {
+                out.writeLong(mask[w]);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.writeBoolean(false);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the rows of one run file, holding the current one.
+     */
+    private static class RunReader implements Closeable {
+        private final DataInputStream in;
+        private final int run;
+        String id;
+        long value;
+        final long[] mask;
+
+        RunReader(Path file, int run, int words) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), IO_BUFFER_BYTES));
+            this.run = run;
+            this.mask = new long[words];
+        }
+
+        /**
+         * Reads the next row.
+         *
+         * @return false at the end of the run
+         */
+        boolean advance() throws IOException {
+            if (!in.readBoolean()) return false;
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            id = new String(bytes, StandardCharsets.UTF_8);
+            value = in.readLong();
+            for (int w = 0; w < mask.length; w++) {
+                mask[w] = in.readLong();
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+
+import java.util.*;
+
+/**
+ * Full-pay phase of the PUNKTY distribution.
+ * Orders are walked in value order and paid fully with PUNKTY while points last.
+ * After each such payment the >10% reorder and the 10% split are repeated,
+ * walking only the eligible orders of each method and the still unpaid orders.
+ * The repeat is skipped when the payment changed nothing and the previous
+ * round already left the summary unchanged.
+ */
+class FullPayRebalancer {
+    private final List<Order> orders;
+    private final List<PaymentMethod> methods;
+    private final PaymentMethod punkty;
+    private final PaymentMethod lowest;
+    private final PaymentSummary summary;
+
+    // positions of eligible orders per method index, in value order
+    private final EligibilityIndex candidates;
+    private final BitSet unpaid = new BitSet();
+    private final BitSet fullyPunkty = new BitSet();
+    private final BitSet paidThisPass = new BitSet();
+    // true when the last rebalance left the summary unchanged
+    private boolean settled;
+    private int rebalanceCount;
+    private long touched;
+
+    /**
+     * Constructor for the FullPayRebalancer class.
+     *
+     * @param orders  the list of orders, sorted by value
+     * @param methods the list of payment methods, sorted by discount descending
+     * @param punkty  the PUNKTY payment method
+     * @param lowest  the lowest discount payment method
+     * @param summary the payment summary
+     * @param index   the eligibility index over the orders
+     */
+    FullPayRebalancer(List<Order> orders,
+                      List<PaymentMethod> methods,
+                      PaymentMethod punkty,
+                      PaymentMethod lowest,
+                      PaymentSummary summary,
+                      EligibilityIndex index) {
+        this.orders = orders;
+        this.methods = methods;
+        this.punkty = punkty;
+        this.lowest = lowest;
+        this.summary = summary;
+        this.candidates = index;
+
+        PaymentSummary.PaymentView view = summary.newView();
+        for (int pos = 0; pos < orders.size(); pos++) {
+            if (!view.moveTo(orders.get(pos).getId()) || view.size() == 0) {
+                unpaid.set(pos);
+            } else if (view.isOnly(punkty.getId())) {
+                fullyPunkty.set(pos);
+            }
+        }
+    }
+
+    /**
+     * Runs the full-pay phase.
+     */
+    void run() {
+        for (int pos = 0; pos < orders.size(); pos++) {
+            Order o = orders.get(pos);
+            touched++;
+            long fullCost = Money.discounted(o.getValue(), punkty.getDiscount());
+            if (fullCost <= summary.getRemainingLimit(punkty.getId())) {
+                long before = summary.getModificationCount();
+                summary.setDecisionReason(DecisionLog.Reason.FULL_PAY);
+                summary.putPayment(o.getId(), punkty.getId(), fullCost);
+                unpaid.clear(pos);
+                fullyPunkty.set(pos);
+                if (settled && summary.getModificationCount() == before) {
+                    continue;
+                }
+                long beforeRebalance = summary.getModificationCount();
+                rebalanceCount++;
+                reorder();
+                split();
+                settled = summary.getModificationCount() == beforeRebalance;
+            }
+        }
+    }
+
+    /**
+     * Returns how many times the reorder and split were repeated.
+     *
+     * @return the number of rebalances
+     */
+    int getRebalanceCount() {
+        return rebalanceCount;
+    }
+
+    /**
+     * Returns how many times an order was priced against a limit,
+     * by the full-pay walk and by the repeated reorder and split.
+     *
+     * @return the number of orders looked at
+     */
+    long getTouchedCount() {
+        return touched;
+    }
+
+    /**
+     * Repeats the >10% full payment over orders not fully paid with PUNKTY.
+     * For methods whose limit cannot grow during the walk, the walk stops at the
+     * first order that does not fit, since later orders only cost more.
+     */
+    private void reorder() {
+        summary.setDecisionReason(DecisionLog.Reason.REBALANCE);
+        for (PaymentMethod pm : methods) {
+            if (pm.getDiscount() <= 10) break;
+            // paying with these methods can release their own split entries
+            boolean limitOnlyShrinks = pm != punkty && pm != lowest;
+            for (int pos : candidates.candidates(pm.getIndex())) {
+                if (fullyPunkty.get(pos) || paidThisPass.get(pos)) continue;
+                Order o = orders.get(pos);
+                touched++;
+                long cost = Money.discounted(o.getValue(), pm.getDiscount());
+                if (summary.getRemainingLimit(pm.getId()) >= cost) {
+                    summary.putPayment(o.getId(), pm.getId(), cost);
+                    paidThisPass.set(pos);
+                    unpaid.clear(pos);
+                    if (pm == punkty) {
+                        fullyPunkty.set(pos);
+                    }
+                } else if (limitOnlyShrinks) {
+                    break;
+                }
+            }
+        }
+        paidThisPass.clear();
+    }
+
+    /**
+     * Repeats the 10% PUNKTY split over the orders that are still unpaid.
+     */
+    private void split() {
+        if (unpaid.isEmpty()) return;
+        List<Order> pending = new ArrayList<>(unpaid.cardinality());
+        for (int pos = unpaid.nextSetBit(0); pos >= 0; pos = unpaid.nextSetBit(pos + 1)) {
+            pending.add(orders.get(pos));
+        }
+        PaymentProcessor.splitPunkty10percent(pending, punkty, lowest, summary);
+        touched += pending.size();
+        for (int pos = unpaid.nextSetBit(0); pos >= 0; pos = unpaid.nextSetBit(pos + 1)) {
+            if (summary.isPaid(orders.get(pos).getId())) {
+                unpaid.clear(pos);
+                // both split entries are PUNKTY when it is also the lowest discount method
+                if (lowest.getId().equals(punkty.getId())) {
+                    fullyPunkty.set(pos);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+
+import java.util.List;
+
+/**
+ * The three-phase greedy of {@link PaymentProcessor}: discounts over 10% first,
+ * then PUNKTY splitting, then fallback payments.
+ * Sorts the given lists in place, as {@link PaymentProcessor#payByMethod} does.
+ */
+public class GreedyAllocationStrategy implements AllocationStrategy {
+    private final ExecutionMode mode;
+
+    public GreedyAllocationStrategy() {
+        this(ExecutionMode.SEQUENTIAL);
+    }
+
+    /**
+     * Constructor for the GreedyAllocationStrategy class.
+     *
+     * @param mode sequential or parallel execution
+     */
+    public GreedyAllocationStrategy(ExecutionMode mode) {
+        this.mode = mode;
+    }
+
+    @Override
+    public void allocate(List<Order> orders, List<PaymentMethod> methods, PaymentSummary summary) {
+        PaymentProcessor.payByMethod(orders, methods, summary, mode);
+    }
+
+    @Override
+    public String cacheKey() {
+        // the parallel fallback may pick other methods when limits run short
+        return getClass().getName() + "(mode=" + mode + ")";
+    }
+}
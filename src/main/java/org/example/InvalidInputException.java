@@ -0,0 +1,14 @@
+package org.example;
+
+/**
+ * Thrown when the orders or payment methods cannot be allocated as given,
+ * e.g. a method without an ID, two methods with the same ID or no PUNKTY method.
+ * {@link AllocationServer} answers it with 400; any other exception is a 500.
+ */
+public class InvalidInputException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    public InvalidInputException(String message) {
+        super(message);
+    }
+}
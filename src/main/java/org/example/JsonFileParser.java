@@ -1,31 +1,164 @@
 package org.example;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 
-import java.io.FileReader;
+import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 /**
  * A generic class to parse JSON files into Java objects using Gson.
+ * Files are read as UTF-8 and must hold one top-level array and nothing after it.
  *
  * @param <T> the type of the objects to be parsed
  */
 public class JsonFileParser<T> {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private final String fileName;
     private final Type listType;
+    private final Type elementType;
     private final Gson gson = new Gson();
 
     public JsonFileParser(String fileName, Type listType) {
         this.fileName = fileName;
         this.listType = listType;
+        this.elementType = (listType instanceof ParameterizedType)
+                ? ((ParameterizedType) listType).getActualTypeArguments()[0]
+                : Object.class;
     }
 
     public List<T> parse() throws IOException {
-        try (Reader reader = new FileReader(fileName)) {
-            return gson.fromJson(reader, listType);
+        PaymentMetrics.PhaseTimer timer = PaymentMetrics.start(PaymentMetrics.Phase.PARSE);
+        try (Reader reader = open()) {
+            List<T> result = gson.fromJson(reader, listType);
+            timer.count(PaymentMetrics.Counter.ORDERS_TOUCHED, result == null ? 0 : result.size());
+            return result;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Streams the elements of the top-level JSON array one at a time,
+     * without building the whole list or a JSON tree in memory.
+     *
+     * @param consumer the consumer receiving each parsed element
+     * @throws IOException if the file cannot be read
+     */
+    public void forEach(Consumer<? super T> consumer) throws IOException {
+        PaymentMetrics.PhaseTimer timer = PaymentMetrics.start(PaymentMetrics.Phase.PARSE);
+        long count = 0;
+        try (StreamingIterator it = iterator()) {
+            while (it.hasNext()) {
+                consumer.accept(it.next());
+                count++;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            timer.count(PaymentMetrics.Counter.ORDERS_TOUCHED, count);
+            timer.stop();
+        }
+    }
+
+    /**
+     * Opens a streaming iterator over the elements of the top-level JSON array.
+     * The caller must close it.
+     *
+     * @return the streaming iterator
+     * @throws IOException if the file cannot be opened
+     */
+    public StreamingIterator iterator() throws IOException {
+        JsonReader jsonReader = new JsonReader(open());
+        try {
+            jsonReader.beginArray();
+        } catch (IOException | RuntimeException e) {
+            jsonReader.close();
+            throw e;
+        }
+        return new StreamingIterator(jsonReader);
+    }
+
+    private Reader open() throws IOException {
+        FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ);
+        return new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * Iterator reading one element at a time from an open JSON array.
+     * The end of the array must be the end of the file, as with {@link #parse}.
+     */
+    public class StreamingIterator implements Iterator<T>, Closeable {
+        private final JsonReader reader;
+        private boolean ended;
+
+        private StreamingIterator(JsonReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Checks if another element follows.
+         *
+         * @return false at the end of the array
+         * @throws JsonSyntaxException  if the file is malformed or holds more after the array
+         * @throws UncheckedIOException if the file cannot be read
+         */
+        @Override
+        public boolean hasNext() {
+            if (ended) {
+                return false;
+            }
+            try {
+                if (reader.peek() != JsonToken.END_ARRAY) {
+                    return true;
+                }
+                reader.endArray();
+                if (reader.peek() != JsonToken.END_DOCUMENT) {
+                    throw new JsonSyntaxException("Data after the top-level array in " + fileName);
+                }
+                ended = true;
+                return false;
+            } catch (MalformedJsonException e) {
+                throw new JsonSyntaxException(e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T element = gson.fromJson(reader, elementType);
+            if (element == null) {
+                throw new JsonParseException("null element in " + fileName);
+            }
+            return element;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
         }
     }
 }
@@ -0,0 +1,88 @@
+package org.example;
+
+import org.example.jsonClasses.PaymentMethod;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Remaining method limits that many threads can draw from at once.
+ * Each limit is a long counter in grosze updated with compare-and-set,
+ * so a reservation either fits entirely or is refused.
+ * Counters are spread one cache line apart to avoid false sharing.
+ */
+public class LimitReservations {
+    // 8 longs = 64 bytes between counters
+    private static final int STRIDE = 8;
+
+    private final String[] methodIds;
+    private final AtomicLongArray remaining;
+
+    /**
+     * Constructor that copies the current remaining limits from a payment summary.
+     *
+     * @param methods the payment methods, with indexes assigned by the registry
+     * @param summary the payment summary
+     */
+    LimitReservations(List<PaymentMethod> methods, PaymentSummary summary) {
+        this.methodIds = new String[methods.size()];
+        this.remaining = new AtomicLongArray(methods.size() * STRIDE);
+        for (PaymentMethod pm : methods) {
+            methodIds[pm.getIndex()] = pm.getId();
+            remaining.set(pm.getIndex() * STRIDE, summary.getRemainingLimit(pm.getId()));
+        }
+    }
+
+    /**
+     * Reserves an amount if the remaining limit covers it.
+     *
+     * @param method the method index
+     * @param amount the amount in grosze
+     * @return true if the amount was reserved
+     */
+    public boolean tryReserve(int method, long amount) {
+        int slot = method * STRIDE;
+        long current = remaining.get(slot);
+        while (current >= amount) {
+            if (remaining.compareAndSet(slot, current, current - amount)) {
+                return true;
+            }
+            current = remaining.get(slot);
+        }
+        return false;
+    }
+
+    /**
+     * Takes an amount regardless of the remaining limit, as the forced
+     * full-price fallback does.
+     *
+     * @param method the method index
+     * @param amount the amount in grosze
+     */
+    public void forceReserve(int method, long amount) {
+        remaining.addAndGet(method * STRIDE, -amount);
+    }
+
+    public long getRemaining(int method) {
+        return remaining.get(method * STRIDE);
+    }
+
+    /**
+     * Checks that the summary ledger ended up where the reservations did,
+     * once all reserved payments have been put into the summary.
+     *
+     * @param summary the payment summary
+     * @throws IllegalStateException if a method total disagrees
+     */
+    void reconcile(PaymentSummary summary) {
+        for (int method = 0; method < methodIds.length; method++) {
+            long reserved = getRemaining(method);
+            long booked = summary.getRemainingLimit(methodIds[method]);
+            if (reserved != booked) {
+                throw new IllegalStateException(String.format(
+                        "Reservations for %s disagree with the summary: %s vs %s",
+                        methodIds[method], Money.format(reserved), Money.format(booked)));
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.example;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local load generator for {@link AllocationServer}.
+ * Posts the same orders and payment methods files repeatedly and prints
+ * throughput and latency percentiles.
+ *
+ * <pre>
+ * java -cp app.jar org.example.LoadTestClient http://localhost:8080/allocate orders.json paymentmethods.json [requests] [concurrency]
+ * </pre>
+ */
+public class LoadTestClient {
+    private LoadTestClient() {}
+
+    public static void main(String[] args) throws Exception {
+        URI uri = URI.create(args[0]);
+        String orders = Files.readString(Path.of(args[1]));
+        String methods = Files.readString(Path.of(args[2]));
+        int requests = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        int concurrency = args.length > 4 ? Integer.parseInt(args[4]) : 32;
+
+        String body = "{\"orders\":" + orders + ",\"paymentMethods\":" + methods + "}";
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        long[] latencies = new long[requests];
+        AtomicInteger errors = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(concurrency);
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < requests; i++) {
+                int slot = i;
+                inFlight.acquire();
+                executor.submit(() -> {
+                    long t0 = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    } finally {
+                        latencies[slot] = System.nanoTime() - t0;
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        System.out.printf("requests=%d concurrency=%d errors=%d%n", requests, concurrency, errors.get());
+        System.out.printf("throughput=%.1f req/s%n", requests / (elapsed / 1e9));
+        System.out.printf("latency ms: p50=%.2f p95=%.2f p99=%.2f max=%.2f%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.95),
+                percentile(latencies, 0.99), latencies[requests - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -3,40 +3,304 @@ package org.example;
 import com.google.gson.reflect.TypeToken;
 import org.example.jsonClasses.Order;
 import org.example.jsonClasses.PaymentMethod;
+import org.example.jsonClasses.Scenario;
 
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.lang.reflect.Type;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 public class Main {
     public static void main(String[] args) throws Exception {
+        // --serve [port] starts the allocation service instead of a one-shot run
+        if (args.length > 0 && "--serve".equals(args[0])) {
+            serve(args);
+            return;
+        }
+
+        // --replay <log> rebuilds the result from a decision log; --trace <order> lists the decisions for one order
+        if (args.length > 1 && "--replay".equals(args[0])) {
+            replay(args);
+            return;
+        }
+
+        // --worker runs one shard for ShardCoordinator: request on stdin, response on stdout
+        if (args.length > 0 && "--worker".equals(args[0])) {
+            Reader in = new InputStreamReader(System.in, StandardCharsets.UTF_8);
+            System.out.write(AllocationServer.allocate(in).getBytes(StandardCharsets.UTF_8));
+            System.out.flush();
+            return;
+        }
+
+        // --metrics <file> records per-phase metrics, with JFR events, and writes them as JSON
+        String metricsPath = optionValue(args, "--metrics", null);
+        if (metricsPath != null) {
+            PaymentMetrics.enable(true);
+        }
+        // --decision-log <file> records every payment decision for --replay
+        String decisionLogPath = optionValue(args, "--decision-log", null);
+        try (DecisionLog decisionLog = decisionLogPath != null ? DecisionLog.open(Path.of(decisionLogPath)) : null) {
+            run(args, decisionLog);
+        } finally {
+            if (metricsPath != null) {
+                Files.writeString(Path.of(metricsPath), PaymentMetrics.toJson());
+            }
+        }
+    }
+
+    private static void run(String[] args, DecisionLog decisionLog) throws Exception {
         // Check if the correct number of arguments is provided
         String ordersPath = args[0];
         String paymentsPath = args[1];
+        // --external-sort <MB> sorts the orders through run files with that much parsed in memory, implying --columnar
+        String externalSortBudget = optionValue(args, "--external-sort", null);
+        // --scenarios <file> compares the allocation under the limits of each scenario, implying --columnar
+        String scenariosPath = optionValue(args, "--scenarios", null);
+        // --columnar runs the allocation over a primitive OrderTable
+        boolean columnar = Arrays.asList(args).contains("--columnar") || externalSortBudget != null
+                || scenariosPath != null;
+        // --parallel runs eligibility and the fallback phase on a ForkJoinPool
+        ExecutionMode mode = Arrays.asList(args).contains("--parallel")
+                ? ExecutionMode.PARALLEL
+                : ExecutionMode.SEQUENTIAL;
 
         // Check if the provided paths are valid
         Type ordersType = new TypeToken<List<Order>>(){}.getType();
         Type paymentsType = new TypeToken<List<PaymentMethod>>(){}.getType();
 
-        // Parse the JSON files
         JsonFileParser<Order> orderParser = new JsonFileParser<>(ordersPath, ordersType);
-        List<Order> orders = orderParser.parse();
-
-        // Check if the provided paths are valid
         JsonFileParser<PaymentMethod> paymentParser = new JsonFileParser<>(paymentsPath, paymentsType);
-        List<PaymentMethod> methods = paymentParser.parse();
+        // a fresh binary snapshot next to a JSON file is loaded instead of it; --snapshot writes them
+        Path ordersJson = Path.of(ordersPath);
+        Path paymentsJson = Path.of(paymentsPath);
+        boolean writeSnapshot = Arrays.asList(args).contains("--snapshot");
+
+        if (columnar) {
+            List<PaymentMethod> methods = loadMethods(paymentsJson, paymentParser, writeSnapshot);
+            MethodRegistry registry = new MethodRegistry(methods);
+            if (externalSortBudget != null) {
+                String spillDir = optionValue(args, "--spill-dir", null);
+                try (ExternalOrderSorter sorter = new ExternalOrderSorter(registry,
+                        Long.parseLong(externalSortBudget) << 20, spillDir != null ? Path.of(spillDir) : null)) {
+                    orderParser.forEach(sorter::add);
+                    OrderTable table = sorter.build();
+                    reportUnknownPromotions(sorter.getUnknownPromotions());
+                    allocateTable(args, table, methods, scenariosPath, decisionLog);
+                }
+                return;
+            }
+            OrderTable.Builder builder;
+            if (writeSnapshot || BinarySnapshot.hasFreshOrders(ordersJson)) {
+                builder = new OrderTable.Builder(registry, 1024);
+                loadOrders(ordersJson, orderParser, writeSnapshot).forEach(builder::add);
+            } else {
+                // scan the mapped orders file straight into the columns
+                builder = MappedOrderReader.read(ordersJson, registry);
+            }
+            reportUnknownPromotions(builder.getUnknownPromotions());
+            OrderTable table = builder.build();
 
-        PaymentSummary summary = new PaymentSummary(methods);
+            allocateTable(args, table, methods, scenariosPath, decisionLog);
+            return;
+        }
+
+        List<Order> orders;
+        List<PaymentMethod> methods;
+        // --pipeline parses the orders on a reader thread while batches are bound and sorted
+        if (Arrays.asList(args).contains("--pipeline") && !writeSnapshot && !BinarySnapshot.hasFreshOrders(ordersJson)) {
+            methods = loadMethods(paymentsJson, paymentParser, false);
+            MethodRegistry registry = new MethodRegistry(methods);
+            OrderPipeline pipeline = new OrderPipeline(registry,
+                    Integer.parseInt(optionValue(args, "--batch-size", String.valueOf(OrderPipeline.DEFAULT_BATCH_SIZE))),
+                    Integer.parseInt(optionValue(args, "--queue-depth", String.valueOf(OrderPipeline.DEFAULT_QUEUE_DEPTH))));
+            orders = pipeline.load(orderParser);
+            reportUnknownPromotions(pipeline.getUnknownPromotions());
+        } else {
+            // Parse the JSON files, streaming orders one at a time
+            orders = loadOrders(ordersJson, orderParser, writeSnapshot);
+
+            // Check if the provided paths are valid
+            methods = loadMethods(paymentsJson, paymentParser, writeSnapshot);
+
+            // Index the payment methods and precompute eligible methods per order
+            MethodRegistry registry = new MethodRegistry(methods);
+            reportUnknownPromotions(mode == ExecutionMode.PARALLEL
+                    ? registry.bind(orders, ForkJoinPool.commonPool())
+                    : registry.bind(orders));
+        }
+
+        PaymentSummary summary = new PaymentSummary(methods, decisionLog);
 
 //        orders.forEach(System.out::println);
 //        methods.forEach(System.out::println);
 //        System.out.println();
 
-        // Process the payments
-        PaymentProcessor.payByMethod(orders, methods, summary);
+        // Process the payments; --optimize <ms> searches for a larger total discount,
+        // --shards <n> splits the greedy over n worker processes
+        String optimizeBudget = optionValue(args, "--optimize", null);
+        String shards = optionValue(args, "--shards", null);
+        AllocationStrategy strategy;
+        if (optimizeBudget != null) {
+            strategy = new OptimizingAllocationStrategy(Duration.ofMillis(Long.parseLong(optimizeBudget)));
+        } else if (shards != null) {
+            strategy = new ShardCoordinator(Integer.parseInt(shards));
+        } else {
+            strategy = new GreedyAllocationStrategy(mode);
+        }
+        // --cache <dir> keeps results on disk and serves repeated inputs from there
+        String cacheDir = optionValue(args, "--cache", null);
+        if (cacheDir != null) {
+            strategy = new CachingAllocationStrategy(strategy, resultCache(args, cacheDir));
+        }
+        strategy.allocate(orders, methods, summary);
 
-        summary.printSummary();
+        printResults(args, summary);
 //        System.out.println();
 //        summary.printOrderPayments();
     }
+
+    /**
+     * Allocates a columnar table and prints the results, or, with a scenarios file,
+     * prints the comparison of the limits in the methods file and of every scenario.
+     */
+    private static void allocateTable(String[] args, OrderTable table, List<PaymentMethod> methods,
+                                      String scenariosPath, DecisionLog decisionLog) throws IOException {
+        if (scenariosPath == null) {
+            PaymentSummary summary = new PaymentSummary(methods, decisionLog);
+            PaymentProcessor.payByMethod(table, methods, summary);
+            printResults(args, summary);
+            return;
+        }
+        Type scenariosType = new TypeToken<List<Scenario>>(){}.getType();
+        List<Scenario> scenarios = new ArrayList<>();
+        scenarios.add(new Scenario("baseline", Map.of()));
+        scenarios.addAll(new JsonFileParser<Scenario>(scenariosPath, scenariosType).parse());
+        new ScenarioBatch(table, methods).run(scenarios, ForkJoinPool.commonPool()).printTable();
+    }
+
+    /**
+     * Prints the totals, or streams the results through a {@link ResultWriter} when
+     * --format or --output is given. --details adds the payments of every order,
+     * in the order they were paid unless --sort-orders is given.
+     */
+    private static void printResults(String[] args, PaymentSummary summary) throws IOException {
+        String format = optionValue(args, "--format", null);
+        String outputPath = optionValue(args, "--output", null);
+        if (format == null && outputPath == null) {
+            summary.printSummary();
+            return;
+        }
+        WritableByteChannel channel = outputPath != null
+                ? FileChannel.open(Path.of(outputPath), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)
+                : Channels.newChannel(System.out);
+        ResultWriter.Format outputFormat = format != null
+                ? ResultWriter.Format.valueOf(format.toUpperCase(Locale.ROOT))
+                : ResultWriter.Format.JSONL;
+        try (ResultWriter writer = new ResultWriter(channel, outputFormat)) {
+            writer.writeTotals(summary);
+            if (Arrays.asList(args).contains("--details")) {
+                writer.writeOrders(summary, Arrays.asList(args).contains("--sort-orders"));
+            }
+        }
+    }
+
+    private static List<Order> loadOrders(Path json, JsonFileParser<Order> parser, boolean writeSnapshot)
+            throws IOException {
+        if (BinarySnapshot.hasFreshOrders(json)) {
+            return BinarySnapshot.readOrders(json);
+        }
+        List<Order> orders = new ArrayList<>();
+        parser.forEach(orders::add);
+        if (writeSnapshot) {
+            BinarySnapshot.writeOrders(json, orders);
+        }
+        return orders;
+    }
+
+    private static List<PaymentMethod> loadMethods(Path json, JsonFileParser<PaymentMethod> parser, boolean writeSnapshot)
+            throws IOException {
+        if (BinarySnapshot.hasFreshMethods(json)) {
+            return BinarySnapshot.readMethods(json);
+        }
+        List<PaymentMethod> methods = parser.parse();
+        if (writeSnapshot) {
+            BinarySnapshot.writeMethods(json, methods);
+        }
+        return methods;
+    }
+
+    private static void replay(String[] args) throws IOException {
+        DecisionLogReader reader = new DecisionLogReader(Path.of(args[1]));
+        String orderId = optionValue(args, "--trace", null);
+        if (orderId != null) {
+            reader.trace(orderId, System.out);
+        } else {
+            printResults(args, reader.replay());
+        }
+        if (!reader.isComplete()) {
+            System.err.println("Decision log ends early, read up to its last complete record");
+        }
+    }
+
+    private static void serve(String[] args) throws Exception {
+        int port = (args.length > 1 && !args[1].startsWith("--")) ? Integer.parseInt(args[1]) : 8080;
+        int maxConcurrent = Integer.parseInt(optionValue(args, "--max-concurrent",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        long queueTimeout = Long.parseLong(optionValue(args, "--queue-timeout-ms", "1000"));
+        if (Arrays.asList(args).contains("--metrics")) {
+            PaymentMetrics.enable(false);
+        }
+
+        String cacheDir = optionValue(args, "--cache", null);
+        ResultCache cache = cacheDir != null || Arrays.asList(args).contains("--cache-entries")
+                ? resultCache(args, cacheDir)
+                : null;
+
+        AllocationServer server = new AllocationServer(port, maxConcurrent, queueTimeout, cache);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+        System.out.printf("Listening on port %d (max %d concurrent allocations)%n", server.getPort(), maxConcurrent);
+    }
+
+    /**
+     * Builds the result cache of --cache-entries (payment entries kept in memory),
+     * and of --cache-bytes when a cache directory is given.
+     */
+    private static ResultCache resultCache(String[] args, String cacheDir) {
+        long entries = Long.parseLong(optionValue(args, "--cache-entries", "1000000"));
+        long bytes = Long.parseLong(optionValue(args, "--cache-bytes", String.valueOf(1L << 30)));
+        return new ResultCache(entries, cacheDir != null ? Path.of(cacheDir) : null, bytes);
+    }
+
+    private static String optionValue(String[] args, String name, String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (name.equals(args[i])) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+
+    private static void reportUnknownPromotions(Set<String> unknownPromotions) {
+        if (!unknownPromotions.isEmpty()) {
+            System.err.println("Unknown promotions ignored: " + unknownPromotions);
+        }
+    }
 }
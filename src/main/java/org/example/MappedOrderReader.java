@@ -0,0 +1,371 @@
+package org.example;
+
+import com.google.gson.reflect.TypeToken;
+import org.example.jsonClasses.Order;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Fast-path decoder for orders files.
+ * The file is memory-mapped and the fixed orders schema ({@code id}, {@code value},
+ * {@code promotions}) is scanned straight from the mapped bytes into an
+ * {@link OrderTable.Builder}: values are parsed as grosze and promotions are
+ * matched against the method IDs byte by byte, so only the order IDs become Strings.
+ * Anything the scanner does not handle (escapes, exponents, missing fields,
+ * malformed JSON) makes the whole file go through {@link JsonFileParser} instead.
+ */
+public class MappedOrderReader {
+    // files larger than this are mapped one window at a time
+    private static final long WINDOW = 1L << 30;
+    private static final Type ORDERS_TYPE = new TypeToken<List<Order>>(){}.getType();
+
+    private static final byte[] KEY_ID = bytes("id");
+    private static final byte[] KEY_VALUE = bytes("value");
+    private static final byte[] KEY_PROMOTIONS = bytes("promotions");
+
+    private final OrderTable.Builder builder;
+    private final int punktyIndex;
+    // open-addressing table of method names, by hash of their UTF-8 bytes
+    private final byte[][] methodNames;
+    private final int[] methodSlots;
+    private final long[] mask;
+    private byte[] scratch = new byte[64];
+    private long rows;
+
+    private FileChannel channel;
+    private long fileSize;
+    private MappedByteBuffer buffer;
+    // file offsets of the mapped window
+    private long base;
+    private long windowEnd;
+    private long pos;
+
+    private MappedOrderReader(MethodRegistry registry, OrderTable.Builder builder) {
+        this.builder = builder;
+        this.punktyIndex = registry.indexOf(MethodRegistry.PUNKTY);
+        int m = registry.size();
+        this.methodNames = new byte[m][];
+        this.methodSlots = new int[Integer.highestOneBit(Math.max(1, m) * 2) * 2];
+        Arrays.fill(methodSlots, -1);
+        for (int i = 0; i < m; i++) {
+            methodNames[i] = bytes(registry.get(i).getId());
+            int slot = hash(methodNames[i], 0, methodNames[i].length) & (methodSlots.length - 1);
+            while (methodSlots[slot] >= 0) {
+                slot = (slot + 1) & (methodSlots.length - 1);
+            }
+            methodSlots[slot] = i;
+        }
+        this.mask = new long[OrderTable.wordsFor(m)];
+    }
+
+    /**
+     * Reads an orders file into a new table builder.
+     * Falls back to the Gson parser if the file is not in the form the scanner handles.
+     *
+     * @param path     the path to the orders file
+     * @param registry the method registry
+     * @return the builder holding the orders, ready to build
+     * @throws IOException if the file cannot be read
+     */
+    public static OrderTable.Builder read(Path path, MethodRegistry registry) throws IOException {
+        OrderTable.Builder builder = new OrderTable.Builder(registry, 1024);
+        PaymentMetrics.PhaseTimer timer = PaymentMetrics.start(PaymentMetrics.Phase.PARSE);
+        try {
+            MappedOrderReader reader = new MappedOrderReader(registry, builder);
+            reader.scan(path);
+            timer.count(PaymentMetrics.Counter.ORDERS_TOUCHED, reader.rows);
+            timer.stop();
+            return builder;
+        } catch (UnsupportedInputException | ArithmeticException e) {
+            timer.stop();
+            // start over so nothing from the partial scan is kept
+            OrderTable.Builder fallback = new OrderTable.Builder(registry, 1024);
+            new JsonFileParser<Order>(path.toString(), ORDERS_TYPE).forEach(fallback::add);
+            return fallback;
+        }
+    }
+
+    private void scan(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel = ch;
+            fileSize = ch.size();
+            base = 0;
+            windowEnd = 0;
+            pos = 0;
+
+            expect('[');
+            if (peekToken() == ']') {
+                pos++;
+            } else {
+                while (true) {
+                    readOrder();
+                    int c = nextToken();
+                    if (c == ']') break;
+                    if (c != ',') throw unsupported();
+                }
+            }
+            if (peekToken() != -1) throw unsupported();
+        } finally {
+            channel = null;
+            buffer = null;
+        }
+    }
+
+    private void readOrder() {
+        expect('{');
+        String id = null;
+        long value = 0;
+        boolean hasValue = false;
+        boolean hasPromotions = false;
+        Arrays.fill(mask, 0);
+
+        if (peekToken() == '}') {
+            pos++;
+        } else {
+            while (true) {
+                expect('"');
+                long keyStart = pos;
+                long keyEnd = skipStringBody();
+                expect(':');
+                if (matches(keyStart, keyEnd, KEY_ID)) {
+                    expect('"');
+                    id = readStringBody();
+                } else if (matches(keyStart, keyEnd, KEY_VALUE)) {
+                    value = readAmount();
+                    hasValue = true;
+                } else if (matches(keyStart, keyEnd, KEY_PROMOTIONS)) {
+                    // a repeated key replaces the earlier one, as with Gson
+                    Arrays.fill(mask, 0);
+                    hasPromotions = readPromotions();
+                } else {
+                    throw unsupported();
+                }
+                int c = nextToken();
+                if (c == '}') break;
+                if (c != ',') throw unsupported();
+            }
+        }
+
+        if (id == null || !hasValue) throw unsupported();
+        if (!hasPromotions && punktyIndex >= 0) {
+            mask[punktyIndex >>> 6] |= 1L << punktyIndex;
+        }
+        builder.add(id, value, mask);
+        rows++;
+    }
+
+    /**
+     * Reads the promotions array into the mask.
+     *
+     * @return false if the promotions are null
+     */
+    private boolean readPromotions() {
+        int c = nextToken();
+        if (c == 'n') {
+            expectLiteral("ull");
+            return false;
+        }
+        if (c != '[') throw unsupported();
+        if (peekToken() == ']') {
+            pos++;
+            return true;
+        }
+        while (true) {
+            expect('"');
+            long start = pos;
+            long end = skipStringBody();
+            int method = lookupMethod(start, end);
+            if (method >= 0) {
+                mask[method >>> 6] |= 1L << method;
+            } else {
+                pos = start;
+                builder.addUnknownPromotion(readStringBody());
+            }
+            c = nextToken();
+            if (c == ']') return true;
+            if (c != ',') throw unsupported();
+        }
+    }
+
+    /**
+     * Reads an amount, quoted or bare, as grosze rounded half up.
+     */
+    private long readAmount() {
+        boolean quoted = peekToken() == '"';
+        if (quoted) pos++;
+        boolean negative = byteAt(pos) == '-';
+        if (negative) pos++;
+
+        long units = 0;
+        int digits = 0;
+        int c;
+        while ((c = byteAt(pos)) >= '0' && c <= '9') {
+            units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+            digits++;
+            pos++;
+        }
+        if (digits == 0) throw unsupported();
+
+        long cents = 0;
+        int decimals = 0;
+        boolean roundUp = false;
+        if (c == '.') {
+            pos++;
+            while ((c = byteAt(pos)) >= '0' && c <= '9') {
+                if (decimals < 2) {
+                    cents = cents * 10 + (c - '0');
+                } else if (decimals == 2) {
+                    roundUp = c >= '5';
+                }
+                decimals++;
+                pos++;
+            }
+            if (decimals == 0) throw unsupported();
+        }
+        if (c == 'e' || c == 'E') throw unsupported();
+        if (quoted) {
+            if (c != '"') throw unsupported();
+            pos++;
+        }
+        for (int i = decimals; i < 2; i++) {
+            cents *= 10;
+        }
+        long amount = Math.addExact(Math.multiplyExact(units, 100), cents + (roundUp ? 1 : 0));
+        return negative ? -amount : amount;
+    }
+
+    private int lookupMethod(long start, long end) {
+        int slot = hash(start, end) & (methodSlots.length - 1);
+        int method;
+        while ((method = methodSlots[slot]) >= 0) {
+            if (matches(start, end, methodNames[method])) return method;
+            slot = (slot + 1) & (methodSlots.length - 1);
+        }
+        return -1;
+    }
+
+    private boolean matches(long start, long end, byte[] name) {
+        if (end - start != name.length) return false;
+        for (int i = 0; i < name.length; i++) {
+            if (byteAt(start + i) != (name[i] & 0xFF)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Skips the rest of a string after its opening quote.
+     *
+     * @return the position of the closing quote
+     */
+    private long skipStringBody() {
+        int c;
+        while ((c = byteAt(pos)) != '"') {
+            if (c == '\\' || c < 0x20) throw unsupported();
+            pos++;
+        }
+        return pos++;
+    }
+
+    private String readStringBody() {
+        long start = pos;
+        long end = skipStringBody();
+        int length = Math.toIntExact(end - start);
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = (byte) byteAt(start + i);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void expectLiteral(String rest) {
+        for (int i = 0; i < rest.length(); i++) {
+            if (byteAt(pos++) != rest.charAt(i)) throw unsupported();
+        }
+    }
+
+    private void expect(int expected) {
+        if (nextToken() != expected) throw unsupported();
+    }
+
+    private int nextToken() {
+        int c = peekToken();
+        if (c >= 0) pos++;
+        return c;
+    }
+
+    private int peekToken() {
+        int c;
+        while ((c = byteAt(pos)) == ' ' || c == '\n' || c == '\r' || c == '\t') {
+            pos++;
+        }
+        return c;
+    }
+
+    /**
+     * Returns the byte at a file position, mapping a new window when needed.
+     *
+     * @return the byte as an unsigned value, or -1 past the end of the file
+     */
+    private int byteAt(long p) {
+        if (p < base || p >= windowEnd) {
+            if (p >= fileSize) return -1;
+            map(p);
+        }
+        return buffer.get((int) (p - base)) & 0xFF;
+    }
+
+    private void map(long p) {
+        try {
+            long size = Math.min(WINDOW, fileSize - p);
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, p, size);
+            base = p;
+            windowEnd = p + size;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot map orders file", e);
+        }
+    }
+
+    private int hash(long start, long end) {
+        int h = 0;
+        for (long p = start; p < end; p++) {
+            h = 31 * h + byteAt(p);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int hash(byte[] bytes, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + (bytes[i] & 0xFF);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private UnsupportedInputException unsupported() {
+        return new UnsupportedInputException(pos);
+    }
+
+    /**
+     * Thrown when the input needs the full JSON parser.
+     */
+    private static class UnsupportedInputException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedInputException(long position) {
+            super("Unsupported input at byte " + position, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Assigns every payment method a dense int index and precomputes
+ * the set of eligible methods for each order as a bitmask.
+ * Every registry has its own generation number, stored with the indexes and
+ * masks it sets, so a binding can be recognised later without recomputing it.
+ */
+public class MethodRegistry {
+    public static final String PUNKTY = "PUNKTY";
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+
+    private final List<PaymentMethod> methods;
+    private final Map<String, Integer> indexById = new HashMap<>();
+    private final long generation = GENERATIONS.incrementAndGet();
+
+    /**
+     * Constructor that assigns indexes to the given payment methods in list order.
+     *
+     * @param methods the list of payment methods
+     * @throws InvalidInputException if two methods have the same ID
+     */
+    public MethodRegistry(List<PaymentMethod> methods) {
+        this.methods = new ArrayList<>(methods);
+        for (int i = 0; i < this.methods.size(); i++) {
+            PaymentMethod pm = this.methods.get(i);
+            if (indexById.putIfAbsent(pm.getId(), i) != null) {
+                throw new InvalidInputException("Duplicate payment method: " + pm.getId());
+            }
+            pm.setIndex(i, generation);
+        }
+    }
+
+    /**
+     * Returns the index of a payment method.
+     *
+     * @param methodId the ID of the payment method
+     * @return the index, or -1 if the method is unknown
+     */
+    public int indexOf(String methodId) {
+        Integer index = indexById.get(methodId);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the payment method with the given index.
+     *
+     * @param index the index of the payment method
+     * @return the payment method
+     */
+    public PaymentMethod get(int index) {
+        return methods.get(index);
+    }
+
+    public int size() {
+        return methods.size();
+    }
+
+    /**
+     * Computes the eligible method mask for each order.
+     * Orders without promotions are eligible for PUNKTY only.
+     *
+     * @param orders the list of orders
+     * @return the promotion IDs that do not match any payment method
+     */
+    public Set<String> bind(List<Order> orders) {
+        Set<String> unknown = new LinkedHashSet<>();
+        for (Order order : orders) {
+            order.setEligibleMethods(eligibleMethods(order, unknown), generation);
+        }
+        return unknown;
+    }
+
+    /**
+     * Computes the eligible method mask for each order on a ForkJoinPool.
+     * Unknown promotion IDs are reported in the order they first appear.
+     *
+     * @param orders the list of orders
+     * @param pool   the pool to run on
+     * @return the promotion IDs that do not match any payment method
+     */
+    public Set<String> bind(List<Order> orders, ForkJoinPool pool) {
+        Map<Integer, Set<String>> unknownByRange = new ConcurrentSkipListMap<>();
+        ParallelRange.run(pool, orders.size(), 4096, (from, to) -> {
+            Set<String> unknown = new LinkedHashSet<>();
+            for (int i = from; i < to; i++) {
+                Order order = orders.get(i);
+                order.setEligibleMethods(eligibleMethods(order, unknown), generation);
+            }
+            unknownByRange.put(from, unknown);
+        });
+        Set<String> unknown = new LinkedHashSet<>();
+        unknownByRange.values().forEach(unknown::addAll);
+        return unknown;
+    }
+
+    /**
+     * Computes the eligible method mask for a single order.
+     *
+     * @param order   the order
+     * @param unknown collects promotion IDs that do not match any payment method
+     * @return the eligible method mask
+     */
+    public BitSet eligibleMethods(Order order, Set<String> unknown) {
+        BitSet mask = new BitSet(methods.size());
+        String[] promos = order.getPromotions();
+        if (promos == null) {
+            promos = new String[]{ PUNKTY };
+        }
+        for (String promo : promos) {
+            int index = indexOf(promo);
+            if (index >= 0) {
+                mask.set(index);
+            } else {
+                unknown.add(promo);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Binds the orders to the given methods unless that was already done at load time.
+     *
+     * @param orders  the list of orders
+     * @param methods the list of payment methods
+     */
+    public static void ensureBound(List<Order> orders, List<PaymentMethod> methods) {
+        if (!isBound(orders, methods)) {
+            new MethodRegistry(methods).bind(orders);
+        }
+    }
+
+    /**
+     * Binds the orders to the given methods on a ForkJoinPool unless that was
+     * already done at load time.
+     *
+     * @param orders  the list of orders
+     * @param methods the list of payment methods
+     * @param pool    the pool to run on
+     */
+    public static void ensureBound(List<Order> orders, List<PaymentMethod> methods, ForkJoinPool pool) {
+        if (!isBound(orders, methods)) {
+            new MethodRegistry(methods).bind(orders, pool);
+        }
+    }
+
+    /**
+     * Checks that one registry indexed all the methods, with distinct indexes below
+     * their count, and set the masks of all the orders, with no bit beyond the methods.
+     * Comparing generations does not look at promotions, so it costs a few reads per order.
+     */
+    private static boolean isBound(List<Order> orders, List<PaymentMethod> methods) {
+        int m = methods.size();
+        if (m == 0) {
+            return false;
+        }
+        long registry = methods.get(0).getRegistry();
+        if (registry == 0) {
+            return false;
+        }
+        BitSet indexes = new BitSet(m);
+        for (PaymentMethod pm : methods) {
+            int index = pm.getIndex();
+            if (pm.getRegistry() != registry || index < 0 || index >= m || indexes.get(index)) {
+                return false;
+            }
+            indexes.set(index);
+        }
+        for (Order order : orders) {
+            BitSet mask = order.getEligibleMethods();
+            if (order.getRegistry() != registry || mask == null || mask.length() > m) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies payment methods, without their indexes, so a registry can be built
+     * over them without touching the caller's methods.
+     *
+     * @param methods the list of payment methods
+     * @return the copies, in the same order
+     */
+    public static List<PaymentMethod> copyOf(List<PaymentMethod> methods) {
+        List<PaymentMethod> copies = new ArrayList<>(methods.size());
+        for (PaymentMethod pm : methods) {
+            copies.add(new PaymentMethod(pm.getId(), pm.getDiscount(), pm.getLimit()));
+        }
+        return copies;
+    }
+}
@@ -0,0 +1,142 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * Money amounts as long minor units (grosze, 1/100 PLN).
+ * All rounding is integer and half-up, so results do not depend on the JVM.
+ */
+public final class Money {
+    private Money() {}
+
+    /**
+     * Parses a decimal amount such as "100.00" into grosze.
+     * Digits beyond the second decimal place are rounded half-up.
+     *
+     * @param text the decimal amount
+     * @return the amount in grosze
+     */
+    public static long parse(String text) {
+        return new BigDecimal(text.trim())
+                .movePointRight(2)
+                .setScale(0, RoundingMode.HALF_UP)
+                .longValueExact();
+    }
+
+    /**
+     * Formats an amount in grosze as a decimal with two places, e.g. "100.00".
+     *
+     * @param amount the amount in grosze
+     * @return the formatted amount
+     */
+    public static String format(long amount) {
+        StringBuilder sb = new StringBuilder(24);
+        appendTo(sb, amount);
+        return sb.toString();
+    }
+
+    /**
+     * Appends an amount in grosze as a decimal with two places.
+     *
+     * @param sb     the builder to append to
+     * @param amount the amount in grosze
+     * @return the same builder
+     */
+    public static StringBuilder appendTo(StringBuilder sb, long amount) {
+        long abs = Math.abs(amount);
+        if (amount < 0) {
+            sb.append('-');
+        }
+        long cents = abs % 100;
+        sb.append(abs / 100).append('.');
+        if (cents < 10) {
+            sb.append('0');
+        }
+        return sb.append(cents);
+    }
+
+    /**
+     * Returns the given percentage of an amount, rounded half-up.
+     *
+     * @param amount  the amount in grosze
+     * @param percent the percentage
+     * @return the percentage of the amount in grosze
+     */
+    public static long percent(long amount, int percent) {
+        return Math.floorDiv(amount * percent + 50, 100);
+    }
+
+    /**
+     * Returns the amount after applying a percentage discount.
+     *
+     * @param amount   the amount in grosze
+     * @param discount the discount percentage
+     * @return the discounted amount in grosze
+     */
+    public static long discounted(long amount, int discount) {
+        return amount - percent(amount, discount);
+    }
+
+    /**
+     * Splits an amount in proportion to the given weights so that the shares add up
+     * to the amount exactly. Each share is rounded down and the units left over go
+     * to the shares with the largest remainders, the earlier share first on ties.
+     *
+     * @param amount  the amount to split, not negative
+     * @param weights the weights, not negative, with a positive sum
+     * @return the shares in the order of the weights
+     */
+    public static long[] allocate(long amount, long[] weights) {
+        int n = weights.length;
+        long total = 0;
+        for (long w : weights) {
+            total += w;
+        }
+        long[] shares = new long[n];
+        long[] remainders = new long[n];
+        long left = amount;
+        for (int i = 0; i < n; i++) {
+            shares[i] = mulDivFloor(amount, weights[i], total);
+            long product = amount * weights[i];
+            remainders[i] = (Math.multiplyHigh(amount, weights[i]) == (product >> 63))
+                    ? product - shares[i] * total
+                    : BigInteger.valueOf(amount).multiply(BigInteger.valueOf(weights[i]))
+                            .mod(BigInteger.valueOf(total))
+                            .longValueExact();
+            left -= shares[i];
+        }
+        if (left > 0) {
+            Integer[] byRemainder = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                byRemainder[i] = i;
+            }
+            Arrays.sort(byRemainder, (x, y) -> Long.compare(remainders[y], remainders[x]));
+            for (int k = 0; k < left; k++) {
+                shares[byRemainder[k]]++;
+            }
+        }
+        return shares;
+    }
+
+    /**
+     * Computes floor(a * b / c) without overflow for non-negative arguments.
+     *
+     * @param a the first factor
+     * @param b the second factor
+     * @param c the divisor, greater than zero
+     * @return the rounded-down quotient
+     */
+    public static long mulDivFloor(long a, long b, long c) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        if (high == (low >> 63)) {
+            return Math.floorDiv(low, c);
+        }
+        return BigInteger.valueOf(a).multiply(BigInteger.valueOf(b))
+                .divide(BigInteger.valueOf(c))
+                .longValueExact();
+    }
+}
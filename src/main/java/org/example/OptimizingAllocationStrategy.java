@@ -0,0 +1,471 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Branch-and-bound search for the allocation with the largest total discount.
+ * Every order is paid in one of these ways:
+ * <ul>
+ *     <li>fully with a card it has a promotion for, at that card's discount;</li>
+ *     <li>fully with PUNKTY, at the PUNKTY discount;</li>
+ *     <li>10% with PUNKTY and the rest with any card, at 10% off;</li>
+ *     <li>fully with any card, at full price.</li>
+ * </ul>
+ * No limit is overdrawn unless an order cannot be paid any other way, in which
+ * case it goes to the lowest method at full price, as in the greedy.
+ * The search starts from the better of the greedy result and a first unbounded
+ * pass, and returns the best allocation found when the tree is exhausted or the
+ * time budget runs out. The budget starts with the call, so the greedy run counts
+ * against it, but that run and the first pass always complete.
+ * Points left over are not spread across split orders, since they add no discount.
+ */
+public class OptimizingAllocationStrategy implements AllocationStrategy {
+    private static final int UNVISITED = -1;
+    // order with no option that fits the limits
+    private static final int FORCED = Integer.MAX_VALUE;
+
+    private final long budgetNanos;
+    private long lastGap;
+    private boolean lastOptimal;
+
+    /**
+     * Constructor for the OptimizingAllocationStrategy class.
+     *
+     * @param budget how long the search may run
+     */
+    public OptimizingAllocationStrategy(Duration budget) {
+        this.budgetNanos = budget.toNanos();
+    }
+
+    @Override
+    public String cacheKey() {
+        return getClass().getName() + "(budgetNanos=" + budgetNanos + ")";
+    }
+
+    /**
+     * Returns how much more discount the last allocation might have reached,
+     * as bounded by the search.
+     *
+     * @return the gap in grosze, 0 if the last allocation is optimal
+     */
+    public long getLastGap() {
+        return lastGap;
+    }
+
+    /**
+     * Checks if the last search finished before the time budget ran out.
+     *
+     * @return true if the last allocation is optimal
+     */
+    public boolean isLastOptimal() {
+        return lastOptimal;
+    }
+
+    /**
+     * Pays the given orders with the best allocation found. The lists, the orders
+     * and the methods are not modified.
+     *
+     * @param orders  the list of orders to be paid
+     * @param methods the list of available payment methods
+     * @param summary the payment summary
+     */
+    @Override
+    public void allocate(List<Order> orders, List<PaymentMethod> methods, PaymentSummary summary) {
+        long deadline = System.nanoTime() + budgetNanos;
+
+        // 1) Greedy result as the first incumbent
+        PaymentSummary greedy = new PaymentSummary(methods);
+        // the table gets a registry over copies, so the caller's method indexes stay as they are
+        List<PaymentMethod> copies = MethodRegistry.copyOf(methods);
+        PaymentProcessor.payByMethod(OrderTable.of(orders, new MethodRegistry(copies)), copies, greedy);
+        long greedyDiscount = 0;
+        for (Order o : orders) {
+            greedyDiscount += o.getValue();
+        }
+        for (long paid : greedy.getPaidByMethod().values()) {
+            greedyDiscount -= paid;
+        }
+
+        // 2) Search for a better one
+        Search search = new Search(orders, methods, greedyDiscount, deadline);
+        search.run();
+        lastOptimal = search.exhausted;
+        lastGap = search.exhausted ? 0 : Math.max(0, search.rootBound - search.best);
+
+        // 3) Write out the best allocation
+        if (search.improved) {
+            search.writeTo(summary);
+        } else {
+            summary.putAll(greedy);
+        }
+    }
+
+    /**
+     * The search state. Orders are visited from the largest value down and the
+     * options of an order are tried from the largest discount down.
+     * The options of order i are numbered as: its full payments with a discount
+     * of at least 10%, the splits (one per card, lowest card discount first), its
+     * full payments with a discount under 10%, then full price with the cards it
+     * has no promotion for.
+     */
+    private static final class Search {
+        private static final int FULL = 0;
+        private static final int SPLIT = 1;
+        private static final int PLAIN = 2;
+
+        private final Order[] orders;
+        private final String[] methodIds;
+        private final int[] discount;
+        private final long[] remaining;
+        // discount earned per grosz of limit, used to bound what the limits can still give
+        private final double[] ratio;
+        private final int punkty;
+        private final int lowest;
+        // cards (methods other than PUNKTY) by discount, lowest first
+        private final int[] cards;
+        // per order: methods it can pay fully at a discount, highest discount first
+        private final int[][] full;
+        private final int[] fullHigh;
+        // per order: the largest discount it can get, summed from order i to the end
+        private final long[] suffixMax;
+        private final long deadline;
+
+        private final int[] choice;
+        private final int[] bestChoice;
+        private long current;
+        private double capacity;
+        long best;
+        long rootBound;
+        boolean improved;
+        boolean exhausted;
+
+        Search(List<Order> orderList, List<PaymentMethod> methods, long incumbent, long deadline) {
+            int n = orderList.size();
+            int m = methods.size();
+            this.deadline = deadline;
+            this.best = incumbent;
+
+            this.orders = orderList.toArray(new Order[0]);
+            // stable, so equal values keep their input order
+            Arrays.sort(orders, Comparator.comparingLong(Order::getValue).reversed());
+
+            this.methodIds = new String[m];
+            this.discount = new int[m];
+            this.remaining = new long[m];
+            this.ratio = new double[m];
+            Map<String, Integer> indexById = new HashMap<>();
+            int punktyIndex = -1;
+            for (int i = 0; i < m; i++) {
+                PaymentMethod pm = methods.get(i);
+                methodIds[i] = pm.getId();
+                discount[i] = pm.getDiscount();
+                remaining[i] = pm.getLimit();
+                indexById.put(pm.getId(), i);
+                if (MethodRegistry.PUNKTY.equals(pm.getId())) {
+                    punktyIndex = i;
+                }
+            }
+            if (punktyIndex < 0) {
+                throw new IllegalStateException("Payment method not found: " + MethodRegistry.PUNKTY);
+            }
+            this.punkty = punktyIndex;
+
+            Integer[] cardOrder = new Integer[m - 1];
+            for (int i = 0, k = 0; i < m; i++) {
+                if (i != punkty) cardOrder[k++] = i;
+            }
+            Arrays.sort(cardOrder, Comparator.comparingInt(i -> discount[i]));
+            this.cards = new int[cardOrder.length];
+            for (int k = 0; k < cards.length; k++) {
+                cards[k] = cardOrder[k];
+            }
+            // same method the greedy falls back to
+            int lowestIndex = punkty;
+            for (int i = 0; i < m; i++) {
+                if (discount[i] <= discount[lowestIndex]) lowestIndex = i;
+            }
+            this.lowest = lowestIndex;
+
+            for (int i = 0; i < m; i++) {
+                ratio[i] = discount[i] >= 100 ? Double.POSITIVE_INFINITY : discount[i] / (100.0 - discount[i]);
+            }
+            // a split earns its points part as discount
+            ratio[punkty] = Math.max(ratio[punkty], 1.0);
+            for (int i = 0; i < m; i++) {
+                capacity += Math.max(0, remaining[i]) * ratio[i];
+            }
+
+            this.full = new int[n][];
+            this.fullHigh = new int[n];
+            this.suffixMax = new long[n + 1];
+            for (int i = n - 1; i >= 0; i--) {
+                Order o = orders[i];
+                Set<Integer> eligible = new LinkedHashSet<>();
+                eligible.add(punkty);
+                if (o.getPromotions() != null) {
+                    for (String promo : o.getPromotions()) {
+                        Integer index = indexById.get(promo);
+                        if (index != null) eligible.add(index);
+                    }
+                }
+                int[] f = eligible.stream()
+                        .sorted(Comparator.comparingInt(this::fullRank)
+                                .thenComparing(Comparator.comparingInt((Integer k) -> discount[k]).reversed()))
+                        .mapToInt(Integer::intValue)
+                        .toArray();
+                int high = 0;
+                long max = 0;
+                for (int k : f) {
+                    if (fullRank(k) == 0) high++;
+                    max = Math.max(max, o.getValue() - Money.discounted(o.getValue(), discount[k]));
+                }
+                full[i] = f;
+                fullHigh[i] = high;
+
+                if (cards.length > 0) {
+                    max = Math.max(max, o.getValue() - Money.discounted(o.getValue(), 10));
+                }
+                suffixMax[i] = suffixMax[i + 1] + max;
+            }
+            this.rootBound = (long) Math.min(suffixMax[0], Math.floor(capacity + n + 1e-6));
+            this.choice = new int[n];
+            this.bestChoice = new int[n];
+        }
+
+        /**
+         * Cards at 10% or more come before the splits; full PUNKTY comes after them,
+         * since points earn more as the 10% part of a split.
+         */
+        private int fullRank(int method) {
+            if (method == punkty) return 1;
+            return discount[method] >= 10 ? 0 : 2;
+        }
+
+        private int optionCount(int i) {
+            return full[i].length + 2 * cards.length;
+        }
+
+        private int kind(int i, int option) {
+            int high = fullHigh[i];
+            if (option < high) return FULL;
+            if (option < high + cards.length) return SPLIT;
+            if (option < full[i].length + cards.length) return FULL;
+            return PLAIN;
+        }
+
+        private int method(int i, int option) {
+            int high = fullHigh[i];
+            if (option < high) return full[i][option];
+            if (option < high + cards.length) return cards[option - high];
+            if (option < full[i].length + cards.length) return full[i][option - cards.length];
+            return cards[option - full[i].length - cards.length];
+        }
+
+        private boolean hasPromotion(int i, int method) {
+            for (int f : full[i]) {
+                if (f == method) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Applies (sign = 1) or reverts (sign = -1) an option of order i.
+         *
+         * @return false if the option does not fit the remaining limits; nothing is applied then
+         */
+        private boolean apply(int i, int option, int sign) {
+            long value = orders[i].getValue();
+            int method;
+            long amount;
+            long points = 0;
+            long earned;
+            if (option == FORCED) {
+                method = lowest;
+                amount = value;
+                earned = 0;
+            } else {
+                method = method(i, option);
+                switch (kind(i, option)) {
+                    case FULL -> {
+                        amount = Money.discounted(value, discount[method]);
+                        earned = value - amount;
+                    }
+                    case SPLIT -> {
+                        long total = Money.discounted(value, 10);
+                        points = Money.percent(value, 10);
+                        amount = total - points;
+                        earned = value - total;
+                    }
+                    default -> {
+                        if (hasPromotion(i, method)) return false;
+                        amount = value;
+                        earned = 0;
+                    }
+                }
+                if (sign > 0) {
+                    if (method == punkty ? remaining[punkty] < amount + points
+                            : remaining[method] < amount || remaining[punkty] < points) {
+                        return false;
+                    }
+                }
+            }
+            move(method, -sign * amount);
+            if (points > 0) move(punkty, -sign * points);
+            current += sign * earned;
+            return true;
+        }
+
+        private void move(int method, long delta) {
+            long before = Math.max(0, remaining[method]);
+            remaining[method] += delta;
+            if (!Double.isInfinite(ratio[method])) {
+                capacity += (Math.max(0, remaining[method]) - before) * ratio[method];
+            }
+        }
+
+        private boolean promising(int next) {
+            // rounding can earn up to a grosz per order more than the limits suggest
+            double bound = current + Math.min(suffixMax[next], capacity + (orders.length - next));
+            return Math.floor(bound + 1e-6) > best;
+        }
+
+        void run() {
+            int n = orders.length;
+            if (n == 0) {
+                exhausted = true;
+                return;
+            }
+            dive();
+            long nodes = 0;
+            int depth = 0;
+            choice[0] = UNVISITED;
+            while (true) {
+                if ((++nodes & 0xFFF) == 0 && System.nanoTime() > deadline) {
+                    return;
+                }
+                if (depth == n) {
+                    if (current > best) {
+                        best = current;
+                        improved = true;
+                        System.arraycopy(choice, 0, bestChoice, 0, n);
+                    }
+                    depth--;
+                    apply(depth, choice[depth], -1);
+                    continue;
+                }
+
+                int i = depth;
+                boolean firstVisit = choice[i] == UNVISITED;
+                boolean anyFits = false;
+                int next = -1;
+                if (choice[i] != FORCED) {
+                    int count = optionCount(i);
+                    for (int option = choice[i] + 1; option < count; option++) {
+                        if (!apply(i, option, 1)) continue;
+                        anyFits = true;
+                        if (promising(i + 1)) {
+                            next = option;
+                            break;
+                        }
+                        apply(i, option, -1);
+                    }
+                    if (next < 0 && firstVisit && !anyFits) {
+                        apply(i, FORCED, 1);
+                        if (promising(i + 1)) {
+                            next = FORCED;
+                        } else {
+                            apply(i, FORCED, -1);
+                        }
+                    }
+                }
+
+                if (next >= 0) {
+                    choice[i] = next;
+                    depth++;
+                    if (depth < n) choice[depth] = UNVISITED;
+                } else {
+                    depth--;
+                    if (depth < 0) {
+                        exhausted = true;
+                        return;
+                    }
+                    apply(depth, choice[depth], -1);
+                }
+            }
+        }
+
+        /**
+         * Builds a full allocation without bounding, so the search has one to beat
+         * even when it cannot get to the bottom of the tree in time. Like the greedy,
+         * every order first gets the first option that earns a discount and fits,
+         * and only then are the rest paid at full price, so full-price payments do
+         * not use up limits that discounts could have used.
+         */
+        private void dive() {
+            int n = orders.length;
+            Arrays.fill(choice, UNVISITED);
+            for (int i = 0; i < n; i++) {
+                int count = optionCount(i);
+                for (int option = 0; option < count; option++) {
+                    if (earns(i, option) && apply(i, option, 1)) {
+                        choice[i] = option;
+                        break;
+                    }
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                if (choice[i] != UNVISITED) continue;
+                choice[i] = FORCED;
+                int count = optionCount(i);
+                for (int option = 0; option < count; option++) {
+                    if (apply(i, option, 1)) {
+                        choice[i] = option;
+                        break;
+                    }
+                }
+                if (choice[i] == FORCED) {
+                    apply(i, FORCED, 1);
+                }
+            }
+            if (current > best) {
+                best = current;
+                improved = true;
+                System.arraycopy(choice, 0, bestChoice, 0, n);
+            }
+            for (int i = n - 1; i >= 0; i--) {
+                apply(i, choice[i], -1);
+            }
+        }
+
+        private boolean earns(int i, int option) {
+            int kind = kind(i, option);
+            return kind == SPLIT || (kind == FULL && discount[method(i, option)] > 0);
+        }
+
+        void writeTo(PaymentSummary summary) {
+            for (int i = 0; i < orders.length; i++) {
+                Order o = orders[i];
+                long value = o.getValue();
+                int option = bestChoice[i];
+                if (option == FORCED) {
+                    summary.putPayment(o.getId(), methodIds[lowest], value);
+                    continue;
+                }
+                int method = method(i, option);
+                switch (kind(i, option)) {
+                    case FULL -> summary.putPayment(o.getId(), methodIds[method], Money.discounted(value, discount[method]));
+                    case SPLIT -> {
+                        long points = Money.percent(value, 10);
+                        summary.putSplitPayment(o.getId(), MethodRegistry.PUNKTY, points,
+                                methodIds[method], Money.discounted(value, 10) - points);
+                    }
+                    default -> summary.putPayment(o.getId(), methodIds[method], value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Loads orders with parsing and preparing them overlapped.
+ * A reader thread parses batches of orders and hands them over through a bounded
+ * queue; when the queue is full the reader waits, so at most {@code queueDepth}
+ * batches are parsed ahead. The calling thread binds each batch to the methods,
+ * sorts it by value and merges it into runs of similar length while the next
+ * batches are being parsed, so only the last few merges wait for the end of the file.
+ * <p>
+ * The orders come back sorted by value, equal values in file order, which is the
+ * order {@link PaymentProcessor#payByMethod} sorts them into, so its sort is a
+ * single pass over already sorted runs and the result is the same as after a serial load.
+ * The allocation itself still starts once all orders are in, because every
+ * phase depends on the limits left by all cheaper orders.
+ */
+public class OrderPipeline {
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+    public static final int DEFAULT_QUEUE_DEPTH = 8;
+
+    private static final Comparator<Order> BY_VALUE = Comparator.comparingLong(Order::getValue);
+    private static final List<Order> END = List.of();
+
+    private final MethodRegistry registry;
+    private final int batchSize;
+    private final int queueDepth;
+    private final Set<String> unknownPromotions = new LinkedHashSet<>();
+
+    /**
+     * Constructor for the OrderPipeline class.
+     *
+     * @param registry   the registry the orders are bound to
+     * @param batchSize  the number of orders the reader hands over at once
+     * @param queueDepth the number of batches the reader may parse ahead
+     */
+    public OrderPipeline(MethodRegistry registry, int batchSize, int queueDepth) {
+        if (batchSize < 1 || queueDepth < 1) {
+            throw new IllegalArgumentException("batch size and queue depth must be positive");
+        }
+        this.registry = registry;
+        this.batchSize = batchSize;
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * Parses, binds and sorts the orders of a file.
+     *
+     * @param parser the parser of the orders file
+     * @return the bound orders, sorted by value
+     * @throws IOException if the file cannot be read
+     */
+    public List<Order> load(JsonFileParser<Order> parser) throws IOException {
+        BlockingQueue<List<Order>> queue = new ArrayBlockingQueue<>(queueDepth);
+        Reader reader = new Reader(parser, queue);
+        Thread thread = new Thread(reader, "order-reader");
+        thread.setDaemon(true);
+        thread.start();
+
+        Deque<Order[]> runs = new ArrayDeque<>();
+        try {
+            for (List<Order> batch = queue.take(); batch != END; batch = queue.take()) {
+                unknownPromotions.addAll(registry.bind(batch));
+                Order[] run = batch.toArray(new Order[0]);
+                Arrays.sort(run, BY_VALUE);
+                push(runs, run);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while loading orders");
+        } finally {
+            // stops a reader still waiting to hand over a batch
+            thread.interrupt();
+        }
+        if (reader.failure != null) {
+            if (reader.failure instanceof IOException e) throw e;
+            if (reader.failure instanceof RuntimeException e) throw e;
+            if (reader.failure instanceof Error e) throw e;
+            throw new IllegalStateException(reader.failure);
+        }
+
+        Order[] sorted = new Order[0];
+        while (!runs.isEmpty()) {
+            sorted = merge(runs.pop(), sorted);
+        }
+        return new ArrayList<>(Arrays.asList(sorted));
+    }
+
+    /**
+     * Returns the promotions that did not match any payment method.
+     *
+     * @return the unknown promotion IDs, in first-seen order
+     */
+    public Set<String> getUnknownPromotions() {
+        return unknownPromotions;
+    }
+
+    /**
+     * Pushes a run and merges the newest runs while the newer one is not shorter,
+     * so the stack holds runs of decreasing length and each order is merged
+     * about log(batches) times in total.
+     */
+    private static void push(Deque<Order[]> runs, Order[] run) {
+        while (!runs.isEmpty() && runs.peek().length <= run.length) {
+            run = merge(runs.pop(), run);
+        }
+        runs.push(run);
+    }
+
+    /**
+     * Merges two sorted runs; on equal values the earlier run goes first.
+     *
+     * @param earlier the run of the orders read first
+     * @param later   the run of the orders read after them
+     * @return the merged run
+     */
+    private static Order[] merge(Order[] earlier, Order[] later) {
+        if (later.length == 0) return earlier;
+        if (earlier.length == 0) return later;
+        Order[] result = new Order[earlier.length + later.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < earlier.length && j < later.length) {
+            result[k++] = later[j].getValue() < earlier[i].getValue() ? later[j++] : earlier[i++];
+        }
+        System.arraycopy(earlier, i, result, k, earlier.length - i);
+        System.arraycopy(later, j, result, k + earlier.length - i, later.length - j);
+        return result;
+    }
+
+    /**
+     * Parses the file into batches and queues them, then the end marker.
+     */
+    private class Reader implements Runnable {
+        private final JsonFileParser<Order> parser;
+        private final BlockingQueue<List<Order>> queue;
+        private volatile Throwable failure;
+
+        Reader(JsonFileParser<Order> parser, BlockingQueue<List<Order>> queue) {
+            this.parser = parser;
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            PaymentMetrics.PhaseTimer timer = PaymentMetrics.start(PaymentMetrics.Phase.PARSE);
+            long count = 0;
+            try (JsonFileParser<Order>.StreamingIterator it = parser.iterator()) {
+                List<Order> batch = new ArrayList<>(batchSize);
+                while (it.hasNext()) {
+                    batch.add(it.next());
+                    if (batch.size() == batchSize) {
+                        queue.put(batch);
+                        count += batch.size();
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    queue.put(batch);
+                    count += batch.size();
+                }
+            } catch (InterruptedException e) {
+                // the consumer gave up
+                return;
+            } catch (UncheckedIOException e) {
+                failure = e.getCause();
+            } catch (IOException | RuntimeException | Error e) {
+                // also errors, so the consumer never waits for an end marker that does not come
+                failure = e;
+            } finally {
+                timer.count(PaymentMetrics.Counter.ORDERS_TOUCHED, count);
+                timer.stop();
+            }
+            try {
+                queue.put(END);
+            } catch (InterruptedException e) {
+                // the consumer gave up
+            }
+        }
+    }
+}
@@ -0,0 +1,455 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+
+import java.util.*;
+
+/**
+ * Columnar store of orders for the allocation engine.
+ * Each order is a row: its id in a string dictionary, its value in grosze,
+ * a bitmask of eligible method indexes and the payment assigned to it.
+ * A payment is either one method paying the whole order, or a split of
+ * a PUNKTY part and a card part.
+ */
+public class OrderTable {
+    private static final int NONE = -1;
+
+    private final String[] methodIds;
+    private final int words;
+
+    private String[] ids;
+    private long[] values;
+    private long[] eligibility;
+    private int size;
+
+    // assigned payment per row
+    private int[] assignedMethod;
+    private long[] assignedAmount;
+    private long[] pointsAmount;
+    private boolean[] split;
+
+    private OrderTable(String[] methodIds, String[] ids, long[] values, long[] eligibility, int size) {
+        this.methodIds = methodIds;
+        this.words = wordsFor(methodIds.length);
+        this.ids = ids;
+        this.values = values;
+        this.eligibility = eligibility;
+        this.size = size;
+        this.assignedMethod = new int[size];
+        this.assignedAmount = new long[size];
+        this.pointsAmount = new long[size];
+        this.split = new boolean[size];
+        clearAssignments();
+    }
+
+    static int wordsFor(int methodCount) {
+        return Math.max(1, (methodCount + 63) >>> 6);
+    }
+
+    /**
+     * Builds a table from already parsed orders.
+     *
+     * @param orders   the list of orders
+     * @param registry the method registry
+     * @return the order table
+     */
+    public static OrderTable of(List<Order> orders, MethodRegistry registry) {
+        Builder builder = new Builder(registry, orders.size());
+        orders.forEach(builder::add);
+        return builder.build();
+    }
+
+    /**
+     * Returns a table over the same rows with its own assignments, so several
+     * engines can allocate the same orders at once. The rows are shared, so
+     * neither table may be sorted or edited while the other is in use.
+     *
+     * @return the table sharing this table's rows
+     */
+    OrderTable withOwnAssignments() {
+        return new OrderTable(methodIds, ids, values, eligibility, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int methodCount() {
+        return methodIds.length;
+    }
+
+    public String getId(int row) {
+        return ids[row];
+    }
+
+    public long getValue(int row) {
+        return values[row];
+    }
+
+    /**
+     * Checks if the order in the given row may be paid with the given method.
+     *
+     * @param row    the row
+     * @param method the method index
+     * @return true if the method is eligible for the order
+     */
+    public boolean isEligible(int row, int method) {
+        return (eligibility[row * words + (method >>> 6)] & (1L << method)) != 0;
+    }
+
+    /**
+     * Returns one word of the eligibility mask of a row.
+     *
+     * @param row  the row
+     * @param word the word, below {@link #wordsFor} of the method count
+     * @return the bits of methods {@code 64 * word} to {@code 64 * word + 63}
+     */
+    long getEligibilityWord(int row, int word) {
+        return eligibility[row * words + word];
+    }
+
+    public boolean isPaid(int row) {
+        return assignedMethod[row] != NONE;
+    }
+
+    /**
+     * Returns the method paying the order, or the card part of a split.
+     *
+     * @param row the row
+     * @return the method index, or -1 if the order is unpaid
+     */
+    public int getAssignedMethod(int row) {
+        return assignedMethod[row];
+    }
+
+    public long getAssignedAmount(int row) {
+        return assignedAmount[row];
+    }
+
+    public boolean isSplit(int row) {
+        return split[row];
+    }
+
+    public long getPointsAmount(int row) {
+        return pointsAmount[row];
+    }
+
+    /**
+     * Assigns a payment to a row.
+     *
+     * @param row    the row
+     * @param method the method index paying the order, or the card part of a split
+     * @param amount the amount paid with that method
+     * @param split  true if part of the order is paid with points
+     * @param points the points part of a split, ignored otherwise
+     * @return true if the assignment differs from the previous one
+     */
+    boolean assign(int row, int method, long amount, boolean split, long points) {
+        long newPoints = split ? points : 0;
+        if (assignedMethod[row] == method && assignedAmount[row] == amount
+                && this.split[row] == split && pointsAmount[row] == newPoints) {
+            return false;
+        }
+        assignedMethod[row] = method;
+        assignedAmount[row] = amount;
+        this.split[row] = split;
+        pointsAmount[row] = newPoints;
+        return true;
+    }
+
+    /**
+     * Removes all assigned payments.
+     */
+    public void clearAssignments() {
+        Arrays.fill(assignedMethod, 0, size, NONE);
+        Arrays.fill(assignedAmount, 0, size, 0);
+        Arrays.fill(pointsAmount, 0, size, 0);
+        Arrays.fill(split, 0, size, false);
+    }
+
+    /**
+     * Sorts the rows by value, keeping the input order among equal values.
+     * Rows that are already in order, as merged by {@link ExternalOrderSorter},
+     * are only checked. Assignments are cleared.
+     */
+    public void sortByValue() {
+        if (isSortedByValue()) {
+            clearAssignments();
+            return;
+        }
+        int[] perm = new int[size];
+        for (int i = 0; i < size; i++) {
+            perm[i] = i;
+        }
+        mergeSort(perm, new int[size], 0, size, values);
+
+        String[] sortedIds = new String[size];
+        long[] sortedValues = new long[size];
+        long[] sortedEligibility = new long[size * words];
+        for (int i = 0; i < size; i++) {
+            int from = perm[i];
+            sortedIds[i] = ids[from];
+            sortedValues[i] = values[from];
+            System.arraycopy(eligibility, from * words, sortedEligibility, i * words, words);
+        }
+        ids = sortedIds;
+        values = sortedValues;
+        eligibility = sortedEligibility;
+        clearAssignments();
+    }
+
+    private boolean isSortedByValue() {
+        for (int row = 1; row < size; row++) {
+            if (values[row] < values[row - 1]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes rows and inserts new ones in one pass, so a sorted table stays sorted:
+     * a new row goes after the kept rows with a lower or equal value, and new rows
+     * with equal values keep their given order. Assignments are cleared.
+     *
+     * @param removed the rows to remove
+     * @param ids     the IDs of the new rows, ordered by value
+     * @param values  the values of the new rows in grosze, ascending
+     * @param masks   the eligibility words of the new rows, as many per row as the table uses
+     * @param count   the number of new rows
+     * @param rowOf   receives the new row of every old row, or -1 if it was removed
+     * @param newRows receives the row of every new row, ascending
+     */
+    void merge(BitSet removed, String[] ids, long[] values, long[] masks, int count, int[] rowOf, int[] newRows) {
+        int newSize = size - removed.cardinality() + count;
+        String[] mergedIds = new String[newSize];
+        long[] mergedValues = new long[newSize];
+        long[] mergedEligibility = new long[newSize * words];
+        int row = 0;
+        int next = 0;
+        for (int old = 0; old <= size; old++) {
+            if (old < size && removed.get(old)) {
+                rowOf[old] = -1;
+                continue;
+            }
+            // new rows go after the kept rows with the same value
+            while (next < count && (old == size || values[next] < this.values[old])) {
+                mergedIds[row] = ids[next];
+                mergedValues[row] = values[next];
+                System.arraycopy(masks, next * words, mergedEligibility, row * words, words);
+                newRows[next++] = row++;
+            }
+            if (old == size) break;
+            mergedIds[row] = this.ids[old];
+            mergedValues[row] = this.values[old];
+            System.arraycopy(eligibility, old * words, mergedEligibility, row * words, words);
+            rowOf[old] = row++;
+        }
+        this.ids = mergedIds;
+        this.values = mergedValues;
+        this.eligibility = mergedEligibility;
+        this.size = newSize;
+        this.assignedMethod = new int[newSize];
+        this.assignedAmount = new long[newSize];
+        this.pointsAmount = new long[newSize];
+        this.split = new boolean[newSize];
+        clearAssignments();
+    }
+
+    /**
+     * Finds the row of an order in a table sorted by value.
+     *
+     * @param id    the order ID
+     * @param value the order value in grosze
+     * @return the row, or -1 if there is no such order
+     */
+    int findRow(String id, long value) {
+        for (int row = lowerBound(value); row < size && values[row] == value; row++) {
+            if (ids[row].equals(id)) return row;
+        }
+        return -1;
+    }
+
+    private int lowerBound(long value) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] < value) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private int upperBound(long value) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] <= value) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private static void mergeSort(int[] a, int[] tmp, int from, int to, long[] keys) {
+        if (to - from < 2) return;
+        int mid = (from + to) >>> 1;
+        mergeSort(a, tmp, from, mid, keys);
+        mergeSort(a, tmp, mid, to, keys);
+        if (keys[a[mid - 1]] <= keys[a[mid]]) return;
+        System.arraycopy(a, from, tmp, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < mid && keys[tmp[i]] <= keys[tmp[j]])) {
+                a[k] = tmp[i++];
+            } else {
+                a[k] = tmp[j++];
+            }
+        }
+    }
+
+    /**
+     * Writes the assigned payments into a payment summary, in row order.
+     * A split is written as its PUNKTY entry followed by its card entry.
+     *
+     * @param summary the payment summary
+     */
+    public void writeTo(PaymentSummary summary) {
+        for (int row = 0; row < size; row++) {
+            writeRowTo(row, summary);
+        }
+    }
+
+    /**
+     * Writes the assigned payment of one row into a payment summary, if it has one.
+     *
+     * @param row     the row
+     * @param summary the payment summary
+     */
+    void writeRowTo(int row, PaymentSummary summary) {
+        int method = assignedMethod[row];
+        if (method == NONE) return;
+        if (split[row]) {
+            summary.putSplitPayment(ids[row], MethodRegistry.PUNKTY, pointsAmount[row],
+                    methodIds[method], assignedAmount[row]);
+        } else {
+            summary.putPayment(ids[row], methodIds[method], assignedAmount[row]);
+        }
+    }
+
+    /**
+     * Collects rows into an order table, growing the columns as needed.
+     * Can be fed straight from {@link JsonFileParser#forEach}.
+     */
+    public static class Builder {
+        private final MethodRegistry registry;
+        private final String[] methodIds;
+        private final int words;
+        private final Set<String> unknownPromotions = new LinkedHashSet<>();
+        private final int punktyIndex;
+
+        private String[] ids;
+        private long[] values;
+        private long[] eligibility;
+        private int size;
+
+        /**
+         * Constructor for the Builder class.
+         *
+         * @param registry         the method registry
+         * @param expectedCapacity the expected number of orders
+         */
+        public Builder(MethodRegistry registry, int expectedCapacity) {
+            this.registry = registry;
+            this.methodIds = new String[registry.size()];
+            for (int i = 0; i < methodIds.length; i++) {
+                methodIds[i] = registry.get(i).getId();
+            }
+            this.words = wordsFor(methodIds.length);
+            this.punktyIndex = registry.indexOf(MethodRegistry.PUNKTY);
+            int capacity = Math.max(16, expectedCapacity);
+            this.ids = new String[capacity];
+            this.values = new long[capacity];
+            this.eligibility = new long[capacity * words];
+        }
+
+        public void add(Order order) {
+            add(order.getId(), order.getValue(), order.getPromotions());
+        }
+
+        /**
+         * Adds an order. Orders without promotions are eligible for PUNKTY only.
+         *
+         * @param id         the order ID
+         * @param value      the order value in grosze
+         * @param promotions the promotion IDs, or null
+         */
+        public void add(String id, long value, String[] promotions) {
+            int row = nextRow();
+            ids[row] = id;
+            values[row] = value;
+            if (promotions == null) {
+                if (punktyIndex >= 0) {
+                    setEligible(row, punktyIndex);
+                }
+                return;
+            }
+            for (String promo : promotions) {
+                int method = registry.indexOf(promo);
+                if (method >= 0) {
+                    setEligible(row, method);
+                } else {
+                    unknownPromotions.add(promo);
+                }
+            }
+        }
+
+        /**
+         * Adds an order whose eligible methods are already known as bitmask words.
+         *
+         * @param id    the order ID
+         * @param value the order value in grosze
+         * @param mask  the eligibility words, as many as the table uses per row
+         */
+        public void add(String id, long value, long[] mask) {
+            int row = nextRow();
+            ids[row] = id;
+            values[row] = value;
+            System.arraycopy(mask, 0, eligibility, row * words, words);
+        }
+
+        /**
+         * Records a promotion ID that matches no payment method.
+         *
+         * @param promotion the promotion ID
+         */
+        public void addUnknownPromotion(String promotion) {
+            unknownPromotions.add(promotion);
+        }
+
+        private int nextRow() {
+            if (size == ids.length) {
+                int capacity = ids.length * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                values = Arrays.copyOf(values, capacity);
+                eligibility = Arrays.copyOf(eligibility, capacity * words);
+            }
+            return size++;
+        }
+
+        private void setEligible(int row, int method) {
+            eligibility[row * words + (method >>> 6)] |= 1L << method;
+        }
+
+        public Set<String> getUnknownPromotions() {
+            return unknownPromotions;
+        }
+
+        public OrderTable build() {
+            return new OrderTable(
+                    methodIds,
+                    Arrays.copyOf(ids, size),
+                    Arrays.copyOf(values, size),
+                    Arrays.copyOf(eligibility, size * words),
+                    size);
+        }
+    }
+}
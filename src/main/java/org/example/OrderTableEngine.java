@@ -0,0 +1,418 @@
+package org.example;
+
+import org.example.jsonClasses.PaymentMethod;
+
+import java.util.*;
+
+/**
+ * Runs the three payment phases of {@link PaymentProcessor} over an {@link OrderTable}.
+ * Remaining limits live in a long array indexed by method index and all scratch
+ * space is allocated once, so the phase loops do not allocate.
+ * The decisions are the same as in the list-based phases.
+ */
+class OrderTableEngine {
+    private final OrderTable table;
+    private final int n;
+    // method indexes sorted by discount, highest first
+    private final int[] methodOrder;
+    private final int[] discount;
+    private final long[] remaining;
+    private final int punkty;
+    private final int lowest;
+    // eligible rows per method index, in value order
+    private final EligibilityIndex candidates;
+
+    // scratch space
+    private final BitSet unpaid;
+    private final BitSet paidThisPass;
+    private final BitSet dropped;
+    private final int[] pending;
+    private final long[] minPts;
+    private final int[] heap;
+    private long modificationCount;
+
+    /**
+     * Constructor for the OrderTableEngine class.
+     *
+     * @param table   the order table, sorted by value
+     * @param methods the payment methods, with indexes assigned by the registry the table was built with
+     */
+    OrderTableEngine(OrderTable table, List<PaymentMethod> methods) {
+        this(table, methods, EligibilityIndex.of(table));
+    }
+
+    /**
+     * Constructor for the OrderTableEngine class with an eligibility index built before,
+     * for engines allocating the same rows.
+     *
+     * @param table      the order table, sorted by value
+     * @param methods    the payment methods, with indexes assigned by the registry the table was built with
+     * @param candidates the eligibility index over the table's rows
+     */
+    OrderTableEngine(OrderTable table, List<PaymentMethod> methods, EligibilityIndex candidates) {
+        this.table = table;
+        this.n = table.size();
+        int m = table.methodCount();
+
+        List<PaymentMethod> sorted = new ArrayList<>(methods);
+        sorted.sort(Comparator.comparingInt(PaymentMethod::getDiscount).reversed());
+        this.methodOrder = new int[m];
+        this.discount = new int[m];
+        this.remaining = new long[m];
+        int punktyIndex = -1;
+        for (int i = 0; i < m; i++) {
+            PaymentMethod pm = sorted.get(i);
+            methodOrder[i] = pm.getIndex();
+            discount[pm.getIndex()] = pm.getDiscount();
+            remaining[pm.getIndex()] = pm.getLimit();
+            if (MethodRegistry.PUNKTY.equals(pm.getId())) {
+                punktyIndex = pm.getIndex();
+            }
+        }
+        if (punktyIndex < 0) {
+            throw new IllegalStateException("Payment method not found: " + MethodRegistry.PUNKTY);
+        }
+        this.punkty = punktyIndex;
+        this.lowest = methodOrder[m - 1];
+        this.candidates = candidates;
+
+        this.unpaid = new BitSet(n);
+        this.paidThisPass = new BitSet(n);
+        this.dropped = new BitSet(n);
+        this.pending = new int[n];
+        this.minPts = new long[n];
+        this.heap = new int[n];
+    }
+
+    /**
+     * Runs all three phases.
+     */
+    void run() {
+        table.clearAssignments();
+        unpaid.set(0, n);
+
+        // 1) Phase: full payment by methods >10%
+        PaymentMetrics.PhaseTimer timer = PaymentMetrics.start(PaymentMetrics.Phase.REORDER);
+        long before = modificationCount;
+        reorder(false);
+        stop(timer, before);
+
+        runLaterPhases();
+    }
+
+    /**
+     * Runs all three phases after a change, starting the first phase where the change is.
+     * Each method of the first phase spends only its own limit, walking its candidates
+     * in value order, so its decisions on the rows before the first changed row stay
+     * as they were, unless its limit or the limit of a method walked before it changed.
+     * Those decisions are taken from the last run, and the walk goes on from the first
+     * changed row. The later phases share the points across all orders, so they run
+     * over the whole table.
+     *
+     * @param last           what the first phase decided in the last run, updated for this one
+     * @param firstRow       the first row that was added, removed or moved since the last run
+     * @param changedMethods the indexes of the methods whose limit changed since the last run
+     */
+    void run(FirstPhase last, int firstRow, BitSet changedMethods) {
+        table.clearAssignments();
+        unpaid.set(0, n);
+
+        PaymentMetrics.PhaseTimer timer = PaymentMetrics.start(PaymentMetrics.Phase.REORDER);
+        long before = modificationCount;
+        resumeReorder(last, Math.min(firstRow, n), changedMethods);
+        stop(timer, before);
+
+        runLaterPhases();
+    }
+
+    private void runLaterPhases() {
+        // 2) Phase: distribute PUNKTY among remaining orders
+        PaymentMetrics.PhaseTimer timer = PaymentMetrics.start(PaymentMetrics.Phase.DISTRIBUTE);
+        long before = modificationCount;
+        split();
+        fullPay();
+        distribute();
+        stop(timer, before);
+
+        // 3) Phase: fallback payment for orders that lost PUNKTY slot
+        timer = PaymentMetrics.start(PaymentMetrics.Phase.FALLBACK);
+        before = modificationCount;
+        fallback();
+        stop(timer, before);
+    }
+
+    private void stop(PaymentMetrics.PhaseTimer timer, long modificationsBefore) {
+        timer.count(PaymentMetrics.Counter.PAYMENTS, modificationCount - modificationsBefore);
+        timer.stop();
+    }
+
+    /**
+     * Assigns a payment to a row and moves the limits accordingly.
+     * Limits are not checked here, callers decide as the list-based phases do.
+     */
+    private boolean assign(int row, int method, long amount, boolean split, long points) {
+        int oldMethod = table.getAssignedMethod(row);
+        long oldAmount = table.getAssignedAmount(row);
+        boolean oldSplit = table.isSplit(row);
+        long oldPoints = table.getPointsAmount(row);
+        if (!table.assign(row, method, amount, split, points)) {
+            return false;
+        }
+        if (oldMethod >= 0) {
+            remaining[oldMethod] += oldAmount;
+            if (oldSplit) remaining[punkty] += oldPoints;
+        }
+        remaining[method] -= amount;
+        if (split) remaining[punkty] -= points;
+        unpaid.clear(row);
+        modificationCount++;
+        return true;
+    }
+
+    private boolean isFullyPunkty(int row) {
+        return table.getAssignedMethod(row) == punkty;
+    }
+
+    /**
+     * Full payment by methods with more than 10% discount.
+     * In the first phase every order is considered; when called again from the
+     * full-pay phase, orders fully paid with PUNKTY are skipped.
+     * The walk over a method stops at the first order that does not fit whenever
+     * the method's remaining limit can only shrink, since later orders cost more.
+     *
+     * @param skipFullyPunkty true to skip orders fully paid with PUNKTY
+     */
+    private void reorder(boolean skipFullyPunkty) {
+        for (int method : methodOrder) {
+            if (discount[method] <= 10) break;
+            // once orders are split, paying with these methods can release their own split entries
+            boolean limitOnlyShrinks = !skipFullyPunkty || (method != punkty && method != lowest);
+            for (int row : candidates.candidates(method)) {
+                if (paidThisPass.get(row) || (skipFullyPunkty && isFullyPunkty(row))) continue;
+                long cost = Money.discounted(table.getValue(row), discount[method]);
+                if (remaining[method] >= cost) {
+                    assign(row, method, cost, false, 0);
+                    paidThisPass.set(row);
+                } else if (limitOnlyShrinks) {
+                    break;
+                }
+            }
+        }
+        paidThisPass.clear();
+    }
+
+    /**
+     * The first phase from the first changed row or method on, as in {@link #reorder}
+     * with nothing paid yet.
+     */
+    private void resumeReorder(FirstPhase last, int firstRow, BitSet changedMethods) {
+        int m = methodOrder.length;
+        // position of the first method walked again from the start
+        int firstMethod = m;
+        int[] position = new int[m];
+        for (int i = 0; i < m; i++) {
+            position[methodOrder[i]] = i;
+            if (firstMethod == m && changedMethods.get(methodOrder[i])) {
+                firstMethod = i;
+            }
+        }
+        last.resize(n, firstRow);
+        for (int row = 0; row < firstRow; row++) {
+            int method = last.method[row];
+            if (method < 0) continue;
+            if (position[method] >= firstMethod) {
+                last.method[row] = FirstPhase.NONE;
+            } else {
+                assign(row, method, Money.discounted(table.getValue(row), discount[method]), false, 0);
+            }
+        }
+        for (int i = 0; i < m; i++) {
+            int method = methodOrder[i];
+            if (discount[method] <= 10) break;
+            int from = 0;
+            if (i < firstMethod) {
+                // the walk stopped before the change
+                if (last.stop[method] < firstRow) continue;
+                from = firstRow;
+            }
+            last.stop[method] = Integer.MAX_VALUE;
+            int[] rows = candidates.candidates(method);
+            int start = Arrays.binarySearch(rows, from);
+            for (int c = start >= 0 ? start : -start - 1; c < rows.length; c++) {
+                int row = rows[c];
+                if (table.isPaid(row)) continue;
+                long cost = Money.discounted(table.getValue(row), discount[method]);
+                if (remaining[method] >= cost) {
+                    assign(row, method, cost, false, 0);
+                    last.method[row] = method;
+                } else {
+                    last.stop[method] = row;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Pays 10% with PUNKTY and the rest with the lowest method for unpaid orders,
+     * dropping the largest 10% requirements while points are short.
+     */
+    private void split() {
+        int count = 0;
+        long requiredMinTotal = 0;
+        for (int row = unpaid.nextSetBit(0); row >= 0; row = unpaid.nextSetBit(row + 1)) {
+            pending[count] = row;
+            minPts[count] = Money.percent(table.getValue(row), 10);
+            requiredMinTotal += minPts[count];
+            count++;
+        }
+        if (count == 0) return;
+
+        long totalPoints = remaining[punkty];
+        dropped.clear(0, count);
+        if (requiredMinTotal > totalPoints) {
+            for (int i = 0; i < count; i++) {
+                heap[i] = i;
+            }
+            for (int i = count / 2 - 1; i >= 0; i--) {
+                siftDown(i, count);
+            }
+            int size = count;
+            while (requiredMinTotal > totalPoints && size > 0) {
+                int worst = heap[0];
+                heap[0] = heap[--size];
+                siftDown(0, size);
+                dropped.set(worst);
+                requiredMinTotal -= minPts[worst];
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (dropped.get(i)) continue;
+            int row = pending[i];
+            assign(row, lowest, table.getValue(row) - minPts[i], true, minPts[i]);
+        }
+    }
+
+    private void siftDown(int slot, int size) {
+        int pos = heap[slot];
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heapBefore(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!heapBefore(heap[child], pos)) break;
+            heap[slot] = heap[child];
+            slot = child;
+        }
+        heap[slot] = pos;
+    }
+
+    private boolean heapBefore(int a, int b) {
+        int cmp = Long.compare(minPts[a], minPts[b]);
+        return cmp > 0 || (cmp == 0 && a < b);
+    }
+
+    /**
+     * Pays orders fully with PUNKTY while points last, rebalancing after each change
+     * the same way {@link FullPayRebalancer} does.
+     */
+    private void fullPay() {
+        boolean settled = false;
+        for (int row = 0; row < n; row++) {
+            long fullCost = Money.discounted(table.getValue(row), discount[punkty]);
+            if (fullCost <= remaining[punkty]) {
+                boolean changed = assign(row, punkty, fullCost, false, 0);
+                if (settled && !changed) continue;
+                long before = modificationCount;
+                reorder(true);
+                split();
+                settled = modificationCount == before;
+            }
+        }
+    }
+
+    /**
+     * Spreads the points left over across the split orders that pay with a card,
+     * in proportion to their value.
+     */
+    private void distribute() {
+        int count = 0;
+        long sumOriginal = 0;
+        for (int row = 0; row < n; row++) {
+            if (table.isSplit(row) && table.getAssignedMethod(row) != punkty) {
+                pending[count] = row;
+                minPts[count] = table.getValue(row);
+                sumOriginal += minPts[count];
+                count++;
+            }
+        }
+        long extra = remaining[punkty];
+        long[] shares = (extra > 0 && sumOriginal > 0)
+                ? Money.allocate(extra, Arrays.copyOf(minPts, count))
+                : null;
+
+        for (int i = 0; i < count; i++) {
+            int row = pending[i];
+            long orig = table.getValue(row);
+            long discountedTotal = Money.discounted(orig, 10);
+            long useP = Money.percent(orig, 10) + (shares != null ? shares[i] : 0);
+            useP = Math.min(useP, discountedTotal);
+            long useL = discountedTotal - useP;
+            assign(row, lowest, useL, true, useP);
+        }
+    }
+
+    /**
+     * Pays the remaining orders with the first eligible method that still has room,
+     * or with the lowest method at full price.
+     */
+    private void fallback() {
+        int m = methodOrder.length;
+        for (int row = 0; row < n; row++) {
+            if (table.isPaid(row)) continue;
+            boolean paid = false;
+            for (int i = 0; i < m; i++) {
+                int method = methodOrder[i];
+                if (!table.isEligible(row, method)) continue;
+                long cost = Money.discounted(table.getValue(row), discount[method]);
+                if (remaining[method] >= cost) {
+                    assign(row, method, cost, false, 0);
+                    paid = true;
+                    break;
+                }
+            }
+            if (!paid) {
+                assign(row, lowest, table.getValue(row), false, 0);
+            }
+        }
+    }
+
+    /**
+     * What the first phase decided, kept by {@link AllocationSession} between runs.
+     */
+    static final class FirstPhase {
+        static final int NONE = -1;
+
+        // per row, the method the first phase paid it with
+        private int[] method = new int[0];
+        // per method index, the row its walk stopped at
+        private final int[] stop;
+
+        FirstPhase(int methodCount) {
+            this.stop = new int[methodCount];
+            Arrays.fill(stop, Integer.MAX_VALUE);
+        }
+
+        /**
+         * Sizes the rows for a table of the given size and forgets the rows from the first changed one.
+         */
+        void resize(int size, int firstRow) {
+            if (method.length < size) {
+                method = Arrays.copyOf(method, Math.max(size, 2 * method.length));
+            }
+            Arrays.fill(method, firstRow, method.length, NONE);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.example;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits an index range in halves on a ForkJoinPool until the pieces are
+ * small enough, and runs a body over each piece.
+ */
+final class ParallelRange extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Work done over a sub-range [from, to).
+     */
+    interface Body {
+        void run(int from, int to);
+    }
+
+    private final transient Body body;
+    private final int from;
+    private final int to;
+    private final int threshold;
+
+    private ParallelRange(Body body, int from, int to, int threshold) {
+        this.body = body;
+        this.from = from;
+        this.to = to;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Runs the body over [0, size) and waits for all pieces to finish.
+     *
+     * @param pool      the pool to run on
+     * @param size      the size of the range
+     * @param threshold the largest piece run without splitting further
+     * @param body      the work to run over each piece
+     */
+    static void run(ForkJoinPool pool, int size, int threshold, Body body) {
+        if (size == 0) return;
+        pool.invoke(new ParallelRange(body, 0, size, Math.max(1, threshold)));
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= threshold) {
+            body.run(from, to);
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        invokeAll(new ParallelRange(body, from, mid, threshold),
+                new ParallelRange(body, mid, to, threshold));
+    }
+}
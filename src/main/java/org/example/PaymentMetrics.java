@@ -0,0 +1,318 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-phase metrics of the allocation and of order parsing.
+ * Counters are {@link LongAdder}s, so phases may record from several threads.
+ * Metrics are off by default; then {@link #start} hands out a shared no-op timer
+ * and every record call returns after reading one static flag.
+ * Phases are expected to count in local variables and record once at the end.
+ */
+public final class PaymentMetrics {
+
+    /**
+     * The instrumented phases.
+     */
+    public enum Phase {
+        PARSE,
+        REORDER,
+        DISTRIBUTE,
+        FALLBACK
+    }
+
+    /**
+     * What a phase counts.
+     */
+    public enum Counter {
+        /** Orders looked at, once per look; parsed elements for {@link Phase#PARSE}. */
+        ORDERS_TOUCHED,
+        /** Walks over the order list after the first one. */
+        RESCANS,
+        /** Payment entries put into the summary. */
+        PAYMENTS,
+        /** Orders a method could not pay because its remaining limit was too low. */
+        LIMIT_EXHAUSTED
+    }
+
+    /**
+     * What the {@link ResultCache} counts.
+     */
+    public enum CacheCounter {
+        MEMORY_HITS,
+        DISK_HITS,
+        MISSES,
+        /** Results dropped from memory or disk to stay within capacity. */
+        EVICTIONS,
+        /** Results dropped by {@link ResultCache#invalidate}. */
+        INVALIDATIONS
+    }
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final PhaseTimer NO_OP = new PhaseTimer(null);
+
+    private static volatile boolean enabled;
+    private static volatile boolean jfrEvents;
+
+    private static final LongAdder[] runs = adders(Phase.values().length);
+    private static final LongAdder[] wallNanos = adders(Phase.values().length);
+    private static final LongAdder[] allocatedBytes = adders(Phase.values().length);
+    private static final LongAdder[][] counters = new LongAdder[Phase.values().length][];
+    private static final LongAdder remainingLimitCalls = new LongAdder();
+    private static final LongAdder[] cacheCounters = adders(CacheCounter.values().length);
+
+    static {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = adders(Counter.values().length);
+        }
+    }
+
+    private PaymentMetrics() {}
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] result = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = new LongAdder();
+        }
+        return result;
+    }
+
+    /**
+     * Turns metrics on.
+     *
+     * @param withJfrEvents true to also emit a JFR event per phase run
+     */
+    public static void enable(boolean withJfrEvents) {
+        jfrEvents = withJfrEvents;
+        enabled = true;
+    }
+
+    public static void disable() {
+        enabled = false;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Clears all counters.
+     */
+    public static void reset() {
+        for (Phase phase : Phase.values()) {
+            runs[phase.ordinal()].reset();
+            wallNanos[phase.ordinal()].reset();
+            allocatedBytes[phase.ordinal()].reset();
+            for (LongAdder adder : counters[phase.ordinal()]) {
+                adder.reset();
+            }
+        }
+        remainingLimitCalls.reset();
+        for (LongAdder adder : cacheCounters) {
+            adder.reset();
+        }
+    }
+
+    /**
+     * Starts timing a run of a phase.
+     *
+     * @param phase the phase
+     * @return the timer to count into and stop, a no-op one when metrics are off
+     */
+    public static PhaseTimer start(Phase phase) {
+        return enabled ? new PhaseTimer(phase) : NO_OP;
+    }
+
+    /**
+     * Counts a call to {@link PaymentSummary#getRemainingLimit}.
+     */
+    static void countRemainingLimitCall() {
+        if (enabled) {
+            remainingLimitCalls.increment();
+        }
+    }
+
+    /**
+     * Counts one result cache event.
+     *
+     * @param counter the counter
+     */
+    static void countCache(CacheCounter counter) {
+        countCache(counter, 1);
+    }
+
+    /**
+     * Adds to a result cache counter.
+     *
+     * @param counter the counter
+     * @param amount  the amount to add
+     */
+    static void countCache(CacheCounter counter, long amount) {
+        if (enabled && amount != 0) {
+            cacheCounters[counter.ordinal()].add(amount);
+        }
+    }
+
+    /**
+     * Returns the counters as nested maps, by phase and counter name.
+     *
+     * @return the current values
+     */
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> phases = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            int p = phase.ordinal();
+            Map<String, Long> values = new LinkedHashMap<>();
+            values.put("runs", runs[p].sum());
+            values.put("wallNanos", wallNanos[p].sum());
+            values.put("allocatedBytes", allocatedBytes[p].sum());
+            for (Counter counter : Counter.values()) {
+                values.put(camelCase(counter.name()), counters[p][counter.ordinal()].sum());
+            }
+            phases.put(camelCase(phase.name()), values);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("phases", phases);
+        result.put("remainingLimitCalls", remainingLimitCalls.sum());
+        Map<String, Long> cache = new LinkedHashMap<>();
+        for (CacheCounter counter : CacheCounter.values()) {
+            cache.put(camelCase(counter.name()), cacheCounters[counter.ordinal()].sum());
+        }
+        result.put("resultCache", cache);
+        return result;
+    }
+
+    /**
+     * Returns the counters as JSON.
+     *
+     * @return the JSON text
+     */
+    public static String toJson() {
+        return GSON.toJson(snapshot());
+    }
+
+    private static String camelCase(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        boolean upper = false;
+        for (char c : name.toCharArray()) {
+            if (c == '_') {
+                upper = true;
+            } else {
+                sb.append(upper ? c : Character.toLowerCase(c));
+                upper = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Times one run of a phase and collects its counts until it is stopped.
+     */
+    public static class PhaseTimer {
+        private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+        private final Phase phase;
+        private final long startNanos;
+        private final long startBytes;
+        private final PhaseEvent event;
+
+        private PhaseTimer(Phase phase) {
+            this.phase = phase;
+            if (phase == null) {
+                this.startNanos = 0;
+                this.startBytes = 0;
+                this.event = null;
+                return;
+            }
+            this.startBytes = allocatedBytes();
+            if (jfrEvents) {
+                this.event = new PhaseEvent();
+                event.begin();
+            } else {
+                this.event = null;
+            }
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * Adds to a counter of the phase.
+         *
+         * @param counter the counter
+         * @param amount  the amount to add
+         */
+        public void count(Counter counter, long amount) {
+            if (phase == null || amount == 0) return;
+            counters[phase.ordinal()][counter.ordinal()].add(amount);
+            if (event != null) {
+                switch (counter) {
+                    case ORDERS_TOUCHED -> event.ordersTouched += amount;
+                    case RESCANS -> event.rescans += amount;
+                    case PAYMENTS -> event.payments += amount;
+                    case LIMIT_EXHAUSTED -> event.limitExhausted += amount;
+                }
+            }
+        }
+
+        /**
+         * Stops the timer and records the run.
+         */
+        public void stop() {
+            if (phase == null) return;
+            long elapsed = System.nanoTime() - startNanos;
+            long bytes = Math.max(0, allocatedBytes() - startBytes);
+            int p = phase.ordinal();
+            runs[p].increment();
+            wallNanos[p].add(elapsed);
+            allocatedBytes[p].add(bytes);
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.phase = phase.name();
+                    event.allocatedBytes = bytes;
+                    event.commit();
+                }
+            }
+        }
+
+        private static long allocatedBytes() {
+            if (THREADS instanceof com.sun.management.ThreadMXBean threads) {
+                return threads.getCurrentThreadAllocatedBytes();
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * JFR event for one run of a phase.
+     */
+    @Name("org.example.PaymentPhase")
+    @Label("Payment Phase")
+    @Category("Payments")
+    @Description("One run of an allocation or parsing phase")
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+        @Label("Orders Touched")
+        long ordersTouched;
+        @Label("Rescans")
+        long rescans;
+        @Label("Payments")
+        long payments;
+        @Label("Limit Exhausted")
+        long limitExhausted;
+        @Label("Allocated Bytes")
+        long allocatedBytes;
+    }
+}
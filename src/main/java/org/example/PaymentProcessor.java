@@ -5,6 +5,8 @@ import org.example.jsonClasses.PaymentMethod;
 import java.util.stream.Collectors;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
 
 public class PaymentProcessor {
     private PaymentProcessor() {}
@@ -17,25 +19,58 @@ public class PaymentProcessor {
      * @param summary the payment summary
      */
     public static void payByMethod(List<Order> orders, List<PaymentMethod> methods, PaymentSummary summary) {
+        payByMethod(orders, methods, summary, ExecutionMode.SEQUENTIAL);
+    }
+
+    /**
+     * Processes the payments for the given orders using the available payment methods.
+     * In parallel mode the eligibility masks and the fallback phase run on the common ForkJoinPool.
+     *
+     * @param orders  the list of orders to be paid
+     * @param methods the list of available payment methods
+     * @param summary the payment summary
+     * @param mode    sequential or parallel execution
+     */
+    public static void payByMethod(List<Order> orders,
+                                   List<PaymentMethod> methods,
+                                   PaymentSummary summary,
+                                   ExecutionMode mode) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        if (mode == ExecutionMode.PARALLEL) {
+            MethodRegistry.ensureBound(orders, methods, pool);
+        } else {
+            MethodRegistry.ensureBound(orders, methods);
+        }
+
         methods.sort(
                 Comparator.comparingInt(PaymentMethod::getDiscount)
                         .reversed()
         );
 
         orders.sort(
-                Comparator.comparingDouble(Order::getValue)
+                Comparator.comparingLong(Order::getValue)
         );
+        EligibilityIndex index = EligibilityIndex.of(orders, methods.size());
 
         // 1) Phase: full payment by methods >10%
-        paymentReorder(orders, methods, summary);
+        logPhase(summary, DecisionLog.Reason.REORDER);
+        paymentReorder(orders, methods, summary, index);
 
         // 2) Phase: distribute PUNKTY among remaining orders
         PaymentMethod punkty = findMethod(methods, "PUNKTY");
         PaymentMethod lowest = methods.getLast();
-        distributePunktyWithFallback(orders, methods, punkty, lowest, summary);
+        logPhase(summary, DecisionLog.Reason.SPLIT);
+        distributePunktyWithFallback(orders, methods, punkty, lowest, summary, index);
 
         // 3) Phase: fallback payment for orders that lost PUNKTY slot
-        payFallbackOrders(orders, methods, summary);
+        logPhase(summary, DecisionLog.Reason.FALLBACK);
+        if (mode == ExecutionMode.PARALLEL) {
+            payFallbackOrdersParallel(orders, methods, summary, pool);
+        } else {
+            payFallbackOrders(orders, methods, summary);
+        }
+
+        logPhase(summary, DecisionLog.Reason.OTHER);
 
         // report unpaid orders
 //        reportUnpaid(orders, summary);
@@ -43,6 +78,31 @@ public class PaymentProcessor {
 
     }
 
+    /**
+     * Processes the payments for the orders of a columnar table.
+     * Runs the same three phases as {@link #payByMethod(List, List, PaymentSummary)}
+     * over primitive columns and writes the result into the summary.
+     * The table is sorted by value in place; the list of methods is not modified.
+     *
+     * @param table   the order table, built with the registry of the given methods
+     * @param methods the list of available payment methods
+     * @param summary the payment summary
+     */
+    public static void payByMethod(OrderTable table, List<PaymentMethod> methods, PaymentSummary summary) {
+        table.sortByValue();
+        new OrderTableEngine(table, methods).run();
+        table.writeTo(summary);
+    }
+
+    /**
+     * Tags the following changes with a decision point and records the limits
+     * the phase starts from, when the summary has a decision log.
+     */
+    private static void logPhase(PaymentSummary summary, DecisionLog.Reason reason) {
+        summary.setDecisionReason(reason);
+        summary.logLimitSnapshot();
+    }
+
     /**
      * Reorders the payments for the given orders using the available payment methods.
      *
@@ -50,24 +110,54 @@ public class PaymentProcessor {
      * @param methods the list of available payment methods
      * @param summary the payment summary
      */
-    private static void paymentReorder(List<Order> orders, List<PaymentMethod> methods, PaymentSummary summary) {
-        List<Order> unpaid = new ArrayList<>(orders);
+    static void paymentReorder(List<Order> orders, List<PaymentMethod> methods, PaymentSummary summary) {
+        paymentReorder(orders, methods, summary, EligibilityIndex.of(orders, methods.size()));
+    }
+
+    /**
+     * Reorders the payments for the given orders using the available payment methods,
+     * walking only the eligible orders of each method.
+     *
+     * @param orders  the list of orders to be paid
+     * @param methods the list of available payment methods
+     * @param summary the payment summary
+     * @param index   the eligibility index over the orders
+     */
+    static void paymentReorder(List<Order> orders,
+                               List<PaymentMethod> methods,
+                               PaymentSummary summary,
+                               EligibilityIndex index) {
+        PaymentMetrics.PhaseTimer timer = PaymentMetrics.start(PaymentMetrics.Phase.REORDER);
+        long touched = 0;
+        long passes = 0;
+        long exhausted = 0;
+        long payments = 0;
+        summary.setDecisionReason(DecisionLog.Reason.REORDER);
+        BitSet paid = new BitSet(orders.size());
         for (PaymentMethod pm : methods) {
             if (pm.getDiscount() <= 10) break;
-            Iterator<Order> it = unpaid.iterator();
-            while (it.hasNext()) {
-                Order o = it.next();
-                if (!supports(o, pm)) continue;
-                double cost = o.getValue() * (1 - pm.getDiscount() / 100.0);
-                if (summary.getRemainingLimit(pm.getId()) >= cost) {
+            passes++;
+            for (int pos : index.candidates(pm.getIndex())) {
+                if (paid.get(pos)) continue;
+                Order o = orders.get(pos);
+                touched++;
+                long cost = Money.discounted(o.getValue(), pm.getDiscount());
+                if (summary.getRemainingLimit(pm.getId()) < cost) {
+                    exhausted++;
+                } else {
 //                    System.out.printf("Order %s paid by %s: %.2f -> %.2f, left=%.2f%n",
 //                            o.getId(), pm.getId(), o.getValue(), cost, summary.getRemainingLimit(pm.getId()));
-                    PaymentSummary.PaymentEntry entry = new PaymentSummary.PaymentEntry(pm.getId(), cost);
-                    summary.putPaymentEntries(o.getId(), List.of(entry));
-                    it.remove();
+                    summary.putPayment(o.getId(), pm.getId(), cost);
+                    payments++;
+                    paid.set(pos);
                 }
             }
         }
+        timer.count(PaymentMetrics.Counter.ORDERS_TOUCHED, touched);
+        timer.count(PaymentMetrics.Counter.RESCANS, Math.max(0, passes - 1));
+        timer.count(PaymentMetrics.Counter.LIMIT_EXHAUSTED, exhausted);
+        timer.count(PaymentMetrics.Counter.PAYMENTS, payments);
+        timer.stop();
     }
 
     /**
@@ -79,7 +169,7 @@ public class PaymentProcessor {
      */
     public static List<Order> filterUnpaidOrders(List<Order> orders, PaymentSummary summary) {
         return orders.stream()
-                .filter(o -> summary.getPaymentsForOrder(o.getId()).isEmpty())
+                .filter(o -> !summary.isPaid(o.getId()))
                 .collect(Collectors.toList());
     }
 
@@ -96,16 +186,11 @@ public class PaymentProcessor {
             PaymentSummary summary,
             String punktyMethodId) {
         // Filter orders that have both PUNKTY and other payment methods
+        PaymentSummary.PaymentView view = summary.newView();
         return orders.stream()
-                .filter(o -> {
-                    List<PaymentSummary.PaymentEntry> payments =
-                            summary.getPaymentsForOrder(o.getId());
-                    boolean hasPunkty = payments.stream()
-                            .anyMatch(e -> e.getMethodId().equals(punktyMethodId));
-                    boolean hasOther  = payments.stream()
-                            .anyMatch(e -> !e.getMethodId().equals(punktyMethodId));
-                    return hasPunkty && hasOther;
-                })
+                .filter(o -> view.moveTo(o.getId())
+                        && view.has(punktyMethodId)
+                        && !view.isOnly(punktyMethodId))
                 .collect(Collectors.toList());
     }
 
@@ -122,13 +207,9 @@ public class PaymentProcessor {
             PaymentSummary summary,
             String punktyMethodId) {
         // Filter orders that are not fully paid with PUNKTY
+        PaymentSummary.PaymentView view = summary.newView();
         return orders.stream()
-                .filter(o -> {
-                    List<PaymentSummary.PaymentEntry> payments =
-                            summary.getPaymentsForOrder(o.getId());
-                    return !( !payments.isEmpty()
-                            && payments.stream().allMatch(e -> e.getMethodId().equals(punktyMethodId)) );
-                })
+                .filter(o -> !(view.moveTo(o.getId()) && view.isOnly(punktyMethodId)))
                 .collect(Collectors.toList());
     }
 
@@ -144,50 +225,66 @@ public class PaymentProcessor {
      * @param lowest  the lowest discount payment method
      * @param summary the payment summary
      */
-    private static void distributePunktyWithFallback(
+    static void distributePunktyWithFallback(
             List<Order> orders,
             List<PaymentMethod> methods,
             PaymentMethod punkty,
             PaymentMethod lowest,
             PaymentSummary summary) {
+        distributePunktyWithFallback(orders, methods, punkty, lowest, summary,
+                EligibilityIndex.of(orders, methods.size()));
+    }
+
+    /**
+     * Distributes PUNKTY among orders that couldn't be fully paid,
+     * reusing an eligibility index built over the orders.
+     *
+     * @param orders  the list of unpaid orders
+     * @param methods the list of available payment methods
+     * @param punkty  the PUNKTY payment method
+     * @param lowest  the lowest discount payment method
+     * @param summary the payment summary
+     * @param index   the eligibility index over the orders
+     */
+    static void distributePunktyWithFallback(
+            List<Order> orders,
+            List<PaymentMethod> methods,
+            PaymentMethod punkty,
+            PaymentMethod lowest,
+            PaymentSummary summary,
+            EligibilityIndex index) {
+        PaymentMetrics.PhaseTimer timer = PaymentMetrics.start(PaymentMetrics.Phase.DISTRIBUTE);
+        long before = summary.getModificationCount();
 
-        splitPunkty10percent(orders, punkty, lowest, summary);
+        List<Order> unpaid = filterUnpaidOrders(orders, summary);
+        int dropped = splitUnpaid(unpaid, punkty, lowest, summary);
+        long touched = unpaid.size();
 
         // FULL-PAY PHASE
-        Iterator<Order> fpIt = orders.iterator();
-        while (fpIt.hasNext()) {
-            Order o = fpIt.next();
-            double fullCost = o.getValue() * (1 - punkty.getDiscount() / 100.0);
-            if (fullCost <= summary.getRemainingLimit(punkty.getId())) {
-                PaymentSummary.PaymentEntry entry = new PaymentSummary.PaymentEntry(punkty.getId(), fullCost);
-                summary.putPaymentEntries(o.getId(), List.of(entry));
-//                System.out.printf(
-//                        "Order %s fully paid by %s (extra): cost=%.2f, left pts=%.2f%n",
-//                        o.getId(), punkty.getId(), fullCost, summary.getRemainingLimit(punkty.getId())
-//                );
-                List<Order> notFullyPaid = filterNotFullyPunktyPaidOrders(orders, summary, punkty.getId());
-                paymentReorder(notFullyPaid, methods, summary);
-                splitPunkty10percent(orders, punkty, lowest, summary);
-
-            }
-        }
+        FullPayRebalancer rebalancer = new FullPayRebalancer(orders, methods, punkty, lowest, summary, index);
+        rebalancer.run();
+        touched += rebalancer.getTouchedCount();
 
         List<Order> mixedOrders = filterMixedPaymentOrders(orders, summary, punkty.getId());
 
         // DISTRIBUTE PHASE
-        double extra = summary.getRemainingLimit(punkty.getId());
-        double sumOriginal = mixedOrders.stream().mapToDouble(Order::getValue).sum();
-
-        for (Order order : mixedOrders) {
-            double orig            = order.getValue();
-            double discountedTotal = orig * 0.90;
-            double useP = orig * 0.10;
+        logPhase(summary, DecisionLog.Reason.DISTRIBUTE);
+        long extra = summary.getRemainingLimit(punkty.getId());
+        long[] weights = mixedOrders.stream().mapToLong(Order::getValue).toArray();
+        long sumOriginal = Arrays.stream(weights).sum();
+        long[] shares = (extra > 0 && sumOriginal > 0)
+                ? Money.allocate(extra, weights)
+                : new long[weights.length];
+
+        for (int i = 0; i < mixedOrders.size(); i++) {
+            Order order = mixedOrders.get(i);
+            touched++;
+            long orig            = order.getValue();
+            long discountedTotal = Money.discounted(orig, 10);
+            long useP = Money.percent(orig, 10) + shares[i];
 
-            if (extra > 0 && sumOriginal > 0) {
-                useP += extra * (orig / sumOriginal);
-            }
             useP = Math.min(useP, discountedTotal);
-            double useL = discountedTotal - useP;
+            long useL = discountedTotal - useP;
 
 //            System.out.printf(
 //                    "Order %s: punkty=%.2f, card=%.2f; limits -> %s=%.2f, %s=%.2f%n",
@@ -197,10 +294,14 @@ public class PaymentProcessor {
 //                    lowest.getId(), summary.getRemainingLimit(lowest.getId())
 //            );
 
-            PaymentSummary.PaymentEntry entryP = new PaymentSummary.PaymentEntry(punkty.getId(), useP);
-            PaymentSummary.PaymentEntry entryL = new PaymentSummary.PaymentEntry(lowest.getId(), useL);
-            summary.putPaymentEntries(order.getId(), List.of(entryP, entryL));
+            summary.putSplitPayment(order.getId(), punkty.getId(), useP, lowest.getId(), useL);
         }
+
+        timer.count(PaymentMetrics.Counter.ORDERS_TOUCHED, touched);
+        timer.count(PaymentMetrics.Counter.RESCANS, 2 + rebalancer.getRebalanceCount());
+        timer.count(PaymentMetrics.Counter.LIMIT_EXHAUSTED, dropped);
+        timer.count(PaymentMetrics.Counter.PAYMENTS, summary.getModificationCount() - before);
+        timer.stop();
     }
 
     /**
@@ -211,30 +312,90 @@ public class PaymentProcessor {
      * @param punkty  the PUNKTY payment method
      * @param lowest  the lowest discount payment method
      * @param summary the payment summary
+     * @return the number of orders left unpaid because the points were short
      */
-    private static void splitPunkty10percent(List<Order> orders, PaymentMethod punkty, PaymentMethod lowest, PaymentSummary summary) {
-        List<Order> unpaid = filterUnpaidOrders(orders, summary);
-        Map<Order, Double> minMap = new HashMap<>();
-        double requiredMinTotal = 0;
-        for (Order order : unpaid) {
-            double minPts = order.getValue() * 0.10;
-            minMap.put(order, minPts);
-            requiredMinTotal += minPts;
+    static int splitPunkty10percent(List<Order> orders, PaymentMethod punkty, PaymentMethod lowest, PaymentSummary summary) {
+        return splitUnpaid(filterUnpaidOrders(orders, summary), punkty, lowest, summary);
+    }
+
+    /**
+     * Splits the PUNKTY payment for orders already known to be unpaid.
+     *
+     * @param unpaid  the unpaid orders
+     * @param punkty  the PUNKTY payment method
+     * @param lowest  the lowest discount payment method
+     * @param summary the payment summary
+     * @return the number of orders left unpaid because the points were short
+     */
+    private static int splitUnpaid(List<Order> unpaid, PaymentMethod punkty, PaymentMethod lowest, PaymentSummary summary) {
+        summary.setDecisionReason(DecisionLog.Reason.SPLIT);
+        int n = unpaid.size();
+        long[] minPts = new long[n];
+        long requiredMinTotal = 0;
+        for (int i = 0; i < n; i++) {
+            minPts[i] = Money.percent(unpaid.get(i).getValue(), 10);
+            requiredMinTotal += minPts[i];
+        }
+
+        // drop the orders with the largest 10% requirement until the points cover the rest
+        long totalPoints = summary.getRemainingLimit(punkty.getId());
+        boolean[] dropped = new boolean[n];
+        int droppedCount = 0;
+        if (requiredMinTotal > totalPoints) {
+            int[] heap = new int[n];
+            for (int i = 0; i < n; i++) {
+                heap[i] = i;
+            }
+            for (int i = n / 2 - 1; i >= 0; i--) {
+                siftDown(heap, i, n, minPts);
+            }
+            int size = n;
+            while (requiredMinTotal > totalPoints && size > 0) {
+                int worst = heap[0];
+                heap[0] = heap[--size];
+                siftDown(heap, 0, size, minPts);
+                dropped[worst] = true;
+                droppedCount++;
+                requiredMinTotal -= minPts[worst];
+            }
         }
 
-        double totalPoints = summary.getRemainingLimit(punkty.getId());
-        List<Order> punktyOrders = new ArrayList<>(unpaid);
-        while (requiredMinTotal > totalPoints && !punktyOrders.isEmpty()) {
-            Order worst = Collections.max(punktyOrders, Comparator.comparingDouble(minMap::get));
-            punktyOrders.remove(worst);
-            requiredMinTotal -= minMap.get(worst);
+        for (int i = 0; i < n; i++) {
+            if (dropped[i]) continue;
+            Order order = unpaid.get(i);
+            summary.putSplitPayment(order.getId(), punkty.getId(), minPts[i], lowest.getId(), order.getValue() - minPts[i]);
         }
+        return droppedCount;
+    }
 
-        for (Order order : punktyOrders) {
-            PaymentSummary.PaymentEntry entryP = new PaymentSummary.PaymentEntry(punkty.getId(), order.getValue() * 0.10);
-            PaymentSummary.PaymentEntry entryL = new PaymentSummary.PaymentEntry(lowest.getId(), order.getValue() * 0.90);
-            summary.putPaymentEntries(order.getId(), List.of(entryP, entryL));
+    /**
+     * Restores the max-heap property below the given slot.
+     * Larger requirements come first; ties go to the earlier order,
+     * matching what Collections.max would pick.
+     *
+     * @param heap   the heap of order positions
+     * @param slot   the slot to sift down from
+     * @param size   the number of positions in the heap
+     * @param minPts the 10% requirement per position
+     */
+    private static void siftDown(int[] heap, int slot, int size, long[] minPts) {
+        int pos = heap[slot];
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heapBefore(heap[child + 1], heap[child], minPts)) {
+                child++;
+            }
+            if (!heapBefore(heap[child], pos, minPts)) break;
+            heap[slot] = heap[child];
+            slot = child;
         }
+        heap[slot] = pos;
+    }
+
+    private static boolean heapBefore(int a, int b, long[] minPts) {
+        int cmp = Long.compare(minPts[a], minPts[b]);
+        return cmp > 0 || (cmp == 0 && a < b);
     }
 
     /**
@@ -245,10 +406,15 @@ public class PaymentProcessor {
      * @param methods the list of available payment methods
      * @param summary the payment summary
      */
-    private static void payFallbackOrders(List<Order> orders,
+    static void payFallbackOrders(List<Order> orders,
                                           List<PaymentMethod> methods,
                                           PaymentSummary summary) {
+        PaymentMetrics.PhaseTimer timer = PaymentMetrics.start(PaymentMetrics.Phase.FALLBACK);
+        summary.setDecisionReason(DecisionLog.Reason.FALLBACK);
+        long exhausted = 0;
+        long touched = 0;
         List<Order> unpaid = filterUnpaidOrders(orders, summary);
+        int payments = unpaid.size();
         Iterator<Order> it = unpaid.iterator();
         while (it.hasNext()) {
             Order o = it.next();
@@ -258,13 +424,12 @@ public class PaymentProcessor {
                 if (!supports(o, pm)) {
                     continue;
                 }
-                double discount = pm.getDiscount() / 100.0;
-                double cost = (discount > 0)
-                        ? o.getValue() * (1 - discount)
-                        : o.getValue();
-                if (summary.getRemainingLimit(pm.getId()) >= cost) {
-                    PaymentSummary.PaymentEntry entry = new PaymentSummary.PaymentEntry(pm.getId(), cost);
-                    summary.putPaymentEntries(o.getId(), List.of(entry));
+                touched++;
+                long cost = Money.discounted(o.getValue(), pm.getDiscount());
+                if (summary.getRemainingLimit(pm.getId()) < cost) {
+                    exhausted++;
+                } else {
+                    summary.putPayment(o.getId(), pm.getId(), cost);
 //                    System.out.printf(
 //                            "Fallback: Order %s paid by %s: cost=%.2f, left=%.2f%n",
 //                            o.getId(), pm.getId(), cost, summary.getRemainingLimit(pm.getId())
@@ -276,9 +441,9 @@ public class PaymentProcessor {
             if (!paid) {
                 // if none of the methods could, write off the full price lowest (but do not go into negative territory)
                 PaymentMethod lowest = methods.getLast();
-                double cost = o.getValue();
-                PaymentSummary.PaymentEntry entry = new PaymentSummary.PaymentEntry(lowest.getId(), cost);
-                summary.putPaymentEntries(o.getId(), List.of(entry));
+                touched++;
+                long cost = o.getValue();
+                summary.putPayment(o.getId(), lowest.getId(), cost);
 //                System.out.printf(
 //                        "Fallback final: Order %s forced paid by %s full=%.2f, left=%.2f%n",
 //                        o.getId(), lowest.getId(), cost, lowest.getLimit()
@@ -287,6 +452,78 @@ public class PaymentProcessor {
             // Removing it from the fallback
             it.remove();
         }
+        timer.count(PaymentMetrics.Counter.ORDERS_TOUCHED, touched);
+        timer.count(PaymentMetrics.Counter.RESCANS, 1);
+        timer.count(PaymentMetrics.Counter.LIMIT_EXHAUSTED, exhausted);
+        timer.count(PaymentMetrics.Counter.PAYMENTS, payments);
+        timer.stop();
+    }
+
+    /**
+     * Parallel fallback payment for orders that couldn't be paid for.
+     * Unpaid orders are split across the pool and each one reserves its cost
+     * atomically from the first eligible method that still covers it, or takes
+     * the full price from the lowest method. The reserved payments are then put
+     * into the summary and checked against the reservations.
+     *
+     * @param orders  the list of unpaid orders
+     * @param methods the list of available payment methods
+     * @param summary the payment summary
+     * @param pool    the pool to run on
+     */
+    static void payFallbackOrdersParallel(List<Order> orders,
+                                          List<PaymentMethod> methods,
+                                          PaymentSummary summary,
+                                          ForkJoinPool pool) {
+        PaymentMetrics.PhaseTimer timer = PaymentMetrics.start(PaymentMetrics.Phase.FALLBACK);
+        summary.setDecisionReason(DecisionLog.Reason.FALLBACK);
+        List<Order> unpaid = filterUnpaidOrders(orders, summary);
+        LimitReservations limits = summary.openReservations(methods);
+        PaymentMethod lowest = methods.getLast();
+        PaymentMethod[] chosen = new PaymentMethod[unpaid.size()];
+        long[] costs = new long[unpaid.size()];
+        LongAdder exhausted = new LongAdder();
+        LongAdder touched = new LongAdder();
+
+        ParallelRange.run(pool, unpaid.size(), 1024, (from, to) -> {
+            long refused = 0;
+            long looked = 0;
+            for (int i = from; i < to; i++) {
+                Order o = unpaid.get(i);
+                for (PaymentMethod pm : methods) {
+                    if (!supports(o, pm)) {
+                        continue;
+                    }
+                    looked++;
+                    long cost = Money.discounted(o.getValue(), pm.getDiscount());
+                    if (limits.tryReserve(pm.getIndex(), cost)) {
+                        chosen[i] = pm;
+                        costs[i] = cost;
+                        break;
+                    }
+                    refused++;
+                }
+                if (chosen[i] == null) {
+                    looked++;
+                    limits.forceReserve(lowest.getIndex(), o.getValue());
+                    chosen[i] = lowest;
+                    costs[i] = o.getValue();
+                }
+            }
+            exhausted.add(refused);
+            touched.add(looked);
+        });
+
+        // reconciliation: book the reserved payments and compare the totals
+        for (int i = 0; i < chosen.length; i++) {
+            summary.putPayment(unpaid.get(i).getId(), chosen[i].getId(), costs[i]);
+        }
+        limits.reconcile(summary);
+        timer.count(PaymentMetrics.Counter.ORDERS_TOUCHED, touched.sum());
+        timer.count(PaymentMetrics.Counter.RESCANS, 1);
+        timer.count(PaymentMetrics.Counter.LIMIT_EXHAUSTED, exhausted.sum());
+        timer.count(PaymentMetrics.Counter.PAYMENTS, unpaid.size());
+        timer.stop();
     }
 
     /**
@@ -297,11 +534,7 @@ public class PaymentProcessor {
      * @return true if the payment method supports the order, false otherwise
      */
     private static boolean supports(Order order, PaymentMethod pm) {
-        String[] promos = order.getPromotions();
-        if (promos == null) {
-            promos = new String[]{ "PUNKTY" };
-        }
-        return Arrays.asList(promos).contains(pm.getId());
+        return order.getEligibleMethods().get(pm.getIndex());
     }
 
     /**
@@ -319,7 +552,7 @@ public class PaymentProcessor {
         } else {
             System.err.println("Couldn't pay for the following orders:");
             unpaid.forEach(o ->
-                    System.err.printf(" – Order %s: value=%.2f%n", o.getId(), o.getValue())
+                    System.err.printf(" – Order %s: value=%s%n", o.getId(), Money.format(o.getValue()))
             );
         }
     }
@@ -4,9 +4,51 @@ import org.example.jsonClasses.PaymentMethod;
 
 import java.util.*;
 
+/**
+ * Payments per order and the running total per method.
+ * <p>
+ * Every order that is paid gets a slot, in the order it was first paid, holding
+ * at most two entries (a PUNKTY part and a card part, or one method paying it all)
+ * in primitive arrays. Order IDs are found through an open-addressing table of slots.
+ * The arrays only grow, and {@link #reset} clears them for the next batch, so a
+ * summary reused for batches of similar size allocates nothing once warm.
+ * Use {@link PaymentView} or the slot accessors to read payments without
+ * allocating; the methods returning {@link PaymentEntry} lists build them on each call.
+ * Given a {@link DecisionLog}, the summary also records every change there.
+ */
 public class PaymentSummary {
-    private final Map<String, List<PaymentEntry>> paymentsByOrder = new LinkedHashMap<>();
-    private final Map<String, Double> initialLimits = new LinkedHashMap<>();
+    private static final int MAX_ENTRIES = 2;
+    // index table cells: 0 is empty, -1 a removed order, otherwise slot + 1
+    private static final int EMPTY = 0;
+    private static final int REMOVED = -1;
+
+    // all amounts are in grosze
+    private String[] methodIds = new String[0];
+    private final Map<String, Integer> methodIndex = new HashMap<>();
+    private long[] initialLimits = new long[0];
+    // running total paid per method, kept in sync with the slots
+    private long[] paidByMethod = new long[0];
+
+    private String[] orderIds;
+    private byte[] entryCount;
+    private int[] method0;
+    private int[] method1;
+    private long[] amount0;
+    private long[] amount1;
+    // slots handed out since the last reset, including those of removed orders
+    private int slotCount;
+    private int liveCount;
+
+    private int[] index;
+    // cells that are not empty, including removed orders
+    private int indexUsed;
+
+    // number of puts that actually changed an order's entries
+    private long modificationCount;
+
+    // optional record of every change, tagged with the decision point making it
+    private final DecisionLog decisionLog;
+    private DecisionLog.Reason decisionReason = DecisionLog.Reason.OTHER;
 
     /**
      * Constructor that initializes the payment summary with a list of payment methods.
@@ -14,9 +56,91 @@ public class PaymentSummary {
      * @param methods the list of payment methods
      */
     public PaymentSummary(List<PaymentMethod> methods) {
-        for (PaymentMethod pm : methods) {
-            initialLimits.put(pm.getId(), pm.getLimit());
+        this(methods, null);
+    }
+
+    /**
+     * Constructor that initializes the payment summary and records every change in a decision log.
+     *
+     * @param methods     the list of payment methods
+     * @param decisionLog the decision log, or null for none
+     */
+    public PaymentSummary(List<PaymentMethod> methods, DecisionLog decisionLog) {
+        this.decisionLog = decisionLog;
+        allocateSlots(16);
+        init(methods);
+    }
+
+    /**
+     * Clears all payments and takes the limits of the given methods, keeping
+     * the arrays for reuse. Nothing is allocated when the method IDs are the
+     * same as before and the batch fits the slots of earlier batches.
+     *
+     * @param methods the list of payment methods
+     */
+    public void reset(List<PaymentMethod> methods) {
+        init(methods);
+    }
+
+    private void init(List<PaymentMethod> methods) {
+        if (!sameMethods(methods)) {
+            int m = methods.size();
+            methodIds = new String[m];
+            initialLimits = new long[m];
+            paidByMethod = new long[m];
+            methodIndex.clear();
+            for (int i = 0; i < m; i++) {
+                methodIds[i] = methods.get(i).getId();
+                methodIndex.put(methodIds[i], i);
+            }
         }
+        for (int i = 0; i < methods.size(); i++) {
+            initialLimits[i] = methods.get(i).getLimit();
+        }
+        Arrays.fill(paidByMethod, 0);
+        Arrays.fill(orderIds, 0, slotCount, null);
+        Arrays.fill(entryCount, 0, slotCount, (byte) 0);
+        Arrays.fill(index, EMPTY);
+        slotCount = 0;
+        liveCount = 0;
+        indexUsed = 0;
+        modificationCount = 0;
+        decisionReason = DecisionLog.Reason.OTHER;
+        if (decisionLog != null) {
+            decisionLog.begin(methods);
+        }
+    }
+
+    private boolean sameMethods(List<PaymentMethod> methods) {
+        if (methods.size() != methodIds.length) return false;
+        for (int i = 0; i < methodIds.length; i++) {
+            if (!methodIds[i].equals(methods.get(i).getId())) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Pays a whole order with one method, replacing its earlier entries.
+     *
+     * @param orderId  the ID of the order
+     * @param methodId the ID of the payment method
+     * @param amount   the amount in grosze
+     */
+    public void putPayment(String orderId, String methodId, long amount) {
+        put(orderId, 1, method(methodId), amount, -1, 0);
+    }
+
+    /**
+     * Pays an order with two entries, replacing its earlier entries.
+     *
+     * @param orderId        the ID of the order
+     * @param pointsMethodId the ID of the method of the first entry, usually PUNKTY
+     * @param points         the amount of the first entry in grosze
+     * @param cardMethodId   the ID of the method of the second entry
+     * @param card           the amount of the second entry in grosze
+     */
+    public void putSplitPayment(String orderId, String pointsMethodId, long points, String cardMethodId, long card) {
+        put(orderId, 2, method(pointsMethodId), points, method(cardMethodId), card);
     }
 
     /**
@@ -28,95 +152,560 @@ public class PaymentSummary {
     public void putPaymentEntries(String orderId, List<PaymentEntry> entries) {
         Objects.requireNonNull(orderId, "orderId не может быть null");
         Objects.requireNonNull(entries, "entries не может быть null");
-        // replace existing or add new
-        paymentsByOrder.put(orderId, entries);
+        if (entries.size() > MAX_ENTRIES) {
+            throw new IllegalArgumentException("At most " + MAX_ENTRIES + " entries per order: " + orderId);
+        }
+        int m0 = entries.isEmpty() ? -1 : method(entries.get(0).getMethodId());
+        long a0 = entries.isEmpty() ? 0 : entries.get(0).getAmount();
+        int m1 = entries.size() < 2 ? -1 : method(entries.get(1).getMethodId());
+        long a1 = entries.size() < 2 ? 0 : entries.get(1).getAmount();
+        put(orderId, entries.size(), m0, a0, m1, a1);
+    }
+
+    /**
+     * Puts the payments of every order of another summary over the same methods,
+     * in the order they were first paid there.
+     *
+     * @param other the payment summary to copy from
+     */
+    public void putAll(PaymentSummary other) {
+        for (int slot = 0; slot < other.slotCount; slot++) {
+            String orderId = other.orderIds[slot];
+            if (orderId == null) continue;
+            int count = other.entryCount[slot];
+            put(orderId, count,
+                    count > 0 ? method(other.methodIds[other.method0[slot]]) : -1, other.amount0[slot],
+                    count > 1 ? method(other.methodIds[other.method1[slot]]) : -1, other.amount1[slot]);
+        }
+    }
+
+    private void put(String orderId, int count, int m0, long a0, int m1, long a1) {
+        Objects.requireNonNull(orderId, "orderId не может быть null");
+        int slot = find(orderId);
+        if (slot >= 0) {
+            // replace existing
+            if (sameEntries(slot, count, m0, a0, m1, a1)) {
+                return;
+            }
+            applyToLedger(slot, -1);
+            if (decisionLog != null) {
+                decisionLog.put(decisionReason, orderId, count, m0, a0, m1, a1,
+                        entryCount[slot], method0[slot], amount0[slot], method1[slot], amount1[slot]);
+            }
+        } else {
+            slot = addSlot(orderId);
+            if (decisionLog != null) {
+                decisionLog.put(decisionReason, orderId, count, m0, a0, m1, a1, -1, -1, 0, -1, 0);
+            }
+        }
+        entryCount[slot] = (byte) count;
+        method0[slot] = m0;
+        amount0[slot] = a0;
+        method1[slot] = m1;
+        amount1[slot] = a1;
+        applyToLedger(slot, 1);
+        modificationCount++;
+    }
+
+    private boolean sameEntries(int slot, int count, int m0, long a0, int m1, long a1) {
+        if (entryCount[slot] != count) return false;
+        if (count > 0 && (method0[slot] != m0 || amount0[slot] != a0)) return false;
+        return count < 2 || (method1[slot] == m1 && amount1[slot] == a1);
     }
 
+    /**
+     * Removes the payment entries of an order.
+     *
+     * @param orderId the ID of the order
+     * @return true if the order had entries
+     */
+    public boolean removePaymentEntries(String orderId) {
+        int cell = findCell(orderId);
+        if (cell < 0) {
+            return false;
+        }
+        int slot = index[cell] - 1;
+        applyToLedger(slot, -1);
+        if (decisionLog != null) {
+            decisionLog.remove(decisionReason, orderId,
+                    entryCount[slot], method0[slot], amount0[slot], method1[slot], amount1[slot]);
+        }
+        index[cell] = REMOVED;
+        orderIds[slot] = null;
+        entryCount[slot] = 0;
+        liveCount--;
+        modificationCount++;
+        return true;
+    }
+
+    /**
+     * Changes the initial limit of a payment method. The amounts already paid are kept,
+     * so the remaining limit moves by the same difference.
+     *
+     * @param methodId the ID of the payment method
+     * @param limit    the new limit in grosze
+     */
+    public void setInitialLimit(String methodId, long limit) {
+        int method = method(methodId);
+        initialLimits[method] = limit;
+        if (decisionLog != null) {
+            decisionLog.limit(method, limit);
+        }
+    }
+
+    /**
+     * Sets the decision point the following changes are recorded under in the decision log.
+     *
+     * @param reason the decision point
+     */
+    public void setDecisionReason(DecisionLog.Reason reason) {
+        decisionReason = reason;
+    }
+
+    /**
+     * Records the remaining limit of every method in the decision log, if there is one.
+     */
+    public void logLimitSnapshot() {
+        if (decisionLog == null) return;
+        long[] remaining = new long[methodIds.length];
+        for (int i = 0; i < remaining.length; i++) {
+            remaining[i] = initialLimits[i] - paidByMethod[i];
+        }
+        decisionLog.snapshot(decisionReason, remaining);
+    }
 
+    /**
+     * Returns the number of puts that changed the entries of an order.
+     * Putting entries equal to the current ones does not count.
+     *
+     * @return the modification count
+     */
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Adds (sign = 1) or reverses (sign = -1) the entries of a slot in the per-method ledger.
+     *
+     * @param slot the slot
+     * @param sign 1 to add the entries, -1 to reverse them
+     */
+    private void applyToLedger(int slot, int sign) {
+        int count = entryCount[slot];
+        if (count > 0) paidByMethod[method0[slot]] += sign * amount0[slot];
+        if (count > 1) paidByMethod[method1[slot]] += sign * amount1[slot];
+    }
+
+    private int method(String methodId) {
+        Integer method = methodIndex.get(methodId);
+        if (method == null) {
+            throw new IllegalStateException("Payment method not found: " + methodId);
+        }
+        return method;
+    }
+
+    /**
+     * Returns the payment entries of an order as a new list.
+     * Prefer {@link #isPaid} or a {@link PaymentView} on hot paths.
+     *
+     * @param orderId the ID of the order
+     * @return the entries, empty if the order is not paid
+     */
     public List<PaymentEntry> getPaymentsForOrder(String orderId) {
-        return paymentsByOrder.getOrDefault(orderId, Collections.emptyList());
+        int slot = find(orderId);
+        return slot < 0 ? Collections.emptyList() : entriesOf(slot);
+    }
+
+    private List<PaymentEntry> entriesOf(int slot) {
+        return switch (entryCount[slot]) {
+            case 0 -> List.of();
+            case 1 -> List.of(new PaymentEntry(methodIds[method0[slot]], amount0[slot]));
+            default -> List.of(new PaymentEntry(methodIds[method0[slot]], amount0[slot]),
+                    new PaymentEntry(methodIds[method1[slot]], amount1[slot]));
+        };
     }
 
     /**
-     * Sums all payments for a given payment method.
+     * Checks if an order has at least one payment entry.
+     *
+     * @param orderId the ID of the order
+     * @return true if the order is paid
+     */
+    public boolean isPaid(String orderId) {
+        int slot = find(orderId);
+        return slot >= 0 && entryCount[slot] > 0;
+    }
+
+    /**
+     * Returns the number of orders in the summary.
+     *
+     * @return the number of orders
+     */
+    public int getOrderCount() {
+        return liveCount;
+    }
+
+    /**
+     * Returns how many slots were handed out since the last reset. Slots of
+     * removed orders stay empty, with a null order ID.
+     *
+     * @return the slot count
+     */
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Opens a read-only view of the payments of one order at a time.
+     *
+     * @return the view, not on any order yet
+     */
+    public PaymentView newView() {
+        return new PaymentView();
+    }
+
+    /**
+     * Returns the total sum of payments for a given payment method from the ledger.
      *
      * @param methodId the ID of the payment method
      * @return the total sum of payments for the method
      */
-    private double sumPaymentsByMethod(String methodId) {
-        return paymentsByOrder.values().stream()
-                .flatMap(Collection::stream)
-                .filter(e -> e.getMethodId().equals(methodId))
-                .mapToDouble(PaymentEntry::getAmount)
-                .sum();
+    private long sumPaymentsByMethod(String methodId) {
+        Integer method = methodIndex.get(methodId);
+        return method == null ? 0 : paidByMethod[method];
+    }
+
+    /**
+     * Checks that the ledger matches a full scan of all payment entries.
+     *
+     * @return true if every method total agrees with the full scan
+     */
+    public boolean isLedgerConsistent() {
+        long[] scanned = new long[methodIds.length];
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (entryCount[slot] > 0) scanned[method0[slot]] += amount0[slot];
+            if (entryCount[slot] > 1) scanned[method1[slot]] += amount1[slot];
+        }
+        return Arrays.equals(scanned, paidByMethod);
+    }
+
+    /**
+     * Opens atomic reservations over the current remaining limits,
+     * for phases that pay orders from several threads.
+     * Payments reserved there still have to be put into this summary.
+     *
+     * @param methods the payment methods, with indexes assigned by the registry
+     * @return the reservations
+     */
+    public LimitReservations openReservations(List<PaymentMethod> methods) {
+        return new LimitReservations(methods, this);
     }
 
     /**
      * Sums all card payments, excluding "PUNKTY".
      *
-     * @return the total sum of card payments
+     * @return the total sum of card payments in grosze
      */
-    public double sumCardPayments() {
-        return initialLimits.keySet().stream()
-                .filter(methodId -> !"PUNKTY".equals(methodId))
-                .mapToDouble(this::sumPaymentsByMethod)
-                .sum();
+    public long sumCardPayments() {
+        long sum = 0;
+        for (int method = 0; method < methodIds.length; method++) {
+            if (!"PUNKTY".equals(methodIds[method]) && methodIndex.get(methodIds[method]) == method) {
+                sum += paidByMethod[method];
+            }
+        }
+        return sum;
     }
 
     /**
      * Returns the remaining limit for a given payment method.
      *
      * @param methodId the ID of the payment method
-     * @return the remaining limit
+     * @return the remaining limit in grosze
+     */
+    public long getRemainingLimit(String methodId) {
+        PaymentMetrics.countRemainingLimitCall();
+        Integer method = methodIndex.get(methodId);
+        return method == null ? 0 : initialLimits[method] - paidByMethod[method];
+    }
+
+    /**
+     * Returns the total paid per method, in the order the methods were given.
+     *
+     * @return the paid amounts in grosze by method ID
      */
-    public double getRemainingLimit(String methodId) {
-        double paid = sumPaymentsByMethod(methodId);
-        double initial = initialLimits.getOrDefault(methodId, 0.0);
-        return initial - paid;
+    public Map<String, Long> getPaidByMethod() {
+        Map<String, Long> paid = new LinkedHashMap<>();
+        for (String methodId : methodIds) {
+            paid.putIfAbsent(methodId, sumPaymentsByMethod(methodId));
+        }
+        return paid;
+    }
+
+    /**
+     * Returns the payment entries of every order, in the order they were first paid,
+     * as a new map.
+     *
+     * @return the entries by order ID
+     */
+    public Map<String, List<PaymentEntry>> getPaymentsByOrder() {
+        Map<String, List<PaymentEntry>> result = new LinkedHashMap<>();
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (orderIds[slot] != null) {
+                result.put(orderIds[slot], entriesOf(slot));
+            }
+        }
+        return Collections.unmodifiableMap(result);
     }
 
     /**
      * Prints a summary of payments by method.
      */
     public void printSummary() {
+        assert isLedgerConsistent() : "payment ledger out of sync with entries";
 //        System.out.println("\n=== Payment Summary ===");
-        for (String methodId : initialLimits.keySet()) {
-            double paid = sumPaymentsByMethod(methodId);
-            double remaining = getRemainingLimit(methodId);
-            System.out.printf("%s paid=%.2f\n", methodId, paid);
+        StringBuilder sb = new StringBuilder();
+        for (String methodId : getPaidByMethod().keySet()) {
+            long paid = sumPaymentsByMethod(methodId);
+            Money.appendTo(sb.append(methodId).append(" paid="), paid).append('\n');
         }
-        double cardTotal = sumCardPayments();
-//        System.out.printf("Total card payments (excluding PUNKTY): %.2f%n", cardTotal);
+        System.out.print(sb);
+//        System.out.printf("Total card payments (excluding PUNKTY): %s%n", Money.format(sumCardPayments()));
     }
 
     /**
-     * Prints detailed payments by order.
+     * Prints detailed payments by order, sorted by order ID.
+     * For large results use {@link ResultWriter}, which streams them without sorting.
      */
     public void printOrderPayments() {
-        System.out.println("\n=== Detailed Payments by Order ===");
-        paymentsByOrder.keySet().stream()
+        String nl = System.lineSeparator();
+        StringBuilder sb = new StringBuilder();
+        sb.append(nl).append("=== Detailed Payments by Order ===").append(nl);
+        PaymentView view = newView();
+        getPaymentsByOrder().keySet().stream()
                 .sorted()
                 .forEach(orderId -> {
-                    System.out.printf("%s:%n", orderId);
-                    for (PaymentEntry e : paymentsByOrder.get(orderId)) {
-                        System.out.printf("  %s -> %.2f%n", e.getMethodId(), e.getAmount());
+                    sb.append(orderId).append(':').append(nl);
+                    view.moveTo(orderId);
+                    for (int i = 0; i < view.size(); i++) {
+                        sb.append("  ").append(view.getMethodId(i)).append(" -> ");
+                        Money.appendTo(sb, view.getAmount(i)).append(nl);
                     }
                 });
+        System.out.print(sb);
+    }
+
+    private int find(String orderId) {
+        int cell = findCell(orderId);
+        return cell < 0 ? -1 : index[cell] - 1;
+    }
+
+    private int findCell(String orderId) {
+        int mask = index.length - 1;
+        for (int cell = hash(orderId) & mask; ; cell = (cell + 1) & mask) {
+            int value = index[cell];
+            if (value == EMPTY) return -1;
+            if (value > 0 && orderIds[value - 1].equals(orderId)) return cell;
+        }
+    }
+
+    private static int hash(String orderId) {
+        int h = orderId.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private int addSlot(String orderId) {
+        if (slotCount == orderIds.length) {
+            if (liveCount * 2 < slotCount) {
+                compactSlots();
+            } else {
+                growSlots(slotCount * 2);
+            }
+        }
+        if ((indexUsed + 1) * 2 > index.length) {
+            rebuildIndex(liveCount * 2 + 2 > index.length / 2 ? index.length * 2 : index.length);
+        }
+        int slot = slotCount++;
+        orderIds[slot] = orderId;
+        liveCount++;
+        int mask = index.length - 1;
+        int cell = hash(orderId) & mask;
+        while (index[cell] != EMPTY) {
+            cell = (cell + 1) & mask;
+        }
+        index[cell] = slot + 1;
+        indexUsed++;
+        return slot;
+    }
+
+    private void allocateSlots(int capacity) {
+        orderIds = new String[capacity];
+        entryCount = new byte[capacity];
+        method0 = new int[capacity];
+        method1 = new int[capacity];
+        amount0 = new long[capacity];
+        amount1 = new long[capacity];
+        index = new int[capacity * 2];
+    }
+
+    private void growSlots(int capacity) {
+        orderIds = Arrays.copyOf(orderIds, capacity);
+        entryCount = Arrays.copyOf(entryCount, capacity);
+        method0 = Arrays.copyOf(method0, capacity);
+        method1 = Arrays.copyOf(method1, capacity);
+        amount0 = Arrays.copyOf(amount0, capacity);
+        amount1 = Arrays.copyOf(amount1, capacity);
+    }
+
+    /**
+     * Moves the slots of current orders down over those of removed orders,
+     * keeping their order.
+     */
+    private void compactSlots() {
+        int to = 0;
+        for (int from = 0; from < slotCount; from++) {
+            if (orderIds[from] == null) continue;
+            orderIds[to] = orderIds[from];
+            entryCount[to] = entryCount[from];
+            method0[to] = method0[from];
+            method1[to] = method1[from];
+            amount0[to] = amount0[from];
+            amount1[to] = amount1[from];
+            to++;
+        }
+        Arrays.fill(orderIds, to, slotCount, null);
+        Arrays.fill(entryCount, to, slotCount, (byte) 0);
+        slotCount = to;
+        rebuildIndex(index.length);
+    }
+
+    private void rebuildIndex(int capacity) {
+        if (capacity != index.length) {
+            index = new int[capacity];
+        } else {
+            Arrays.fill(index, EMPTY);
+        }
+        int mask = capacity - 1;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (orderIds[slot] == null) continue;
+            int cell = hash(orderIds[slot]) & mask;
+            while (index[cell] != EMPTY) {
+                cell = (cell + 1) & mask;
+            }
+            index[cell] = slot + 1;
+        }
+        indexUsed = liveCount;
+    }
+
+    /**
+     * Read-only view of the payments of one order, moved from order to order
+     * instead of building entry objects. A view is not thread-safe and shows
+     * the current state of the summary.
+     */
+    public class PaymentView {
+        private int slot = -1;
+
+        private PaymentView() {}
+
+        /**
+         * Moves the view to an order.
+         *
+         * @param orderId the ID of the order
+         * @return true if the order is in the summary
+         */
+        public boolean moveTo(String orderId) {
+            slot = find(orderId);
+            return slot >= 0;
+        }
+
+        /**
+         * Moves the view to a slot, below {@link #getSlotCount}.
+         *
+         * @param slot the slot
+         * @return true if the slot holds an order
+         */
+        public boolean moveToSlot(int slot) {
+            this.slot = slot;
+            return orderIds[slot] != null;
+        }
+
+        public String getOrderId() {
+            return slot < 0 ? null : orderIds[slot];
+        }
+
+        public int size() {
+            return slot < 0 ? 0 : entryCount[slot];
+        }
+
+        public String getMethodId(int entry) {
+            return methodIds[entry == 0 ? method0[checked(entry)] : method1[checked(entry)]];
+        }
+
+        public long getAmount(int entry) {
+            return entry == 0 ? amount0[checked(entry)] : amount1[checked(entry)];
+        }
+
+        /**
+         * Checks if every entry of the order is paid with the given method.
+         *
+         * @param methodId the ID of the payment method
+         * @return true if the order has entries and all are of the method
+         */
+        public boolean isOnly(String methodId) {
+            int n = size();
+            for (int i = 0; i < n; i++) {
+                if (!getMethodId(i).equals(methodId)) return false;
+            }
+            return n > 0;
+        }
+
+        /**
+         * Checks if the order has an entry of the given method.
+         *
+         * @param methodId the ID of the payment method
+         * @return true if one of the entries is of the method
+         */
+        public boolean has(String methodId) {
+            int n = size();
+            for (int i = 0; i < n; i++) {
+                if (getMethodId(i).equals(methodId)) return true;
+            }
+            return false;
+        }
+
+        private int checked(int entry) {
+            if (entry < 0 || entry >= size()) {
+                throw new IndexOutOfBoundsException("entry " + entry + " of " + size());
+            }
+            return slot;
+        }
     }
 
     /**
-     * Represents a payment entry with a method ID and amount.
+     * Represents a payment entry with a method ID and amount in grosze.
      */
     public static class PaymentEntry {
         private final String methodId;
-        private final double amount;
+        private final long amount;
 
-        public PaymentEntry(String methodId, double amount) {
+        public PaymentEntry(String methodId, long amount) {
             this.methodId = methodId;
             this.amount = amount;
         }
 
         public String getMethodId() { return methodId; }
-        public double getAmount() { return amount; }
+        public long getAmount() { return amount; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof PaymentEntry)) return false;
+            PaymentEntry that = (PaymentEntry) o;
+            return amount == that.amount && methodId.equals(that.methodId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(methodId, amount);
+        }
     }
 }
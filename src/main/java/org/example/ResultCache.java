@@ -0,0 +1,415 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Allocation results keyed by a SHA-256 hash of their inputs.
+ * <p>
+ * The key covers the strategy with its parameters (see
+ * {@link AllocationStrategy#cacheKey}), every payment method (id, discount, limit)
+ * and every order (id, value in grosze, promotions as a sorted set, null apart
+ * from empty), so the same inputs hash the same however their JSON was written.
+ * List order is part of the key because the greedy breaks ties in value and
+ * discount by it.
+ * A limit changed with {@link PaymentMethod#setLimit} therefore gives a new key,
+ * and results computed under the old limits are never served again;
+ * {@link #invalidate} only frees the space they take before they are evicted.
+ * <p>
+ * Results are kept in an in-memory LRU bounded by the number of payment entries
+ * it holds and, when a directory is given, in one file per key there, evicted
+ * oldest-used first once the files exceed a byte budget. A disk hit is moved
+ * back into memory. All methods are thread-safe.
+ */
+public class ResultCache {
+    private static final int MAGIC = 0x50524553; // "PRES"
+    private static final short VERSION = 1;
+    private static final String SUFFIX = ".res";
+
+    private final long memoryCapacity;
+    private final Path directory;
+    private final long diskCapacity;
+    private final LinkedHashMap<String, Result> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryWeight;
+    private final Object diskLock = new Object();
+
+    /**
+     * Constructor for a memory-only cache.
+     *
+     * @param memoryCapacity the number of payment entries kept in memory
+     */
+    public ResultCache(long memoryCapacity) {
+        this(memoryCapacity, null, 0);
+    }
+
+    /**
+     * Constructor for a cache with a disk tier.
+     *
+     * @param memoryCapacity the number of payment entries kept in memory
+     * @param directory      the directory for cached results, or null for none
+     * @param diskCapacity   the bytes the result files may take up
+     * @throws UncheckedIOException if the directory cannot be created
+     */
+    public ResultCache(long memoryCapacity, Path directory, long diskCapacity) {
+        this.memoryCapacity = memoryCapacity;
+        this.directory = directory;
+        this.diskCapacity = diskCapacity;
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Hashes the inputs of an allocation.
+     *
+     * @param strategy the cache key of the strategy that allocates them
+     * @param orders   the orders, in the order the strategy gets them
+     * @param methods  the payment methods, in the order the strategy gets them
+     * @return the key as lowercase hex
+     */
+    public static String key(String strategy, List<Order> orders, List<PaymentMethod> methods) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new DigestOutputStream(OutputStream.nullOutputStream(), digest), 8192))) {
+            out.writeUTF(strategy);
+            out.writeInt(methods.size());
+            for (PaymentMethod pm : methods) {
+                out.writeUTF(pm.getId());
+                out.writeInt(pm.getDiscount());
+                out.writeLong(pm.getLimit());
+            }
+            out.writeInt(orders.size());
+            for (Order o : orders) {
+                out.writeUTF(o.getId());
+                out.writeLong(o.getValue());
+                // null promotions allow PUNKTY and empty ones allow nothing, so they are kept apart;
+                // duplicates, order and null IDs, which match no method, do not matter
+                if (o.getPromotions() == null) {
+                    out.writeInt(-1);
+                    continue;
+                }
+                SortedSet<String> promotions = new TreeSet<>();
+                for (String promo : o.getPromotions()) {
+                    if (promo != null) {
+                        promotions.add(promo);
+                    }
+                }
+                out.writeInt(promotions.size());
+                for (String promo : promotions) {
+                    out.writeUTF(promo);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Puts the cached payments of a key into an empty summary.
+     *
+     * @param key     the key of the inputs
+     * @param summary the payment summary, without payments
+     * @return true on a hit
+     */
+    public boolean load(String key, PaymentSummary summary) {
+        Result result;
+        synchronized (this) {
+            result = memory.get(key);
+        }
+        if (result != null) {
+            PaymentMetrics.countCache(PaymentMetrics.CacheCounter.MEMORY_HITS);
+        } else {
+            result = readFile(key);
+            if (result == null) {
+                PaymentMetrics.countCache(PaymentMetrics.CacheCounter.MISSES);
+                return false;
+            }
+            PaymentMetrics.countCache(PaymentMetrics.CacheCounter.DISK_HITS);
+            putInMemory(key, result);
+        }
+        for (Map.Entry<String, List<PaymentSummary.PaymentEntry>> e : result.payments.entrySet()) {
+            summary.putPaymentEntries(e.getKey(), e.getValue());
+        }
+        return true;
+    }
+
+    /**
+     * Caches the payments of a summary under a key.
+     *
+     * @param key     the key of the inputs
+     * @param methods the payment methods of the inputs, for {@link #invalidate}
+     * @param summary the payment summary after the allocation
+     */
+    public void store(String key, List<PaymentMethod> methods, PaymentSummary summary) {
+        Set<String> methodIds = new LinkedHashSet<>();
+        for (PaymentMethod pm : methods) {
+            methodIds.add(pm.getId());
+        }
+        Map<String, List<PaymentSummary.PaymentEntry>> payments = new LinkedHashMap<>();
+        for (Map.Entry<String, List<PaymentSummary.PaymentEntry>> e : summary.getPaymentsByOrder().entrySet()) {
+            payments.put(e.getKey(), List.copyOf(e.getValue()));
+        }
+        Result result = new Result(methodIds, payments);
+        putInMemory(key, result);
+        writeFile(key, result);
+    }
+
+    /**
+     * Drops every result computed with a payment method, in memory and on disk.
+     * This only frees space: after a limit change the old results no longer match
+     * any key and would be evicted in time anyway.
+     *
+     * @param methodId the ID of the payment method
+     * @return the number of copies dropped, counting memory and disk separately
+     */
+    public int invalidate(String methodId) {
+        int dropped = 0;
+        synchronized (this) {
+            Iterator<Result> it = memory.values().iterator();
+            while (it.hasNext()) {
+                Result result = it.next();
+                if (result.methodIds.contains(methodId)) {
+                    memoryWeight -= result.weight;
+                    it.remove();
+                    dropped++;
+                }
+            }
+        }
+        synchronized (diskLock) {
+            for (Path file : files()) {
+                if (readMethodIds(file).contains(methodId)) {
+                    delete(file);
+                    dropped++;
+                }
+            }
+        }
+        PaymentMetrics.countCache(PaymentMetrics.CacheCounter.INVALIDATIONS, dropped);
+        return dropped;
+    }
+
+    /**
+     * Drops every cached result.
+     */
+    public void clear() {
+        synchronized (this) {
+            memory.clear();
+            memoryWeight = 0;
+        }
+        synchronized (diskLock) {
+            files().forEach(ResultCache::delete);
+        }
+    }
+
+    private synchronized void putInMemory(String key, Result result) {
+        Result previous = memory.remove(key);
+        if (previous != null) {
+            memoryWeight -= previous.weight;
+        }
+        if (result.weight > memoryCapacity) {
+            return;
+        }
+        memory.put(key, result);
+        memoryWeight += result.weight;
+        Iterator<Result> it = memory.values().iterator();
+        while (memoryWeight > memoryCapacity) {
+            memoryWeight -= it.next().weight;
+            it.remove();
+            PaymentMetrics.countCache(PaymentMetrics.CacheCounter.EVICTIONS);
+        }
+    }
+
+    private Path fileFor(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    private Result readFile(String key) {
+        if (directory == null) {
+            return null;
+        }
+        synchronized (diskLock) {
+            Path file = fileFor(key);
+            if (!Files.isRegularFile(file)) {
+                return null;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                Set<String> methodIds = readHeader(in, key);
+                if (methodIds == null) {
+                    delete(file);
+                    return null;
+                }
+                String[] ids = methodIds.toArray(new String[0]);
+                int orderCount = in.readInt();
+                Map<String, List<PaymentSummary.PaymentEntry>> payments = new LinkedHashMap<>();
+                for (int i = 0; i < orderCount; i++) {
+                    String orderId = in.readUTF();
+                    PaymentSummary.PaymentEntry[] entries = new PaymentSummary.PaymentEntry[in.readInt()];
+                    for (int k = 0; k < entries.length; k++) {
+                        entries[k] = new PaymentSummary.PaymentEntry(ids[in.readInt()], in.readLong());
+                    }
+                    payments.put(orderId, List.of(entries));
+                }
+                // the modification time orders the files for eviction
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                return new Result(methodIds, payments);
+            } catch (IOException | RuntimeException e) {
+                delete(file);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Writes the result to a temporary file and moves it into place, then evicts
+     * the least recently used files over the disk budget.
+     */
+    private void writeFile(String key, Result result) {
+        if (directory == null) {
+            return;
+        }
+        synchronized (diskLock) {
+            Path file = fileFor(key);
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Map<String, Integer> refs = new HashMap<>();
+            for (String id : result.methodIds) {
+                refs.put(id, refs.size());
+            }
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                    out.writeInt(MAGIC);
+                    out.writeShort(VERSION);
+                    out.writeUTF(key);
+                    out.writeInt(result.methodIds.size());
+                    for (String id : result.methodIds) {
+                        out.writeUTF(id);
+                    }
+                    out.writeInt(result.payments.size());
+                    for (Map.Entry<String, List<PaymentSummary.PaymentEntry>> e : result.payments.entrySet()) {
+                        out.writeUTF(e.getKey());
+                        out.writeInt(e.getValue().size());
+                        for (PaymentSummary.PaymentEntry entry : e.getValue()) {
+                            out.writeInt(refs.get(entry.getMethodId()));
+                            out.writeLong(entry.getAmount());
+                        }
+                    }
+                }
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // the disk tier is best effort; the result stays in memory
+                delete(tmp);
+                return;
+            }
+            evictFiles();
+        }
+    }
+
+    private void evictFiles() {
+        List<Path> files = files();
+        long total = 0;
+        Map<Path, Long> sizes = new HashMap<>();
+        Map<Path, Long> used = new HashMap<>();
+        for (Path file : files) {
+            try {
+                sizes.put(file, Files.size(file));
+                used.put(file, Files.getLastModifiedTime(file).toMillis());
+                total += sizes.get(file);
+            } catch (IOException e) {
+                sizes.put(file, 0L);
+                used.put(file, 0L);
+            }
+        }
+        files.sort(Comparator.comparingLong(used::get));
+        for (Iterator<Path> it = files.iterator(); total > diskCapacity && it.hasNext(); ) {
+            Path file = it.next();
+            delete(file);
+            total -= sizes.get(file);
+            PaymentMetrics.countCache(PaymentMetrics.CacheCounter.EVICTIONS);
+        }
+    }
+
+    private List<Path> files() {
+        if (directory == null) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> stream = Files.list(directory)) {
+            return new ArrayList<>(stream.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).toList());
+        } catch (IOException e) {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Reads the header of a result file.
+     *
+     * @return the method IDs, or null if the file is not a result of this format and key
+     */
+    private static Set<String> readHeader(DataInputStream in, String key) throws IOException {
+        if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+            return null;
+        }
+        String stored = in.readUTF();
+        if (key != null && !key.equals(stored)) {
+            return null;
+        }
+        int count = in.readInt();
+        Set<String> methodIds = new LinkedHashSet<>();
+        for (int i = 0; i < count; i++) {
+            methodIds.add(in.readUTF());
+        }
+        return methodIds;
+    }
+
+    private static Set<String> readMethodIds(Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            Set<String> methodIds = readHeader(in, null);
+            return methodIds != null ? methodIds : Set.of();
+        } catch (IOException e) {
+            return Set.of();
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // left for the next eviction
+        }
+    }
+
+    /**
+     * The payments of one allocation, weighed by their number of entries.
+     */
+    private static class Result {
+        final Set<String> methodIds;
+        final Map<String, List<PaymentSummary.PaymentEntry>> payments;
+        final long weight;
+
+        Result(Set<String> methodIds, Map<String, List<PaymentSummary.PaymentEntry>> payments) {
+            this.methodIds = methodIds;
+            this.payments = payments;
+            long entries = 0;
+            for (List<PaymentSummary.PaymentEntry> list : payments.values()) {
+                entries += list.size();
+            }
+            this.weight = Math.max(1, entries);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Streams allocation results to a channel as JSON Lines or CSV.
+ * Records are encoded straight into one reusable byte array, which is written
+ * to the channel whenever it fills up: strings are encoded to UTF-8 by hand and
+ * amounts are printed as fixed-point decimals from their grosze, so writing a
+ * record allocates nothing.
+ * <p>
+ * JSON Lines records are {@code {"method":"mZysk","paid":165.00}} for the totals and
+ * {@code {"order":"ORDER1","payments":[{"method":"mZysk","amount":135.00}]}} per order.
+ * CSV has the header {@code record,order,method,amount}, one {@code total} row per
+ * method and one {@code payment} row per payment entry.
+ */
+public class ResultWriter implements Closeable {
+
+    /**
+     * The output formats.
+     */
+    public enum Format {
+        JSONL,
+        CSV
+    }
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    // the longest encoding of one char, or of a long with its sign
+    private static final int MAX_CHAR_BYTES = 6;
+    private static final int MAX_AMOUNT_BYTES = 21;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final WritableByteChannel channel;
+    private final Format format;
+    private final byte[] bytes = new byte[BUFFER_BYTES];
+    private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    private int pos;
+    // digits of an amount, filled from the end
+    private final byte[] digits = new byte[MAX_AMOUNT_BYTES];
+    private boolean headerWritten;
+
+    /**
+     * Constructor that writes to the given channel.
+     *
+     * @param channel the channel to write to; closed by {@link #close}
+     * @param format  the output format
+     */
+    public ResultWriter(WritableByteChannel channel, Format format) {
+        this.channel = channel;
+        this.format = format;
+    }
+
+    /**
+     * Writes the total paid per method, in the order the methods were given.
+     *
+     * @param summary the payment summary
+     * @throws IOException if the channel cannot be written
+     */
+    public void writeTotals(PaymentSummary summary) throws IOException {
+        writeHeader();
+        for (Map.Entry<String, Long> e : summary.getPaidByMethod().entrySet()) {
+            if (format == Format.JSONL) {
+                putAscii("{\"method\":");
+                putJsonString(e.getKey());
+                putAscii(",\"paid\":");
+                putAmount(e.getValue());
+                putAscii("}\n");
+            } else {
+                putAscii("total,,");
+                putCsvField(e.getKey());
+                put(',');
+                putAmount(e.getValue());
+                put('\n');
+            }
+        }
+    }
+
+    /**
+     * Writes the payment entries of every order.
+     *
+     * @param summary the payment summary
+     * @param sorted  true to write the orders sorted by ID, false to write them
+     *                in the order they were first paid, without sorting
+     * @throws IOException if the channel cannot be written
+     */
+    public void writeOrders(PaymentSummary summary, boolean sorted) throws IOException {
+        writeHeader();
+        PaymentSummary.PaymentView view = summary.newView();
+        if (!sorted) {
+            for (int slot = 0; slot < summary.getSlotCount(); slot++) {
+                if (view.moveToSlot(slot)) {
+                    writeOrder(view);
+                }
+            }
+            return;
+        }
+        String[] ids = new String[summary.getOrderCount()];
+        int n = 0;
+        for (int slot = 0; slot < summary.getSlotCount(); slot++) {
+            if (view.moveToSlot(slot)) {
+                ids[n++] = view.getOrderId();
+            }
+        }
+        Arrays.sort(ids);
+        for (String id : ids) {
+            view.moveTo(id);
+            writeOrder(view);
+        }
+    }
+
+    private void writeOrder(PaymentSummary.PaymentView view) throws IOException {
+        String orderId = view.getOrderId();
+        if (format == Format.JSONL) {
+            putAscii("{\"order\":");
+            putJsonString(orderId);
+            putAscii(",\"payments\":[");
+            for (int i = 0; i < view.size(); i++) {
+                putAscii(i == 0 ? "{\"method\":" : ",{\"method\":");
+                putJsonString(view.getMethodId(i));
+                putAscii(",\"amount\":");
+                putAmount(view.getAmount(i));
+                put('}');
+            }
+            putAscii("]}\n");
+        } else {
+            for (int i = 0; i < view.size(); i++) {
+                putAscii("payment,");
+                putCsvField(orderId);
+                put(',');
+                putCsvField(view.getMethodId(i));
+                put(',');
+                putAmount(view.getAmount(i));
+                put('\n');
+            }
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        if (format == Format.CSV && !headerWritten) {
+            putAscii("record,order,method,amount\n");
+        }
+        headerWritten = true;
+    }
+
+    /**
+     * Writes out everything buffered so far.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    public void flush() throws IOException {
+        buffer.clear().limit(pos);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        pos = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (BUFFER_BYTES - pos < bytes) {
+            flush();
+        }
+    }
+
+    private void put(char c) throws IOException {
+        ensure(1);
+        bytes[pos++] = (byte) c;
+    }
+
+    /**
+     * Writes a constant made of ASCII characters only.
+     */
+    private void putAscii(String s) throws IOException {
+        ensure(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            bytes[pos++] = (byte) s.charAt(i);
+        }
+    }
+
+    /**
+     * Writes an amount in grosze as a decimal with two places, e.g. "135.00".
+     */
+    private void putAmount(long amount) throws IOException {
+        ensure(MAX_AMOUNT_BYTES);
+        // work on the negative value, which also covers Long.MIN_VALUE
+        long n = amount < 0 ? amount : -amount;
+        int at = digits.length;
+        digits[--at] = (byte) ('0' - n % 10);
+        n /= 10;
+        digits[--at] = (byte) ('0' - n % 10);
+        n /= 10;
+        digits[--at] = '.';
+        do {
+            digits[--at] = (byte) ('0' - n % 10);
+            n /= 10;
+        } while (n != 0);
+        if (amount < 0) {
+            digits[--at] = '-';
+        }
+        System.arraycopy(digits, at, bytes, pos, digits.length - at);
+        pos += digits.length - at;
+    }
+
+    private void putJsonString(String s) throws IOException {
+        put('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            ensure(MAX_CHAR_BYTES);
+            if (c == '"' || c == '\\') {
+                bytes[pos++] = (byte) '\\';
+                bytes[pos++] = (byte) c;
+            } else if (c < 0x20) {
+                bytes[pos++] = (byte) '\\';
+                bytes[pos++] = (byte) 'u';
+                bytes[pos++] = (byte) '0';
+                bytes[pos++] = (byte) '0';
+                bytes[pos++] = HEX[c >> 4];
+                bytes[pos++] = HEX[c & 0xF];
+            } else {
+                i = putUtf8(s, i);
+            }
+        }
+        put('"');
+    }
+
+    private void putCsvField(String s) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (quote) {
+            put('"');
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            ensure(MAX_CHAR_BYTES);
+            if (c == '"') {
+                bytes[pos++] = (byte) '"';
+                bytes[pos++] = (byte) '"';
+            } else {
+                i = putUtf8(s, i);
+            }
+        }
+        if (quote) {
+            put('"');
+        }
+    }
+
+    /**
+     * Encodes the char at the given index, with the one after it for a surrogate pair.
+     * The caller has made room for {@link #MAX_CHAR_BYTES}.
+     *
+     * @return the index of the last char consumed
+     */
+    private int putUtf8(String s, int i) {
+        char c = s.charAt(i);
+        if (c < 0x80) {
+            bytes[pos++] = (byte) c;
+        } else if (c < 0x800) {
+            bytes[pos++] = (byte) (0xC0 | c >> 6);
+            bytes[pos++] = (byte) (0x80 | c & 0x3F);
+        } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, s.charAt(++i));
+            bytes[pos++] = (byte) (0xF0 | cp >> 18);
+            bytes[pos++] = (byte) (0x80 | cp >> 12 & 0x3F);
+            bytes[pos++] = (byte) (0x80 | cp >> 6 & 0x3F);
+            bytes[pos++] = (byte) (0x80 | cp & 0x3F);
+        } else if (Character.isSurrogate(c)) {
+            // a lone surrogate becomes '?', as String.getBytes does
+            bytes[pos++] = (byte) '?';
+        } else {
+            bytes[pos++] = (byte) (0xE0 | c >> 12);
+            bytes[pos++] = (byte) (0x80 | c >> 6 & 0x3F);
+            bytes[pos++] = (byte) (0x80 | c & 0x3F);
+        }
+        return i;
+    }
+}
@@ -0,0 +1,210 @@
+package org.example;
+
+import org.example.jsonClasses.PaymentMethod;
+import org.example.jsonClasses.Scenario;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Allocates one set of orders under many sets of method limits, to compare
+ * what-if scenarios without a run per scenario.
+ * The table is sorted and its eligibility index built once; every scenario
+ * then runs the columnar engine on its own assignments over the shared rows,
+ * with its own copies of the methods and its own {@link PaymentSummary}.
+ * Scenarios run in parallel on a ForkJoinPool, each one on a single thread,
+ * with the same result as a run with those limits in the methods file.
+ */
+public class ScenarioBatch {
+    private final OrderTable table;
+    private final List<PaymentMethod> methods;
+    private final EligibilityIndex index;
+    private final long totalValue;
+
+    /**
+     * Constructor for the ScenarioBatch class. Sorts the table by value.
+     *
+     * @param table   the order table, built with the registry of the given methods
+     * @param methods the payment methods, whose limits scenarios start from
+     */
+    public ScenarioBatch(OrderTable table, List<PaymentMethod> methods) {
+        table.sortByValue();
+        this.table = table;
+        this.methods = List.copyOf(methods);
+        this.index = EligibilityIndex.of(table);
+        long total = 0;
+        for (int row = 0; row < table.size(); row++) {
+            total += table.getValue(row);
+        }
+        this.totalValue = total;
+    }
+
+    /**
+     * Allocates the orders under every scenario.
+     *
+     * @param scenarios the scenarios
+     * @param pool      the pool to run on
+     * @return the paid amounts and total discount of each scenario, in the given order
+     * @throws IllegalArgumentException if a scenario names an unknown method or a negative limit
+     */
+    public Comparison run(List<Scenario> scenarios, ForkJoinPool pool) {
+        List<List<PaymentMethod>> limits = new ArrayList<>(scenarios.size());
+        for (Scenario scenario : scenarios) {
+            limits.add(methodsFor(scenario));
+        }
+        long[][] paid = new long[scenarios.size()][];
+        ParallelRange.run(pool, scenarios.size(), 1, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                paid[i] = allocate(limits.get(i));
+            }
+        });
+
+        String[] names = new String[scenarios.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = scenarios.get(i).getName() != null ? scenarios.get(i).getName() : "scenario " + (i + 1);
+        }
+        String[] methodIds = new String[methods.size()];
+        for (int m = 0; m < methodIds.length; m++) {
+            methodIds[m] = methods.get(m).getId();
+        }
+        return new Comparison(names, methodIds, paid, totalValue);
+    }
+
+    /**
+     * Copies the methods with the limits of a scenario, keeping their indexes.
+     */
+    private List<PaymentMethod> methodsFor(Scenario scenario) {
+        Map<String, String> overrides = scenario.getLimits();
+        for (String methodId : overrides.keySet()) {
+            if (methods.stream().noneMatch(pm -> pm.getId().equals(methodId))) {
+                throw new IllegalArgumentException("Unknown payment method in scenario "
+                        + scenario.getName() + ": " + methodId);
+            }
+        }
+        List<PaymentMethod> copies = new ArrayList<>(methods.size());
+        for (PaymentMethod pm : methods) {
+            String override = overrides.get(pm.getId());
+            long limit = override != null ? Money.parse(override) : pm.getLimit();
+            if (limit < 0) {
+                throw new IllegalArgumentException("Negative limit in scenario "
+                        + scenario.getName() + ": " + pm.getId());
+            }
+            PaymentMethod copy = new PaymentMethod(pm.getId(), pm.getDiscount(), limit);
+            copy.setIndex(pm.getIndex(), pm.getRegistry());
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    /**
+     * Runs one scenario.
+     *
+     * @return the amount paid with each method, in method order
+     */
+    private long[] allocate(List<PaymentMethod> scenarioMethods) {
+        OrderTable own = table.withOwnAssignments();
+        new OrderTableEngine(own, scenarioMethods, index).run();
+        PaymentSummary summary = new PaymentSummary(scenarioMethods);
+        own.writeTo(summary);
+        Map<String, Long> paidByMethod = summary.getPaidByMethod();
+        long[] paid = new long[scenarioMethods.size()];
+        for (int m = 0; m < paid.length; m++) {
+            paid[m] = paidByMethod.getOrDefault(scenarioMethods.get(m).getId(), 0L);
+        }
+        return paid;
+    }
+
+    /**
+     * The paid amounts per method and the total discount of each scenario.
+     */
+    public static class Comparison {
+        private final String[] names;
+        private final String[] methodIds;
+        private final long[][] paid;
+        private final long[] discount;
+
+        Comparison(String[] names, String[] methodIds, long[][] paid, long totalValue) {
+            this.names = names;
+            this.methodIds = methodIds;
+            this.paid = paid;
+            this.discount = new long[names.length];
+            for (int i = 0; i < names.length; i++) {
+                long sum = 0;
+                for (long amount : paid[i]) {
+                    sum += amount;
+                }
+                // every order is paid, at full price if nothing else fits
+                discount[i] = totalValue - sum;
+            }
+        }
+
+        public int size() {
+            return names.length;
+        }
+
+        public String getName(int scenario) {
+            return names[scenario];
+        }
+
+        public List<String> getMethodIds() {
+            return List.of(methodIds);
+        }
+
+        /**
+         * Returns the amount a scenario paid with a method.
+         *
+         * @param scenario the scenario position
+         * @param methodId the method ID
+         * @return the amount in grosze
+         * @throws IllegalArgumentException if the method is unknown
+         */
+        public long getPaid(int scenario, String methodId) {
+            for (int m = 0; m < methodIds.length; m++) {
+                if (methodIds[m].equals(methodId)) return paid[scenario][m];
+            }
+            throw new IllegalArgumentException("Payment method not found: " + methodId);
+        }
+
+        /**
+         * Returns the total discount of a scenario: the order values minus all payments.
+         *
+         * @param scenario the scenario position
+         * @return the discount in grosze
+         */
+        public long getTotalDiscount(int scenario) {
+            return discount[scenario];
+        }
+
+        /**
+         * Prints one row per scenario with the amount paid per method and the total discount.
+         */
+        public void printTable() {
+            String[][] cells = new String[names.length + 1][methodIds.length + 2];
+            cells[0][0] = "scenario";
+            System.arraycopy(methodIds, 0, cells[0], 1, methodIds.length);
+            cells[0][methodIds.length + 1] = "discount";
+            for (int i = 0; i < names.length; i++) {
+                cells[i + 1][0] = names[i];
+                for (int m = 0; m < methodIds.length; m++) {
+                    cells[i + 1][m + 1] = Money.format(paid[i][m]);
+                }
+                cells[i + 1][methodIds.length + 1] = Money.format(discount[i]);
+            }
+            int[] width = new int[cells[0].length];
+            for (String[] row : cells) {
+                for (int c = 0; c < row.length; c++) {
+                    width[c] = Math.max(width[c], row[c].length());
+                }
+            }
+            StringBuilder sb = new StringBuilder();
+            for (String[] row : cells) {
+                sb.append(row[0]).append(" ".repeat(width[0] - row[0].length()));
+                for (int c = 1; c < row.length; c++) {
+                    sb.append("  ").append(" ".repeat(width[c] - row[c].length())).append(row[c]);
+                }
+                sb.append('\n');
+            }
+            System.out.print(sb);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Splits one allocation over several local worker processes.
+ * <p>
+ * Orders are partitioned by the hash of their ID and every method's limit is cut
+ * into one slice per shard, in proportion to the value of the shard's orders that
+ * may use the method; the slices add up to the limit exactly. Each worker is a
+ * {@code Main --worker} process that runs the greedy of {@link PaymentProcessor}
+ * on its shard against its slices, speaking the request and response format of
+ * {@link AllocationServer} over stdin and stdout.
+ * <p>
+ * The rebalancing round then takes back, latest payment first, the orders of any
+ * shard that went over a slice (the greedy writes off orders no method covers onto
+ * the lowest method), pools the limit every shard left unused, and pays those
+ * orders in this process against the pooled limits. Every shard stays within its
+ * slices, so the kept payments stay within the global limits; only orders that
+ * no method can cover even from the pooled limits are written off as a
+ * single-process run would.
+ */
+public class ShardCoordinator implements AllocationStrategy {
+    private static final Gson GSON = new Gson();
+
+    private final int shards;
+
+    /**
+     * Constructor for the ShardCoordinator class.
+     *
+     * @param shards the number of worker processes
+     */
+    public ShardCoordinator(int shards) {
+        if (shards < 1) {
+            throw new IllegalStateException("Shard count must be positive: " + shards);
+        }
+        this.shards = shards;
+    }
+
+    @Override
+    public String cacheKey() {
+        return getClass().getName() + "(shards=" + shards + ")";
+    }
+
+    @Override
+    public void allocate(List<Order> orders, List<PaymentMethod> methods, PaymentSummary summary) {
+        MethodRegistry.ensureBound(orders, methods);
+        int m = methods.size();
+
+        // 1) Phase: partition the orders and slice the limits
+        List<List<Order>> parts = new ArrayList<>(shards);
+        for (int s = 0; s < shards; s++) {
+            parts.add(new ArrayList<>());
+        }
+        long[][] demand = new long[m][shards];
+        for (Order o : orders) {
+            int s = Math.floorMod(o.getId().hashCode(), shards);
+            parts.get(s).add(o);
+            BitSet eligible = o.getEligibleMethods();
+            for (int i = eligible.nextSetBit(0); i >= 0; i = eligible.nextSetBit(i + 1)) {
+                demand[i][s] += o.getValue();
+            }
+        }
+        long[][] slices = new long[m][];
+        for (PaymentMethod pm : methods) {
+            slices[pm.getIndex()] = slice(pm.getLimit(), demand[pm.getIndex()]);
+        }
+
+        // 2) Phase: run the shards in worker processes
+        List<Map<String, List<PaymentSummary.PaymentEntry>>> results = runWorkers(parts, methods, slices);
+
+        // 3) Phase: keep what fits each slice and pool the unused limits
+        Map<String, List<PaymentSummary.PaymentEntry>> kept = new LinkedHashMap<>();
+        Set<String> released = new HashSet<>();
+        long[] unused = new long[m];
+        Map<String, Integer> indexById = new HashMap<>();
+        for (PaymentMethod pm : methods) {
+            indexById.put(pm.getId(), pm.getIndex());
+        }
+        for (int s = 0; s < shards; s++) {
+            long[] left = new long[m];
+            for (int i = 0; i < m; i++) {
+                left[i] = slices[i][s];
+            }
+            List<Map.Entry<String, List<PaymentSummary.PaymentEntry>>> paid = new ArrayList<>(results.get(s).entrySet());
+            for (Map.Entry<String, List<PaymentSummary.PaymentEntry>> e : paid) {
+                for (PaymentSummary.PaymentEntry entry : e.getValue()) {
+                    left[indexById.get(entry.getMethodId())] -= entry.getAmount();
+                }
+            }
+            released.addAll(release(paid, left, indexById));
+            for (Map.Entry<String, List<PaymentSummary.PaymentEntry>> e : paid) {
+                if (!released.contains(e.getKey())) {
+                    kept.put(e.getKey(), e.getValue());
+                }
+            }
+            for (int i = 0; i < m; i++) {
+                unused[i] += left[i];
+            }
+        }
+
+        // 4) Phase: pay the released and unpaid orders from the pooled limits
+        List<Order> leftover = new ArrayList<>();
+        for (Order o : orders) {
+            if (!kept.containsKey(o.getId())) {
+                leftover.add(o);
+            }
+        }
+        kept.forEach(summary::putPaymentEntries);
+        if (!leftover.isEmpty()) {
+            List<PaymentMethod> pooled = new ArrayList<>(m);
+            for (PaymentMethod pm : methods) {
+                pooled.add(new PaymentMethod(pm.getId(), pm.getDiscount(), unused[pm.getIndex()]));
+            }
+            new MethodRegistry(pooled).bind(leftover);
+            PaymentSummary rebalanced = new PaymentSummary(pooled);
+            PaymentProcessor.payByMethod(leftover, pooled, rebalanced);
+            summary.putAll(rebalanced);
+        }
+    }
+
+    /**
+     * Cuts a limit into one slice per shard, in proportion to the shards' demand.
+     *
+     * @param limit  the limit in grosze
+     * @param demand the value of the orders of each shard that may use the method
+     * @return the slices, adding up to the limit
+     */
+    static long[] slice(long limit, long[] demand) {
+        long[] weights = demand.clone();
+        boolean any = false;
+        for (long w : weights) {
+            any |= w > 0;
+        }
+        if (!any) {
+            Arrays.fill(weights, 1);
+        }
+        if (limit <= 0) {
+            long[] slices = new long[weights.length];
+            slices[0] = limit;
+            return slices;
+        }
+        return Money.allocate(limit, weights);
+    }
+
+    /**
+     * Takes back the latest payments of a shard that use a method it overdrew,
+     * until it is within all its slices.
+     *
+     * @param paid      the payments of the shard by order ID, in the order they were made
+     * @param left      per method index, the slice minus the payments; updated for the released payments
+     * @param indexById the method index of every method ID
+     * @return the IDs of the released orders
+     */
+    static Set<String> release(List<Map.Entry<String, List<PaymentSummary.PaymentEntry>>> paid,
+                               long[] left, Map<String, Integer> indexById) {
+        Set<String> released = new HashSet<>();
+        for (int k = paid.size() - 1; k >= 0 && isOverdrawn(left); k--) {
+            List<PaymentSummary.PaymentEntry> entries = paid.get(k).getValue();
+            boolean release = false;
+            for (PaymentSummary.PaymentEntry entry : entries) {
+                release |= left[indexById.get(entry.getMethodId())] < 0;
+            }
+            if (release) {
+                for (PaymentSummary.PaymentEntry entry : entries) {
+                    left[indexById.get(entry.getMethodId())] += entry.getAmount();
+                }
+                released.add(paid.get(k).getKey());
+            }
+        }
+        return released;
+    }
+
+    private static boolean isOverdrawn(long[] left) {
+        for (long l : left) {
+            if (l < 0) return true;
+        }
+        return false;
+    }
+
+    private List<Map<String, List<PaymentSummary.PaymentEntry>>> runWorkers(
+            List<List<Order>> parts, List<PaymentMethod> methods, long[][] slices) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<CompletableFuture<Map<String, List<PaymentSummary.PaymentEntry>>>> futures = new ArrayList<>();
+            for (int s = 0; s < shards; s++) {
+                AllocationServer.AllocationRequest request = new AllocationServer.AllocationRequest();
+                request.orders = parts.get(s);
+                request.paymentMethods = new ArrayList<>(methods.size());
+                for (PaymentMethod pm : methods) {
+                    request.paymentMethods.add(new PaymentMethod(pm.getId(), pm.getDiscount(), slices[pm.getIndex()][s]));
+                }
+                futures.add(CompletableFuture.supplyAsync(() -> runWorker(request, executor), executor));
+            }
+            List<Map<String, List<PaymentSummary.PaymentEntry>>> results = new ArrayList<>(shards);
+            for (CompletableFuture<Map<String, List<PaymentSummary.PaymentEntry>>> f : futures) {
+                results.add(f.join());
+            }
+            return results;
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof IllegalStateException ise ? ise : new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Runs one shard in a {@code Main --worker} process.
+     *
+     * @return the payment entries by order ID, in the order the worker paid them
+     */
+    private static Map<String, List<PaymentSummary.PaymentEntry>> runWorker(
+            AllocationServer.AllocationRequest request, ExecutorService executor) {
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+        ProcessBuilder pb = new ProcessBuilder(java.toString(), "-cp", System.getProperty("java.class.path"),
+                Main.class.getName(), "--worker");
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        try {
+            Process process = pb.start();
+            // feed stdin on its own thread so a full stdout pipe cannot block both sides
+            CompletableFuture<Void> feeding = CompletableFuture.runAsync(() -> {
+                try (Writer in = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8))) {
+                    GSON.toJson(request, in);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor);
+            String response;
+            try (InputStream out = process.getInputStream()) {
+                response = new String(out.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            int exit = process.waitFor();
+            if (exit != 0) {
+                throw new IllegalStateException("Worker exited with " + exit);
+            }
+            feeding.join();
+            return entries(JsonParser.parseString(response).getAsJsonObject().getAsJsonObject("orders"));
+        } catch (IOException e) {
+            throw new IllegalStateException("Worker failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a worker", e);
+        }
+    }
+
+    private static Map<String, List<PaymentSummary.PaymentEntry>> entries(JsonObject orders) {
+        Map<String, List<PaymentSummary.PaymentEntry>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonElement> e : orders.entrySet()) {
+            JsonArray array = e.getValue().getAsJsonArray();
+            List<PaymentSummary.PaymentEntry> entries = new ArrayList<>(array.size());
+            for (JsonElement element : array) {
+                JsonObject entry = element.getAsJsonObject();
+                entries.add(new PaymentSummary.PaymentEntry(
+                        entry.get("method").getAsString(),
+                        Money.parse(entry.get("amount").getAsString())));
+            }
+            result.put(e.getKey(), entries);
+        }
+        return result;
+    }
+}
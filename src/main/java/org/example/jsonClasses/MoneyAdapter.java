@@ -0,0 +1,29 @@
+package org.example.jsonClasses;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.example.Money;
+
+import java.io.IOException;
+
+/**
+ * Reads decimal amounts given as JSON strings or numbers ("100.00" or 100.0)
+ * straight into grosze, and writes them back as two-place decimal strings.
+ */
+public class MoneyAdapter extends TypeAdapter<Long> {
+    @Override
+    public void write(JsonWriter out, Long value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+        } else {
+            out.value(Money.format(value));
+        }
+    }
+
+    @Override
+    public Long read(JsonReader in) throws IOException {
+        // nextString also accepts number tokens and keeps their exact text
+        return Money.parse(in.nextString());
+    }
+}
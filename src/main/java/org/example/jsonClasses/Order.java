@@ -1,20 +1,30 @@
 package org.example.jsonClasses;
 
+import com.google.gson.annotations.JsonAdapter;
+import org.example.Money;
+
 import java.util.Arrays;
+import java.util.BitSet;
 
+@JsonAdapter(OrderAdapter.class)
 public class Order {
     private final String id;
-    private final float value;
+    // value in grosze
+    private final long value;
     private final String[] promotions;
+    // indexes of the payment methods this order may use, set by MethodRegistry
+    private transient BitSet eligibleMethods;
+    // generation of the MethodRegistry that set eligibleMethods, 0 if none did
+    private transient long registry;
 
     /**
      * Constructor for the Order class.
      *
      * @param id         the unique identifier for the order
-     * @param value      the value of the order
+     * @param value      the value of the order in grosze
      * @param promotions an array of promotions associated with the order
      */
-    public Order(String id, float value, String[] promotions) {
+    public Order(String id, long value, String[] promotions) {
         this.id = id;
         this.value = value;
         this.promotions = promotions;
@@ -24,7 +34,7 @@ public class Order {
         return id;
     }
 
-    public float getValue(){
+    public long getValue(){
         return value;
     }
 
@@ -32,12 +42,35 @@ public class Order {
         return promotions;
     }
 
+    public BitSet getEligibleMethods() {
+        return eligibleMethods;
+    }
+
+    public void setEligibleMethods(BitSet eligibleMethods) {
+        setEligibleMethods(eligibleMethods, 0);
+    }
+
+    /**
+     * Sets the eligible method indexes, as computed by a method registry.
+     *
+     * @param eligibleMethods the eligible method indexes
+     * @param registry        the generation of the registry that assigned the indexes
+     */
+    public void setEligibleMethods(BitSet eligibleMethods, long registry) {
+        this.eligibleMethods = eligibleMethods;
+        this.registry = registry;
+    }
+
+    public long getRegistry() {
+        return registry;
+    }
+
     @Override
     public String toString() {
         return String.format(
-                "Order{id = %s, value = %.2f, promotions = %s}",
+                "Order{id = %s, value = %s, promotions = %s}",
                 id,
-                value,
+                Money.format(value),
                 Arrays.toString(promotions)
         );
     }
@@ -0,0 +1,94 @@
+package org.example.jsonClasses;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes orders field by field, so Gson does not build a reflective
+ * adapter for them at startup. Accepts what the reflective adapter accepted:
+ * unknown fields are skipped, a repeated field replaces the earlier one, and a
+ * missing or null field keeps its default.
+ */
+public class OrderAdapter extends TypeAdapter<Order> {
+    private static final MoneyAdapter MONEY = new MoneyAdapter();
+
+    @Override
+    public void write(JsonWriter out, Order order) throws IOException {
+        if (order == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (order.getId() != null) {
+            out.name("id").value(order.getId());
+        }
+        out.name("value");
+        MONEY.write(out, order.getValue());
+        if (order.getPromotions() != null) {
+            out.name("promotions").beginArray();
+            for (String promotion : order.getPromotions()) {
+                out.value(promotion);
+            }
+            out.endArray();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public Order read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String id = null;
+        long value = 0;
+        String[] promotions = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                // as with reflection, null clears a reference field and leaves the value as it was
+                if ("id".equals(name)) id = null;
+                if ("promotions".equals(name)) promotions = null;
+                continue;
+            }
+            switch (name) {
+                case "id" -> id = readString(in);
+                case "value" -> value = MONEY.read(in);
+                case "promotions" -> promotions = readStrings(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return new Order(id, value, promotions);
+    }
+
+    private static String[] readStrings(JsonReader in) throws IOException {
+        List<String> strings = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                strings.add(null);
+            } else {
+                strings.add(readString(in));
+            }
+        }
+        in.endArray();
+        return strings.toArray(new String[0]);
+    }
+
+    /**
+     * Reads a string as Gson does, also from a number or boolean token.
+     */
+    static String readString(JsonReader in) throws IOException {
+        return in.peek() == JsonToken.BOOLEAN ? Boolean.toString(in.nextBoolean()) : in.nextString();
+    }
+}
@@ -1,18 +1,27 @@
 package org.example.jsonClasses;
 
+import com.google.gson.annotations.JsonAdapter;
+import org.example.Money;
+
+@JsonAdapter(PaymentMethodAdapter.class)
 public class PaymentMethod {
     private final String id;
     private final int discount;
-    private float limit;
+    // limit in grosze
+    private long limit;
+    // dense index assigned by MethodRegistry
+    private transient int index = -1;
+    // generation of the MethodRegistry that assigned the index, 0 if none did
+    private transient long registry;
 
     /**
      * Constructor for the PaymentMethod class.
      *
      * @param id      the unique identifier for the payment method
      * @param discount the discount percentage associated with the payment method
-     * @param limit   the limit for the payment method
+     * @param limit   the limit for the payment method in grosze
      */
-    public PaymentMethod(String id, int discount, float limit) {
+    public PaymentMethod(String id, int discount, long limit) {
         this.id = id;
         this.discount = discount;
         this.limit = limit;
@@ -26,21 +35,44 @@ public class PaymentMethod {
         return discount;
     }
 
-    public double getLimit() {
+    public long getLimit() {
         return limit;
     }
 
-    public void setLimit(float limit) {
+    public void setLimit(long limit) {
         this.limit = limit;
     }
 
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        setIndex(index, 0);
+    }
+
+    /**
+     * Sets the dense index, as assigned by a method registry.
+     *
+     * @param index    the index
+     * @param registry the generation of the registry that assigned it
+     */
+    public void setIndex(int index, long registry) {
+        this.index = index;
+        this.registry = registry;
+    }
+
+    public long getRegistry() {
+        return registry;
+    }
+
     @Override
     public String toString() {
         return String.format(
-                "Payment Method{id = %s, discount = %d, limit = %.2f}",
+                "Payment Method{id = %s, discount = %d, limit = %s}",
                 id,
                 discount,
-                limit
+                Money.format(limit)
         );
     }
 }
@@ -0,0 +1,71 @@
+package org.example.jsonClasses;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes payment methods field by field, so Gson does not build a
+ * reflective adapter for them at startup. Accepts what the reflective adapter
+ * accepted, like {@link OrderAdapter}; the registry index is not written.
+ */
+public class PaymentMethodAdapter extends TypeAdapter<PaymentMethod> {
+    private static final MoneyAdapter MONEY = new MoneyAdapter();
+
+    @Override
+    public void write(JsonWriter out, PaymentMethod method) throws IOException {
+        if (method == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (method.getId() != null) {
+            out.name("id").value(method.getId());
+        }
+        out.name("discount").value(method.getDiscount());
+        out.name("limit");
+        MONEY.write(out, method.getLimit());
+        out.endObject();
+    }
+
+    @Override
+    public PaymentMethod read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String id = null;
+        int discount = 0;
+        long limit = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                if ("id".equals(name)) id = null;
+                continue;
+            }
+            switch (name) {
+                case "id" -> id = OrderAdapter.readString(in);
+                case "discount" -> discount = readInt(in);
+                case "limit" -> limit = MONEY.read(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return new PaymentMethod(id, discount, limit);
+    }
+
+    private static int readInt(JsonReader in) throws IOException {
+        try {
+            // also reads "15" and 15.0
+            return in.nextInt();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.jsonClasses;
+
+import java.util.Collections;
+import java.util.Map;
+
+public class Scenario {
+    private final String name;
+    // limits that differ from the payment methods file, by method ID, as decimal amounts
+    private final Map<String, String> limits;
+
+    /**
+     * Constructor for the Scenario class.
+     *
+     * @param name   the name shown in the comparison
+     * @param limits the limits to use instead of the methods' own, by method ID, as decimal amounts
+     */
+    public Scenario(String name, Map<String, String> limits) {
+        this.name = name;
+        this.limits = limits;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, String> getLimits() {
+        return limits != null ? limits : Collections.emptyMap();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Scenario{name = %s, limits = %s}", name, getLimits());
+    }
+}
@@ -0,0 +1,139 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sends requests to a server on a free port and checks the status codes:
+ * allocations, invalid input, wrong methods, oversized bodies and a full queue.
+ */
+class AllocationServerTest {
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    @Test
+    void allocatesTheFixture() throws Exception {
+        String body = "{\"orders\": " + Files.readString(Path.of(TestData.RESOURCES, "orders.json"))
+                + ", \"paymentMethods\": " + Files.readString(Path.of(TestData.RESOURCES, "paymentmethods.json")) + "}";
+        AllocationServer server = start(4);
+        try {
+            HttpResponse<String> response = post(server, HttpRequest.BodyPublishers.ofString(body));
+            assertEquals(200, response.statusCode(), response.body());
+            assertEquals(AllocationServer.allocate(new StringReader(body)), response.body());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void invalidInputIsABadRequest() throws Exception {
+        String orders = "\"orders\": [{\"id\": \"A\", \"value\": \"10.00\"}]";
+        String[] bodies = {
+                "{\"orders\": [",
+                "{" + orders + "}",
+                "{" + orders + ", \"paymentMethods\": []}",
+                "{" + orders + ", \"paymentMethods\": [{\"discount\": \"5\", \"limit\": \"10.00\"}]}",
+                "{" + orders + ", \"paymentMethods\": [{\"id\": \"CARD\", \"discount\": \"5\", \"limit\": \"10.00\"}]}",
+                "{" + orders + ", \"paymentMethods\": [{\"id\": \"PUNKTY\", \"discount\": \"5\", \"limit\": \"10.00\"},"
+                        + " {\"id\": \"PUNKTY\", \"discount\": \"7\", \"limit\": \"10.00\"}]}",
+        };
+        AllocationServer server = start(4);
+        try {
+            for (String body : bodies) {
+                HttpResponse<String> response = post(server, HttpRequest.BodyPublishers.ofString(body));
+                assertEquals(400, response.statusCode(), body + " -> " + response.body());
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void onlyPostIsAllowed() throws Exception {
+        AllocationServer server = start(4);
+        try {
+            HttpResponse<String> response = CLIENT.send(HttpRequest.newBuilder(uri(server)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(405, response.statusCode());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void oversizedBodyIsRejected() throws Exception {
+        long size = 64L * 1024 * 1024 + 1;
+        AllocationServer server = start(4);
+        try {
+            HttpResponse<String> response = post(server,
+                    HttpRequest.BodyPublishers.fromPublisher(HttpRequest.BodyPublishers.ofInputStream(() -> spaces(size)), size));
+            assertEquals(413, response.statusCode(), response.body());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void fullQueueTimesOut() throws Exception {
+        // no permits at all, so every allocation waits out the queue timeout
+        AllocationServer server = start(0);
+        try {
+            HttpResponse<String> response = post(server, HttpRequest.BodyPublishers.ofString("{}"));
+            assertEquals(503, response.statusCode());
+            assertTrue(response.body().contains("too many concurrent requests"), response.body());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static AllocationServer start(int maxConcurrent) throws IOException {
+        AllocationServer server = new AllocationServer(0, maxConcurrent, 50);
+        server.start();
+        return server;
+    }
+
+    private static URI uri(AllocationServer server) {
+        return URI.create("http://localhost:" + server.getPort() + "/allocate");
+    }
+
+    private static HttpResponse<String> post(AllocationServer server, HttpRequest.BodyPublisher body)
+            throws IOException, InterruptedException {
+        return CLIENT.send(HttpRequest.newBuilder(uri(server)).POST(body).build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    private static InputStream spaces(long size) {
+        return new InputStream() {
+            private long left = size;
+
+            @Override
+            public int read() {
+                if (left == 0) return -1;
+                left--;
+                return ' ';
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (left == 0) return -1;
+                int n = (int) Math.min(len, left);
+                Arrays.fill(b, off, off + n, (byte) ' ');
+                left -= n;
+                return n;
+            }
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a session kept up to date through random changes gives the same
+ * result as a fresh run over the current orders and limits. Small tables make
+ * changes at the first and last rows and at the row a method stopped at common.
+ */
+class AllocationSessionTest {
+
+    @Test
+    void randomChangesMatchFreshRun() {
+        randomChanges(new Random(12), 40, 400);
+    }
+
+    @Test
+    void randomChangesToSmallTablesMatchFreshRun() {
+        randomChanges(new Random(13), 600, 20);
+    }
+
+    private static void randomChanges(Random random, int runs, int poolSize) {
+        for (int run = 0; run < runs; run++) {
+            List<PaymentMethod> methods = TestData.randomMethods(random);
+            List<Order> pool = TestData.randomOrders(random, methods, poolSize);
+            Map<String, Long> limits = new LinkedHashMap<>();
+            for (PaymentMethod pm : methods) {
+                limits.put(pm.getId(), pm.getLimit());
+            }
+            AllocationSession session = new AllocationSession(methods);
+            // current orders in arrival order
+            LinkedHashMap<String, Order> current = new LinkedHashMap<>();
+            int next = 0;
+
+            for (int step = 0; step < 60; step++) {
+                int action = random.nextInt(10);
+                if (action < 5 && next < pool.size()) {
+                    List<Order> batch = new ArrayList<>();
+                    for (int i = 1 + random.nextInt(20); i > 0 && next < pool.size(); i--) {
+                        batch.add(pool.get(next++));
+                    }
+                    session.addOrders(batch);
+                    batch.forEach(o -> current.put(o.getId(), o));
+                } else if (action < 8 && !current.isEmpty()) {
+                    List<String> ids = new ArrayList<>(current.keySet());
+                    String id = ids.get(random.nextInt(ids.size()));
+                    assertTrue(session.removeOrder(id));
+                    Order removed = current.remove(id);
+                    if (random.nextInt(4) == 0) {
+                        // the same ID arrives again, now last
+                        session.addOrders(List.of(removed));
+                        current.put(id, removed);
+                    }
+                } else {
+                    PaymentMethod pm = methods.get(random.nextInt(methods.size()));
+                    long limit = random.nextInt(4) == 0 ? 0 : random.nextLong(200_000);
+                    session.updateLimit(pm.getId(), limit);
+                    limits.put(pm.getId(), limit);
+                }
+                if (random.nextInt(3) == 0) {
+                    continue;
+                }
+                assertSameAsFreshRun(session, current.values(), methods, limits);
+            }
+            assertSameAsFreshRun(session, current.values(), methods, limits);
+        }
+    }
+
+    private static void assertSameAsFreshRun(AllocationSession session, Collection<Order> orders,
+                                             List<PaymentMethod> methods, Map<String, Long> limits) {
+        List<PaymentMethod> freshMethods = new ArrayList<>();
+        for (PaymentMethod pm : methods) {
+            freshMethods.add(new PaymentMethod(pm.getId(), pm.getDiscount(), limits.get(pm.getId())));
+        }
+        PaymentSummary expected = new PaymentSummary(freshMethods);
+        PaymentProcessor.payByMethod(TestData.copyOrders(new ArrayList<>(orders)), freshMethods, expected);
+
+        PaymentSummary actual = session.getSummary();
+        assertEquals(orders.size(), session.size());
+        assertEquals(new HashMap<>(expected.getPaymentsByOrder()), new HashMap<>(actual.getPaymentsByOrder()),
+                "payments by order");
+        assertEquals(expected.getPaidByMethod(), actual.getPaidByMethod(), "paid by method");
+        for (PaymentMethod pm : methods) {
+            assertEquals(expected.getRemainingLimit(pm.getId()), actual.getRemainingLimit(pm.getId()),
+                    "remaining limit of " + pm.getId());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that snapshots read back what was written, also through mappings
+ * small enough that numbers and dictionary strings cross their boundaries.
+ */
+class BinarySnapshotTest {
+
+    @Test
+    void ordersRoundTripAcrossSegments() throws IOException {
+        Path dir = Files.createTempDirectory("snapshot");
+        try {
+            Random random = new Random(15);
+            List<PaymentMethod> methods = TestData.randomMethods(random);
+            List<Order> orders = TestData.randomOrders(random, methods, 50_000);
+            orders.add(new Order(null, 100, new String[]{null, "ż-ółć"}));
+            Path json = Files.writeString(dir.resolve("orders.json"), "[]");
+            BinarySnapshot.writeOrders(json, orders);
+            assertTrue(BinarySnapshot.hasFreshOrders(json));
+            assertTrue(Files.size(BinarySnapshot.pathFor(json)) > 1 << 20, "larger than the write buffer");
+
+            for (int segmentBytes : new int[]{1 << 30, 65_537, 4099}) {
+                List<Order> read = BinarySnapshot.readOrders(json, segmentBytes);
+                assertEquals(orders.size(), read.size());
+                for (int i = 0; i < orders.size(); i++) {
+                    assertEquals(orders.get(i).toString(), read.get(i).toString(), "order " + i);
+                }
+            }
+        } finally {
+            for (Path file : Files.list(dir).toList()) {
+                Files.delete(file);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    void methodsRoundTrip() throws IOException {
+        Path dir = Files.createTempDirectory("snapshot");
+        try {
+            List<PaymentMethod> methods = TestData.methods("paymentmethodsT.json");
+            Path json = Files.writeString(dir.resolve("methods.json"), "[]");
+            BinarySnapshot.writeMethods(json, methods);
+            List<PaymentMethod> read = BinarySnapshot.readMethods(json);
+            assertEquals(methods.toString(), read.toString());
+        } finally {
+            for (Path file : Files.list(dir).toList()) {
+                Files.delete(file);
+            }
+            Files.delete(dir);
+        }
+    }
+}
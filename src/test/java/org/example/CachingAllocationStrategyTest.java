@@ -0,0 +1,97 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Checks that the result cache keeps strategies with different parameters,
+ * and inputs that allocate differently, apart.
+ */
+class CachingAllocationStrategyTest {
+
+    @Test
+    void parametersArePartOfTheKey() throws IOException {
+        List<Order> orders = TestData.orders("ordersT.json");
+        List<PaymentMethod> methods = TestData.methods("paymentmethodsT.json");
+        List<AllocationStrategy> strategies = List.of(
+                new GreedyAllocationStrategy(ExecutionMode.SEQUENTIAL),
+                new GreedyAllocationStrategy(ExecutionMode.PARALLEL),
+                new OptimizingAllocationStrategy(Duration.ofMillis(10)),
+                new OptimizingAllocationStrategy(Duration.ofMillis(20)),
+                new ShardCoordinator(2),
+                new ShardCoordinator(3));
+        Set<String> keys = new HashSet<>();
+        for (AllocationStrategy strategy : strategies) {
+            keys.add(ResultCache.key(strategy.cacheKey(), orders, methods));
+        }
+        assertEquals(strategies.size(), keys.size());
+    }
+
+    @Test
+    void sameParametersHitTheCache() throws IOException {
+        ResultCache cache = new ResultCache(1_000);
+        PaymentMetrics.reset();
+        PaymentMetrics.enable(false);
+        try {
+            for (int run = 0; run < 2; run++) {
+                List<PaymentMethod> methods = TestData.methods("paymentmethodsT.json");
+                List<Order> orders = TestData.orders("ordersT.json");
+                new MethodRegistry(methods).bind(orders);
+                new CachingAllocationStrategy(new GreedyAllocationStrategy(), cache)
+                        .allocate(orders, methods, new PaymentSummary(methods));
+            }
+            List<PaymentMethod> methods = TestData.methods("paymentmethodsT.json");
+            List<Order> orders = TestData.orders("ordersT.json");
+            new MethodRegistry(methods).bind(orders);
+            new CachingAllocationStrategy(new GreedyAllocationStrategy(ExecutionMode.PARALLEL), cache)
+                    .allocate(orders, methods, new PaymentSummary(methods));
+        } finally {
+            PaymentMetrics.disable();
+        }
+        Object counters = PaymentMetrics.snapshot().get("resultCache");
+        assertEquals("{memoryHits=1, diskHits=0, misses=2, evictions=0, invalidations=0}", counters.toString());
+    }
+
+    @Test
+    void nullAndEmptyPromotionsAreDifferentInputs() {
+        List<PaymentMethod> methods = TestData.randomMethods(new Random(30));
+        List<Order> withNull = TestData.randomOrders(new Random(30), methods, 200);
+        // the same orders, with no promotions written as [] instead of null
+        List<Order> withEmpty = new ArrayList<>(withNull.size());
+        for (Order o : withNull) {
+            withEmpty.add(new Order(o.getId(), o.getValue(), o.getPromotions() == null ? new String[0] : o.getPromotions()));
+        }
+        AllocationStrategy greedy = new GreedyAllocationStrategy();
+        assertNotEquals(ResultCache.key(greedy.cacheKey(), withNull, methods),
+                ResultCache.key(greedy.cacheKey(), withEmpty, methods));
+
+        ResultCache cache = new ResultCache(1_000_000);
+        for (List<Order> orders : List.of(withNull, withEmpty)) {
+            List<PaymentMethod> uncachedMethods = TestData.copy(methods);
+            List<Order> uncachedOrders = TestData.copyOrders(orders);
+            new MethodRegistry(uncachedMethods).bind(uncachedOrders);
+            PaymentSummary expected = new PaymentSummary(uncachedMethods);
+            greedy.allocate(uncachedOrders, uncachedMethods, expected);
+
+            List<PaymentMethod> cachedMethods = TestData.copy(methods);
+            List<Order> cachedOrders = TestData.copyOrders(orders);
+            new MethodRegistry(cachedMethods).bind(cachedOrders);
+            PaymentSummary actual = new PaymentSummary(cachedMethods);
+            new CachingAllocationStrategy(greedy, cache).allocate(cachedOrders, cachedMethods, actual);
+            assertEquals(new HashMap<>(expected.getPaymentsByOrder()), new HashMap<>(actual.getPaymentsByOrder()));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that merging spilled runs gives the same table as sorting in memory,
+ * also when there are more runs than are merged at once.
+ */
+class ExternalOrderSorterTest {
+
+    @Test
+    void mergesManyRunsLikeSortByValue() throws IOException {
+        Path dir = Files.createTempDirectory("runs");
+        try {
+            Random random = new Random(21);
+            List<PaymentMethod> methods = TestData.randomMethods(random);
+            List<Order> orders = TestData.randomOrders(random, methods, 5_000);
+            // longer than writeUTF allows
+            orders.add(2_500, new Order("X".repeat(70_000) + "ż", 100, null));
+            MethodRegistry registry = new MethodRegistry(methods);
+
+            OrderTable merged;
+            // two orders per run, so runs are first merged in groups
+            try (ExternalOrderSorter sorter = new ExternalOrderSorter(registry, 200, dir)) {
+                for (Order order : orders) {
+                    sorter.add(order);
+                }
+                assertTrue(sorter.getSpilledRuns() > 64, "runs: " + sorter.getSpilledRuns());
+                merged = sorter.build();
+            }
+            try (var left = Files.list(dir)) {
+                assertEquals(0, left.count(), "run files left");
+            }
+
+            OrderTable expected = OrderTable.of(orders, registry);
+            expected.sortByValue();
+            int size = expected.size();
+            assertEquals(size, merged.size());
+            int words = OrderTable.wordsFor(registry.size());
+            for (int row = 0; row < size; row++) {
+                assertEquals(expected.getId(row), merged.getId(row), "row " + row);
+                long value = expected.getValue(row);
+                assertEquals(value, merged.getValue(row), "row " + row);
+                for (int w = 0; w < words; w++) {
+                    long word = expected.getEligibilityWord(row, w);
+                    assertEquals(word, merged.getEligibilityWord(row, w), "row " + row);
+                }
+            }
+        } finally {
+            try (var left = Files.list(dir)) {
+                for (Path file : left.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+}
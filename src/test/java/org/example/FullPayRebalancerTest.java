@@ -0,0 +1,92 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the incremental {@link FullPayRebalancer} leaves the same payments
+ * as the rescanning {@link FullPayReference}.
+ */
+class FullPayRebalancerTest {
+
+    @Test
+    void bundledFixtures() throws IOException {
+        assertSameAsReference(TestData.orders("orders.json"), TestData.methods("paymentmethods.json"));
+        assertSameAsReference(TestData.orders("ordersT.json"), TestData.methods("paymentmethodsT.json"));
+    }
+
+    @Test
+    void randomInputs() {
+        Random random = new Random(4);
+        for (int run = 0; run < 300; run++) {
+            List<PaymentMethod> methods = TestData.randomMethods(random);
+            assertSameAsReference(TestData.randomOrders(random, methods, 1 + random.nextInt(200)), methods);
+        }
+    }
+
+    @Test
+    void randomInputsWithPunktyAsLowest() {
+        Random random = new Random(5);
+        for (int run = 0; run < 300; run++) {
+            // every card gets a larger discount than PUNKTY, so PUNKTY sorts last;
+            // above 10% PUNKTY also takes part in the reorder
+            int punktyDiscount = random.nextInt(20);
+            List<PaymentMethod> methods = new ArrayList<>();
+            for (PaymentMethod pm : TestData.randomMethods(random)) {
+                int discount = MethodRegistry.PUNKTY.equals(pm.getId())
+                        ? punktyDiscount
+                        : punktyDiscount + 1 + random.nextInt(15);
+                methods.add(new PaymentMethod(pm.getId(), discount, pm.getLimit()));
+            }
+            assertSameAsReference(TestData.randomOrders(random, methods, 1 + random.nextInt(200)), methods);
+        }
+    }
+
+    private static void assertSameAsReference(List<Order> orders, List<PaymentMethod> methods) {
+        PaymentSummary expected = fullPay(orders, methods, (ctx) -> FullPayReference.run(
+                ctx.orders, ctx.methods, ctx.punkty, ctx.lowest, ctx.summary));
+        PaymentSummary actual = fullPay(orders, methods, (ctx) -> new FullPayRebalancer(
+                ctx.orders, ctx.methods, ctx.punkty, ctx.lowest, ctx.summary,
+                EligibilityIndex.of(ctx.orders, ctx.methods.size())).run());
+
+        assertEquals(new HashMap<>(expected.getPaymentsByOrder()), new HashMap<>(actual.getPaymentsByOrder()),
+                "payments after the full-pay phase");
+        assertEquals(expected.getPaidByMethod(), actual.getPaidByMethod(), "paid by method");
+    }
+
+    /**
+     * Runs the steps of the greedy up to and including the full-pay phase, on copies
+     * of the inputs.
+     */
+    private static PaymentSummary fullPay(List<Order> orders, List<PaymentMethod> methods, Consumer<Context> phase) {
+        Context ctx = new Context();
+        ctx.orders = TestData.copyOrders(orders);
+        ctx.methods = TestData.copy(methods);
+        MethodRegistry.ensureBound(ctx.orders, ctx.methods);
+        ctx.methods.sort(Comparator.comparingInt(PaymentMethod::getDiscount).reversed());
+        ctx.orders.sort(Comparator.comparingLong(Order::getValue));
+        ctx.summary = new PaymentSummary(ctx.methods);
+        ctx.punkty = ctx.methods.stream().filter(pm -> MethodRegistry.PUNKTY.equals(pm.getId())).findFirst().orElseThrow();
+        ctx.lowest = ctx.methods.getLast();
+
+        PaymentProcessor.paymentReorder(ctx.orders, ctx.methods, ctx.summary);
+        PaymentProcessor.splitPunkty10percent(ctx.orders, ctx.punkty, ctx.lowest, ctx.summary);
+        phase.accept(ctx);
+        return ctx.summary;
+    }
+
+    private static class Context {
+        List<Order> orders;
+        List<PaymentMethod> methods;
+        PaymentMethod punkty;
+        PaymentMethod lowest;
+        PaymentSummary summary;
+    }
+}
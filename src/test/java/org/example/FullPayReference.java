@@ -0,0 +1,41 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+
+import java.util.List;
+
+/**
+ * The full-pay phase as it was before {@link FullPayRebalancer}: after every full
+ * PUNKTY payment, the >10% reorder and the 10% split are repeated over all orders.
+ * Quadratic in the number of orders; kept only to check the rebalancer against.
+ */
+final class FullPayReference {
+
+    private FullPayReference() {}
+
+    /**
+     * Runs the full-pay phase.
+     *
+     * @param orders  the list of orders, sorted by value
+     * @param methods the list of payment methods, sorted by discount descending
+     * @param punkty  the PUNKTY payment method
+     * @param lowest  the lowest discount payment method
+     * @param summary the payment summary
+     */
+    static void run(List<Order> orders,
+                    List<PaymentMethod> methods,
+                    PaymentMethod punkty,
+                    PaymentMethod lowest,
+                    PaymentSummary summary) {
+        for (Order o : orders) {
+            long fullCost = Money.discounted(o.getValue(), punkty.getDiscount());
+            if (fullCost <= summary.getRemainingLimit(punkty.getId())) {
+                summary.putPayment(o.getId(), punkty.getId(), fullCost);
+                List<Order> notFullyPaid = PaymentProcessor.filterNotFullyPunktyPaidOrders(orders, summary, punkty.getId());
+                PaymentProcessor.paymentReorder(notFullyPaid, methods, summary);
+                PaymentProcessor.splitPunkty10percent(orders, punkty, lowest, summary);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.example;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import org.example.jsonClasses.Order;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that streaming reads the same orders as parsing the whole file, and
+ * that both read UTF-8 and reject what follows the top-level array.
+ */
+class JsonFileParserTest {
+
+    @Test
+    void streamingReadsWhatParseReads() throws IOException {
+        JsonFileParser<Order> parser = parser(TestData.RESOURCES + "orders.json");
+        List<Order> streamed = new ArrayList<>();
+        parser.forEach(streamed::add);
+        assertEquals(parser.parse().toString(), streamed.toString());
+    }
+
+    @Test
+    void readsUtf8() throws IOException {
+        Path file = write("[{\"id\":\"ZAMÓWIENIE-żółć\",\"value\":\"1.00\",\"promotions\":[\"€\"]}]");
+        try {
+            JsonFileParser<Order> parser = parser(file.toString());
+            assertEquals("ZAMÓWIENIE-żółć", parser.parse().get(0).getId());
+            List<Order> streamed = new ArrayList<>();
+            parser.forEach(streamed::add);
+            assertEquals("ZAMÓWIENIE-żółć", streamed.get(0).getId());
+            assertEquals("€", streamed.get(0).getPromotions()[0]);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void streamingEndsOnceAtTheEndOfTheArray() throws IOException {
+        Path file = write("[{\"id\":\"A\",\"value\":\"1.00\"}]\n  ");
+        try (JsonFileParser<Order>.StreamingIterator it = parser(file.toString()).iterator()) {
+            it.next();
+            assertFalse(it.hasNext());
+            assertFalse(it.hasNext());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void dataAfterTheArrayIsRejected() throws IOException {
+        for (String json : List.of("[{\"id\":\"A\",\"value\":\"1.00\"}] garbage", "[] []", "[]]")) {
+            Path file = write(json);
+            try {
+                JsonFileParser<Order> parser = parser(file.toString());
+                assertThrows(JsonParseException.class, parser::parse, json);
+                assertThrows(JsonParseException.class, () -> parser.forEach(o -> {}), json);
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void malformedAndNullElementsAreRejectedWhileStreaming() throws IOException {
+        for (String json : List.of("[{\"id\":\"A\",\"value\":\"1.00\"} {\"id\":\"B\"}]", "[null]")) {
+            Path file = write(json);
+            try {
+                assertThrows(JsonParseException.class, () -> parser(file.toString()).forEach(o -> {}), json);
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static JsonFileParser<Order> parser(String fileName) {
+        return new JsonFileParser<>(fileName, new TypeToken<List<Order>>(){}.getType());
+    }
+
+    private static Path write(String json) throws IOException {
+        Path file = Files.createTempFile("orders", ".json");
+        return Files.writeString(file, json, StandardCharsets.UTF_8);
+    }
+}
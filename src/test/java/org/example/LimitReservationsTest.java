@@ -0,0 +1,122 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that concurrent reservations never take more than a limit holds.
+ */
+class LimitReservationsTest {
+
+    @Test
+    void concurrentReservationsStayWithinLimit() throws InterruptedException {
+        long limit = 10_000;
+        List<PaymentMethod> methods = List.of(
+                new PaymentMethod(MethodRegistry.PUNKTY, 15, limit),
+                new PaymentMethod("CARD", 5, limit / 3));
+        new MethodRegistry(methods);
+        LimitReservations reservations = new PaymentSummary(methods).openReservations(methods);
+
+        int threads = 8;
+        LongAdder[] reserved = {new LongAdder(), new LongAdder()};
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 100_000; i++) {
+                    int method = random.nextInt(2);
+                    long amount = 1 + random.nextInt(50);
+                    if (reservations.tryReserve(method, amount)) {
+                        reserved[method].add(amount);
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        for (PaymentMethod pm : methods) {
+            long taken = reserved[pm.getIndex()].sum();
+            assertTrue(taken <= pm.getLimit(), pm.getId() + " reserved " + taken + " of " + pm.getLimit());
+            assertTrue(reservations.getRemaining(pm.getIndex()) >= 0, pm.getId() + " went negative");
+            assertEquals(pm.getLimit(), taken + reservations.getRemaining(pm.getIndex()), pm.getId() + " total");
+        }
+    }
+
+    @Test
+    void parallelFallbackOverdrawsOnlyWhereSequentialDoes() {
+        Random random = new Random(9);
+        for (int run = 0; run < 20; run++) {
+            List<PaymentMethod> methods = scarceMethods(random);
+            List<Order> orders = TestData.randomOrders(random, methods, 5_000 + random.nextInt(5_000));
+
+            List<PaymentMethod> sequentialMethods = TestData.copy(methods);
+            PaymentSummary sequential = new PaymentSummary(sequentialMethods);
+            PaymentProcessor.payByMethod(TestData.copyOrders(orders), sequentialMethods, sequential,
+                    ExecutionMode.SEQUENTIAL);
+
+            List<PaymentMethod> parallelMethods = TestData.copy(methods);
+            PaymentSummary parallel = new PaymentSummary(parallelMethods);
+            PaymentMetrics.reset();
+            PaymentMetrics.enable(false);
+            try {
+                PaymentProcessor.payByMethod(TestData.copyOrders(orders), parallelMethods, parallel,
+                        ExecutionMode.PARALLEL);
+            } finally {
+                PaymentMetrics.disable();
+            }
+            assertTrue(fallbackLimitExhausted() > 0, "the fallback was not short of limits");
+
+            assertEquals(orders.size(), parallel.getOrderCount());
+            assertTrue(parallel.isLedgerConsistent());
+            for (PaymentMethod pm : methods) {
+                long left = parallel.getRemainingLimit(pm.getId());
+                if (left < 0) {
+                    assertTrue(sequential.getRemainingLimit(pm.getId()) < 0,
+                            pm.getId() + " overdrawn in parallel only: " + Money.format(left));
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long fallbackLimitExhausted() {
+        Map<String, Object> phases = (Map<String, Object>) PaymentMetrics.snapshot().get("phases");
+        return ((Map<String, Long>) phases.get("fallback")).get("limitExhausted");
+    }
+
+    /**
+     * Methods whose limits cover only a small part of the orders, so that the
+     * fallback phase competes for what is left.
+     */
+    private static List<PaymentMethod> scarceMethods(Random random) {
+        List<PaymentMethod> methods = new ArrayList<>();
+        methods.add(new PaymentMethod(MethodRegistry.PUNKTY, 15, random.nextLong(500_000)));
+        for (int i = 0; i < 4; i++) {
+            methods.add(new PaymentMethod("CARD" + i, random.nextInt(20), 1_000_000 + random.nextLong(3_000_000)));
+        }
+        return methods;
+    }
+}
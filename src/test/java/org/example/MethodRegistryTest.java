@@ -0,0 +1,95 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks that orders bound against one set of method indexes are not used with
+ * another, and that strategies leave the caller's indexes alone.
+ */
+class MethodRegistryTest {
+
+    @Test
+    void ensureBoundRebindsOrdersBoundToOtherIndexes() throws IOException {
+        List<Order> orders = TestData.orders("ordersT.json");
+        List<PaymentMethod> methods = TestData.methods("paymentmethodsT.json");
+        new MethodRegistry(methods).bind(orders);
+
+        List<PaymentMethod> reversed = MethodRegistry.copyOf(methods);
+        Collections.reverse(reversed);
+        MethodRegistry registry = new MethodRegistry(reversed);
+        MethodRegistry.ensureBound(orders, reversed);
+
+        for (Order o : orders) {
+            assertEquals(registry.eligibleMethods(o, new HashSet<>()), o.getEligibleMethods(), o.getId());
+        }
+    }
+
+    @Test
+    void ensureBoundKeepsMatchingBinding() throws IOException {
+        List<Order> orders = TestData.orders("ordersT.json");
+        List<PaymentMethod> methods = TestData.methods("paymentmethodsT.json");
+        new MethodRegistry(methods).bind(orders);
+        List<BitSet> masks = orders.stream().map(Order::getEligibleMethods).toList();
+
+        // sorting the list keeps the indexes, so the binding still holds
+        methods.sort(Comparator.comparingInt(PaymentMethod::getDiscount));
+        MethodRegistry.ensureBound(orders, methods);
+
+        for (int i = 0; i < orders.size(); i++) {
+            assertSame(masks.get(i), orders.get(i).getEligibleMethods(), orders.get(i).getId());
+        }
+    }
+
+    @Test
+    void ensureBoundTrustsOnlyTheRegistryThatIndexedTheMethods() throws IOException {
+        List<Order> orders = TestData.orders("ordersT.json");
+        List<PaymentMethod> methods = TestData.methods("paymentmethodsT.json");
+        new MethodRegistry(methods).bind(orders);
+        // the same indexes, but from a registry that did not set the masks
+        new MethodRegistry(methods);
+        orders.get(0).setEligibleMethods(new BitSet());
+        List<BitSet> masks = orders.stream().map(Order::getEligibleMethods).toList();
+
+        MethodRegistry.ensureBound(orders, methods);
+
+        for (int i = 0; i < orders.size(); i++) {
+            Order o = orders.get(i);
+            assertNotSame(masks.get(i), o.getEligibleMethods(), o.getId());
+            assertEquals(methods.get(0).getRegistry(), o.getRegistry(), o.getId());
+        }
+    }
+
+    @Test
+    void strategiesLeaveCallerIndexes() throws IOException {
+        List<Order> orders = TestData.orders("ordersT.json");
+        List<PaymentMethod> methods = TestData.methods("paymentmethodsT.json");
+        new MethodRegistry(methods).bind(orders);
+        methods.sort(Comparator.comparingInt(PaymentMethod::getDiscount).reversed());
+        Map<String, Integer> indexes = new HashMap<>();
+        methods.forEach(pm -> indexes.put(pm.getId(), pm.getIndex()));
+
+        new OptimizingAllocationStrategy(Duration.ofMillis(50))
+                .allocate(orders, methods, new PaymentSummary(methods));
+        AllocationSession session = new AllocationSession(methods);
+        session.addOrders(orders);
+        session.updateLimit(MethodRegistry.PUNKTY, 0);
+        session.getSummary();
+
+        for (PaymentMethod pm : methods) {
+            int index = indexes.get(pm.getId());
+            assertEquals(index, pm.getIndex(), pm.getId());
+        }
+        assertEquals(140_000, methods.stream()
+                .filter(pm -> MethodRegistry.PUNKTY.equals(pm.getId())).findFirst().orElseThrow().getLimit());
+    }
+}
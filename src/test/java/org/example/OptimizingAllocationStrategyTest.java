@@ -0,0 +1,99 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the branch-and-bound search against the greedy on random inputs:
+ * it never gives less discount and never overdraws a limit the greedy keeps to,
+ * also when the time budget runs out.
+ */
+class OptimizingAllocationStrategyTest {
+
+    @Test
+    void neverWorseThanGreedy() {
+        for (int seed = 0; seed < 300; seed++) {
+            Random random = new Random(seed);
+            List<PaymentMethod> methods = TestData.randomMethods(random);
+            List<Order> orders = TestData.randomOrders(random, methods, 1 + random.nextInt(10));
+            OptimizingAllocationStrategy optimizer = new OptimizingAllocationStrategy(Duration.ofSeconds(5));
+            Result greedy = allocate(new GreedyAllocationStrategy(), orders, methods);
+            Result optimized = allocate(optimizer, orders, methods);
+
+            String context = "seed " + seed;
+            assertTrue(optimizer.isLastOptimal(), context + ": search finished");
+            assertEquals(0L, optimizer.getLastGap(), context);
+            assertTrue(optimized.discount >= greedy.discount,
+                    context + ": " + Money.format(optimized.discount) + " < " + Money.format(greedy.discount));
+            assertTrue(greedy.overdrawn || !optimized.overdrawn, context + ": overdrawn");
+        }
+    }
+
+    @Test
+    void tinyBudgetKeepsTheGreedyGuarantees() {
+        Random random = new Random(13);
+        int cutShort = 0;
+        for (int run = 0; run < 5; run++) {
+            List<PaymentMethod> methods = TestData.randomMethods(random);
+            List<Order> orders = TestData.randomOrders(random, methods, 500);
+            OptimizingAllocationStrategy optimizer = new OptimizingAllocationStrategy(Duration.ofNanos(1));
+            Result greedy = allocate(new GreedyAllocationStrategy(), orders, methods);
+            Result optimized = allocate(optimizer, orders, methods);
+
+            String context = "run " + run;
+            if (optimizer.isLastOptimal()) {
+                assertEquals(0L, optimizer.getLastGap(), context);
+            } else {
+                cutShort++;
+                assertTrue(optimizer.getLastGap() >= 0, context + ": gap " + optimizer.getLastGap());
+            }
+            assertTrue(optimized.discount >= greedy.discount, context + ": discount");
+            assertTrue(greedy.overdrawn || !optimized.overdrawn, context + ": overdrawn");
+        }
+        assertTrue(cutShort > 0, "no search was cut short");
+    }
+
+    @Test
+    void emptyInputIsOptimal() {
+        OptimizingAllocationStrategy optimizer = new OptimizingAllocationStrategy(Duration.ofNanos(1));
+        Result result = allocate(optimizer, List.of(), TestData.randomMethods(new Random(1)));
+        assertTrue(optimizer.isLastOptimal());
+        assertEquals(0L, optimizer.getLastGap());
+        assertEquals(0L, result.discount);
+    }
+
+    private record Result(long discount, boolean overdrawn) {}
+
+    /**
+     * Runs the strategy over bound copies of the input and checks that every order is paid.
+     */
+    private static Result allocate(AllocationStrategy strategy, List<Order> orders, List<PaymentMethod> methods) {
+        List<PaymentMethod> methodCopies = TestData.copy(methods);
+        List<Order> orderCopies = TestData.copyOrders(orders);
+        new MethodRegistry(methodCopies).bind(orderCopies);
+        PaymentSummary summary = new PaymentSummary(methodCopies);
+        strategy.allocate(orderCopies, methodCopies, summary);
+
+        assertEquals(orders.size(), summary.getPaymentsByOrder().size(), strategy.cacheKey() + ": every order paid");
+        long discount = 0;
+        for (Order o : orders) {
+            discount += o.getValue();
+        }
+        for (long paid : summary.getPaidByMethod().values()) {
+            discount -= paid;
+        }
+        boolean overdrawn = false;
+        for (PaymentMethod pm : methods) {
+            overdrawn |= summary.getRemainingLimit(pm.getId()) < 0;
+        }
+        return new Result(discount, overdrawn);
+    }
+}
@@ -0,0 +1,50 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the columnar engine pays every order with the same entries
+ * as the list-based processor, on random inputs.
+ */
+class OrderTableEngineTest {
+
+    @Test
+    void tablePaysLikeList() {
+        Random random = new Random(8);
+        for (int run = 0; run < 300; run++) {
+            List<PaymentMethod> methods = TestData.randomMethods(random);
+            List<Order> orders = TestData.randomOrders(random, methods, 1 + random.nextInt(400));
+
+            List<PaymentMethod> listMethods = TestData.copy(methods);
+            List<Order> listOrders = TestData.copyOrders(orders);
+            new MethodRegistry(listMethods).bind(listOrders);
+            PaymentSummary expected = new PaymentSummary(listMethods);
+            PaymentProcessor.payByMethod(listOrders, listMethods, expected);
+
+            List<PaymentMethod> tableMethods = TestData.copy(methods);
+            MethodRegistry registry = new MethodRegistry(tableMethods);
+            OrderTable table = OrderTable.of(TestData.copyOrders(orders), registry);
+            PaymentSummary actual = new PaymentSummary(tableMethods);
+            PaymentProcessor.payByMethod(table, tableMethods, actual);
+
+            String context = "run " + run;
+            Map<String, List<PaymentSummary.PaymentEntry>> actualPayments = actual.getPaymentsByOrder();
+            assertEquals(expected.getPaymentsByOrder().keySet(), actualPayments.keySet(), context + ": paid orders");
+            for (Map.Entry<String, List<PaymentSummary.PaymentEntry>> e : expected.getPaymentsByOrder().entrySet()) {
+                assertEquals(e.getValue(), actualPayments.get(e.getKey()), context + ": " + e.getKey());
+            }
+            for (PaymentMethod pm : methods) {
+                long left = expected.getRemainingLimit(pm.getId());
+                assertEquals(left, actual.getRemainingLimit(pm.getId()), context + ": " + pm.getId());
+            }
+        }
+    }
+}
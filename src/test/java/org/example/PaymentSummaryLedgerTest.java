@@ -0,0 +1,61 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that after the greedy the payments of every method add up to its
+ * initial limit minus its remaining limit, to the grosz.
+ */
+class PaymentSummaryLedgerTest {
+
+    @Test
+    void bundledFixtures() throws IOException {
+        assertLedger(TestData.orders("orders.json"), TestData.methods("paymentmethods.json"));
+        assertLedger(TestData.orders("ordersT.json"), TestData.methods("paymentmethodsT.json"));
+    }
+
+    @Test
+    void randomInputs() {
+        Random random = new Random(1);
+        for (int run = 0; run < 300; run++) {
+            List<PaymentMethod> methods = TestData.randomMethods(random);
+            assertLedger(TestData.randomOrders(random, methods, 1 + random.nextInt(400)), methods);
+        }
+    }
+
+    private static void assertLedger(List<Order> orders, List<PaymentMethod> methods) {
+        Map<String, Long> initial = new HashMap<>();
+        for (PaymentMethod pm : methods) {
+            initial.put(pm.getId(), pm.getLimit());
+        }
+        PaymentSummary summary = new PaymentSummary(methods);
+        PaymentProcessor.payByMethod(orders, methods, summary);
+
+        Map<String, Long> paid = new HashMap<>();
+        for (List<PaymentSummary.PaymentEntry> entries : summary.getPaymentsByOrder().values()) {
+            for (PaymentSummary.PaymentEntry entry : entries) {
+                paid.merge(entry.getMethodId(), entry.getAmount(), Long::sum);
+            }
+        }
+        for (PaymentMethod pm : methods) {
+            long expected = initial.get(pm.getId()) - summary.getRemainingLimit(pm.getId());
+            long entries = paid.getOrDefault(pm.getId(), 0L);
+            long ledger = summary.getPaidByMethod().get(pm.getId());
+            assertEquals(expected, entries, "payments by " + pm.getId());
+            assertEquals(expected, ledger, "ledger of " + pm.getId());
+        }
+        assertTrue(summary.isLedgerConsistent());
+        assertEquals(orders.size(), summary.getOrderCount());
+    }
+}
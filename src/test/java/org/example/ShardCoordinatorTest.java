@@ -0,0 +1,112 @@
+package org.example;
+
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the coordinator with real {@code --worker} processes and checks that the
+ * shards together stay within the global limits, and checks how limits are sliced.
+ */
+class ShardCoordinatorTest {
+
+    @Test
+    void shardsStayWithinGlobalLimits() {
+        Random random = new Random(17);
+        for (int run = 0; run < 8; run++) {
+            List<PaymentMethod> methods = TestData.randomMethods(random);
+            List<Order> orders = TestData.randomOrders(random, methods, 300);
+            int shards = 2 + random.nextInt(3);
+            tightenLimits(methods, orders, random);
+
+            List<PaymentMethod> singleMethods = TestData.copy(methods);
+            List<Order> singleOrders = TestData.copyOrders(orders);
+            new MethodRegistry(singleMethods).bind(singleOrders);
+            PaymentSummary single = new PaymentSummary(singleMethods);
+            PaymentProcessor.payByMethod(singleOrders, singleMethods, single);
+
+            List<PaymentMethod> shardedMethods = TestData.copy(methods);
+            List<Order> shardedOrders = TestData.copyOrders(orders);
+            new MethodRegistry(shardedMethods).bind(shardedOrders);
+            PaymentSummary sharded = new PaymentSummary(shardedMethods);
+            new ShardCoordinator(shards).allocate(shardedOrders, shardedMethods, sharded);
+
+            String context = "run " + run + " with " + shards + " shards";
+            assertEquals(orders.size(), sharded.getPaymentsByOrder().size(), context + ": every order paid once");
+            for (PaymentMethod pm : methods) {
+                long singleLeft = single.getRemainingLimit(pm.getId());
+                long shardedLeft = sharded.getRemainingLimit(pm.getId());
+                assertTrue(singleLeft < 0 || shardedLeft >= 0,
+                        context + ": " + pm.getId() + " overdrawn by " + Money.format(-shardedLeft));
+            }
+        }
+    }
+
+    /**
+     * Sets every limit a little above what a single run with ample limits pays with it,
+     * so a single run mostly keeps within them and the shards have little to spare.
+     */
+    private static void tightenLimits(List<PaymentMethod> methods, List<Order> orders, Random random) {
+        long total = orders.stream().mapToLong(Order::getValue).sum();
+        List<PaymentMethod> ample = TestData.copy(methods);
+        for (PaymentMethod pm : ample) {
+            pm.setLimit(total);
+        }
+        List<Order> copies = TestData.copyOrders(orders);
+        new MethodRegistry(ample).bind(copies);
+        PaymentSummary summary = new PaymentSummary(ample);
+        PaymentProcessor.payByMethod(copies, ample, summary);
+        for (PaymentMethod pm : methods) {
+            long paid = summary.getPaidByMethod().getOrDefault(pm.getId(), 0L);
+            pm.setLimit(paid + random.nextLong(paid / 20 + 1));
+        }
+    }
+
+    @Test
+    void releasesLatestPaymentsOfOverdrawnMethodsOnly() {
+        Map<String, Integer> indexById = Map.of("A", 0, "B", 1);
+        List<Map.Entry<String, List<PaymentSummary.PaymentEntry>>> paid = List.of(
+                Map.entry("o1", List.of(new PaymentSummary.PaymentEntry("A", 40))),
+                Map.entry("o2", List.of(new PaymentSummary.PaymentEntry("A", 30))),
+                Map.entry("o3", List.of(new PaymentSummary.PaymentEntry("B", 50))),
+                Map.entry("o4", List.of(new PaymentSummary.PaymentEntry("A", 20))));
+        // slices of 60 for A and 100 for B, less the payments
+        long[] left = {60 - 90, 100 - 50};
+
+        Set<String> released = ShardCoordinator.release(paid, left, indexById);
+        assertEquals(Set.of("o4", "o2"), released);
+        assertArrayEquals(new long[]{20, 50}, left);
+    }
+
+    @Test
+    void slicesFollowDemandAndAddUpToTheLimit() {
+        long[] slices = ShardCoordinator.slice(1_000, new long[]{100, 300, 0});
+        assertArrayEquals(new long[]{250, 750, 0}, slices);
+        long sum = 0;
+        for (long s : ShardCoordinator.slice(1_001, new long[]{1, 1, 1})) {
+            sum += s;
+        }
+        assertEquals(1_001L, sum);
+    }
+
+    @Test
+    void slicesWithoutDemandAreEven() {
+        assertArrayEquals(new long[]{334, 333, 333}, ShardCoordinator.slice(1_000, new long[]{0, 0, 0}));
+    }
+
+    @Test
+    void nonPositiveLimitsGoToTheFirstShard() {
+        assertArrayEquals(new long[]{0, 0, 0}, ShardCoordinator.slice(0, new long[]{5, 7, 9}));
+        assertArrayEquals(new long[]{-50, 0, 0}, ShardCoordinator.slice(-50, new long[]{5, 7, 9}));
+        assertArrayEquals(new long[]{-50, 0}, ShardCoordinator.slice(-50, new long[]{0, 0}));
+    }
+}
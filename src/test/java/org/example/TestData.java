@@ -0,0 +1,89 @@
+package org.example;
+
+import com.google.gson.reflect.TypeToken;
+import org.example.jsonClasses.Order;
+import org.example.jsonClasses.PaymentMethod;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Orders and payment methods for tests: the bundled fixtures and random inputs.
+ */
+final class TestData {
+    static final String RESOURCES = "src/main/resources/";
+
+    private TestData() {}
+
+    static List<Order> orders(String fileName) throws IOException {
+        return new JsonFileParser<Order>(RESOURCES + fileName, new TypeToken<List<Order>>(){}.getType()).parse();
+    }
+
+    static List<PaymentMethod> methods(String fileName) throws IOException {
+        return new JsonFileParser<PaymentMethod>(RESOURCES + fileName, new TypeToken<List<PaymentMethod>>(){}.getType()).parse();
+    }
+
+    /**
+     * Creates PUNKTY and up to eight card methods with random discounts and limits.
+     * A few limits are zero, so that some methods run out at once.
+     */
+    static List<PaymentMethod> randomMethods(Random random) {
+        List<PaymentMethod> methods = new ArrayList<>();
+        methods.add(new PaymentMethod(MethodRegistry.PUNKTY, 1 + random.nextInt(30), randomLimit(random)));
+        int cards = 1 + random.nextInt(8);
+        for (int i = 0; i < cards; i++) {
+            methods.add(new PaymentMethod("CARD" + i, random.nextInt(25), randomLimit(random)));
+        }
+        return methods;
+    }
+
+    private static long randomLimit(Random random) {
+        return random.nextInt(8) == 0 ? 0 : random.nextLong(200_000);
+    }
+
+    /**
+     * Creates orders with random values and promotions drawn from the methods,
+     * with many equal values and some unknown promotions.
+     */
+    static List<Order> randomOrders(Random random, List<PaymentMethod> methods, int count) {
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long value = random.nextBoolean() ? 100 * (1 + random.nextInt(50)) : 1 + random.nextLong(30_000);
+            String[] promotions = null;
+            if (random.nextInt(4) != 0) {
+                promotions = new String[random.nextInt(4)];
+                for (int p = 0; p < promotions.length; p++) {
+                    promotions[p] = random.nextInt(10) == 0
+                            ? "UNKNOWN" + p
+                            : methods.get(random.nextInt(methods.size())).getId();
+                }
+            }
+            orders.add(new Order("ORDER" + i, value, promotions));
+        }
+        return orders;
+    }
+
+    /**
+     * Copies payment methods, without their registry indexes.
+     */
+    static List<PaymentMethod> copy(List<PaymentMethod> methods) {
+        List<PaymentMethod> copies = new ArrayList<>(methods.size());
+        for (PaymentMethod pm : methods) {
+            copies.add(new PaymentMethod(pm.getId(), pm.getDiscount(), pm.getLimit()));
+        }
+        return copies;
+    }
+
+    /**
+     * Copies orders, without their eligibility masks.
+     */
+    static List<Order> copyOrders(List<Order> orders) {
+        List<Order> copies = new ArrayList<>(orders.size());
+        for (Order o : orders) {
+            copies.add(new Order(o.getId(), o.getValue(), o.getPromotions()));
+        }
+        return copies;
+    }
+}